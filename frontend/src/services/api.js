@@ -3,6 +3,9 @@ import axios from 'axios';
 // Backend API Service
 const API_BASE_URL = import.meta.env.VITE_API_BASE_URL || 'http://localhost:8081';
 
+// Tentativas de retomar uma resposta do chatbot após perder a conexão
+const MAX_RECONNECTS = 3;
+
 const api = axios.create({
   baseURL: API_BASE_URL,
   headers: {
@@ -88,8 +91,18 @@ export const apiService = {
     }
   },
 
+  // Pré-busca do contexto enquanto o usuário digita (melhor esforço)
+  async prefetchChatbot(conversationId, prompt) {
+    try {
+      await api.post('/ai/chatbot/prefetch', { conversationId, prompt });
+    } catch (error) {
+      // A pergunta enviada faz a busca normalmente se a pré-busca falhar
+      console.debug('Pré-busca ignorada:', error.message);
+    }
+  },
+
   // Chatbot SSE (usando fetch com stream)
-  async createChatbotStream(conversationId, prompt, onMessage, onError, onComplete) {
+  async createChatbotStream(conversationId, prompt, onMessage, onError, onComplete, onQueue) {
     const token = localStorage.getItem('jwt_token');
     if (!token) {
       onError(new Error('Token de autenticação não encontrado'));
@@ -109,7 +122,9 @@ export const apiService = {
         },
         body: JSON.stringify({
           conversationId: conversationId,
-          prompt: prompt
+          prompt: prompt,
+          // Reconecta em /ai/chatbot/resume se a conexão cair (ver abaixo)
+          resumable: true
         })
       });
     } catch (error) {
@@ -129,6 +144,13 @@ export const apiService = {
           errorMessage = text;
         }
       }
+      if (response.status === 429) {
+        // Fila do modelo cheia: informar quando tentar novamente
+        const retryAfter = response.headers.get('Retry-After');
+        if (retryAfter) {
+          errorMessage = `${errorMessage} (tente novamente em ${retryAfter}s)`;
+        }
+      }
       onError(new Error(errorMessage));
       return;
     }
@@ -138,64 +160,114 @@ export const apiService = {
       return;
     }
 
-    const reader = response.body.getReader();
-    const decoder = new TextDecoder();
-    let buffer = '';
+    // Id do último evento recebido ('<mensagem>:<caracteres>'), usado para
+    // retomar a resposta se a conexão cair durante a geração
+    let lastEventId = null;
+    let reconnects = 0;
 
-    try {
-      while (true) {
-        const { done, value } = await reader.read();
-        
-        if (done) {
-          // Processar buffer restante
-          if (buffer.trim()) {
-            const lines = buffer.split('\n');
-            for (const line of lines) {
-              const trimmedLine = line.trim();
-              if (trimmedLine.startsWith('data: ')) {
-                const data = trimmedLine.substring(6);
-                if (data && data !== '[DONE]') {
-                  onMessage(data);
+    while (true) {
+      const reader = response.body.getReader();
+      const decoder = new TextDecoder();
+      let buffer = '';
+      // Nome do evento SSE atual ('queue' indica a posição na fila do modelo)
+      let eventName = null;
+
+      try {
+        while (true) {
+          const { done, value } = await reader.read();
+
+          if (done) {
+            // Processar buffer restante
+            if (buffer.trim()) {
+              const lines = buffer.split('\n');
+              for (const line of lines) {
+                const trimmedLine = line.trim();
+                if (trimmedLine.startsWith('data: ')) {
+                  const data = trimmedLine.substring(6);
+                  if (data && data !== '[DONE]') {
+                    onMessage(data);
+                  }
+                } else if (trimmedLine && !trimmedLine.startsWith(':') && !trimmedLine.startsWith('id:')) {
+                  // Se não começa com ':', pode ser conteúdo direto
+                  onMessage(trimmedLine);
                 }
-              } else if (trimmedLine && !trimmedLine.startsWith(':')) {
-                // Se não começa com ':', pode ser conteúdo direto
-                onMessage(trimmedLine);
               }
             }
+            onComplete();
+            return;
           }
-          onComplete();
-          break;
-        }
 
-        buffer += decoder.decode(value, { stream: true });
-        const lines = buffer.split('\n');
-        buffer = lines.pop() || '';
-
-        for (const line of lines) {
-          const trimmedLine = line.trim();
-          if (trimmedLine.startsWith('data: ')) {
-            const data = trimmedLine.substring(6);
-            if (data === '[DONE]') {
-              onComplete();
-              return;
+          buffer += decoder.decode(value, { stream: true });
+          const lines = buffer.split('\n');
+          buffer = lines.pop() || '';
+
+          for (const line of lines) {
+            const trimmedLine = line.trim();
+            if (!trimmedLine) {
+              eventName = null;
+              continue;
             }
-            if (data) {
-              onMessage(data);
+            if (trimmedLine.startsWith('event:')) {
+              eventName = trimmedLine.substring(6).trim();
+              continue;
+            }
+            if (trimmedLine.startsWith('id:')) {
+              lastEventId = trimmedLine.substring(3).trim();
+              continue;
+            }
+            if (eventName === 'queue') {
+              const position = parseInt(trimmedLine.replace(/^data:\s*/, ''), 10);
+              if (onQueue && !Number.isNaN(position)) {
+                onQueue(position);
+              }
+              continue;
+            }
+            if (trimmedLine.startsWith('data: ')) {
+              const data = trimmedLine.substring(6);
+              if (data === '[DONE]') {
+                onComplete();
+                return;
+              }
+              if (data) {
+                onMessage(data);
+              }
+            } else if (trimmedLine && !trimmedLine.startsWith(':') && !trimmedLine.startsWith('event:')) {
+              // Aceitar conteúdo direto (alguns servidores SSE não usam prefixo 'data:')
+              onMessage(trimmedLine);
             }
-          } else if (trimmedLine && !trimmedLine.startsWith(':') && !trimmedLine.startsWith('event:')) {
-            // Aceitar conteúdo direto (alguns servidores SSE não usam prefixo 'data:')
-            onMessage(trimmedLine);
           }
         }
+      } catch (error) {
+        console.error('Erro ao processar stream:', error);
+        if (!lastEventId || reconnects >= MAX_RECONNECTS) {
+          onError(error);
+          return;
+        }
+      } finally {
+        try {
+          reader.releaseLock();
+        } catch (e) {
+          // Ignorar erro ao liberar lock
+        }
       }
-    } catch (error) {
-      console.error('Erro ao processar stream:', error);
-      onError(error);
-    } finally {
+
+      // Conexão perdida durante a geração: retomar a partir do último evento
+      reconnects++;
       try {
-        reader.releaseLock();
-      } catch (e) {
-        // Ignorar erro ao liberar lock
+        response = await fetch(`${API_BASE_URL}/ai/chatbot/resume`, {
+          headers: {
+            'Authorization': `Bearer ${token}`,
+            'Accept': 'text/event-stream',
+            'Last-Event-ID': lastEventId
+          }
+        });
+      } catch (error) {
+        onError(new Error(`Erro de conexão: ${error.message}`));
+        return;
+      }
+      if (!response.ok || !response.body) {
+        onError(new Error(`Erro HTTP ${response.status}`));
+        return;
       }
     }
   }
@@ -9,17 +9,23 @@ package dev.rpmhub.application.rest;
 
 import dev.rpmhub.domain.model.Conversation;
 import dev.rpmhub.domain.model.ConversationMemory;
+import dev.rpmhub.domain.model.OverloadedException;
 import dev.rpmhub.domain.model.User;
+import dev.rpmhub.domain.port.AdmissionService;
 import dev.rpmhub.domain.port.AuthService;
 import dev.rpmhub.domain.port.ConversationService;
 import dev.rpmhub.domain.port.MemoryService;
+import dev.rpmhub.domain.port.MetricsService;
+import dev.rpmhub.domain.port.RateLimitService;
 import dev.rpmhub.domain.port.UserService;
 import dev.rpmhub.domain.usecase.AskQuestionUseCase;
 import dev.rpmhub.domain.usecase.ChatbotUseCase;
+import io.opentelemetry.instrumentation.annotations.WithSpan;
 import io.quarkus.hibernate.reactive.panache.common.WithSession;
 import io.quarkus.logging.Log;
 import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.Cancellable;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.inject.Inject;
 import jakarta.validation.Valid;
@@ -29,29 +35,62 @@ import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+
+import org.jboss.resteasy.reactive.server.ServerExceptionMapper;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
 
 @Path("/ai")
 public class RagController {
 
+    /**
+     * Pipeline names used to tag the request metrics.
+     */
+    private static final String CHATBOT_PIPELINE = "chatbot";
+    private static final String ASK_PIPELINE = "ask";
+    private static final String PREFETCH_PIPELINE = "prefetch";
+
+    /**
+     * Name of the SSE event carrying the position of a request in the LLM
+     * queue. Generated text is sent as unnamed events.
+     */
+    private static final String QUEUE_EVENT = "queue";
+
     private final ChatbotUseCase chatbotUseCase;
     private final AskQuestionUseCase askQuestionUseCase;
     private final MemoryService memoryService;
     private final UserService userService;
     private final ConversationService conversationService;
     private final AuthService authService;
+    private final MetricsService metricsService;
+    private final AdmissionService admissionService;
+    private final RateLimitService rateLimitService;
 
     @Context
     ContainerRequestContext requestContext;
 
+    @Context
+    Sse sse;
+
     @Inject
     public RagController(ChatbotUseCase chatbotUseCase,
             AskQuestionUseCase askQuestionUseCase,
             MemoryService memoryService,
             UserService userService,
             ConversationService conversationService,
-            AuthService authService) {
+            AuthService authService,
+            MetricsService metricsService,
+            AdmissionService admissionService,
+            RateLimitService rateLimitService) {
 
         this.chatbotUseCase = chatbotUseCase;
         this.askQuestionUseCase = askQuestionUseCase;
@@ -59,6 +98,9 @@ public class RagController {
         this.userService = userService;
         this.conversationService = conversationService;
         this.authService = authService;
+        this.metricsService = metricsService;
+        this.admissionService = admissionService;
+        this.rateLimitService = rateLimitService;
     }
     
     /**
@@ -78,33 +120,101 @@ public class RagController {
             .onFailure().invoke(e -> Log.error("Failed to synchronize user from JWT token", e));
     }
 
+    /**
+     * Rejects the request before any work is done when the LLM queue is full.
+     */
+    private void checkAdmission() {
+        if (admissionService.isSaturated()) {
+            throw new OverloadedException("Serviço sobrecarregado, tente novamente em instantes",
+                admissionService.retryAfterSeconds());
+        }
+    }
+
+    /**
+     * Converts a generation into SSE events. While the request waits for an
+     * LLM slot, its queue position is sent as a "queue" event.
+     *
+     * @param generation builds the token stream from the queue position listener
+     * @return the SSE event stream
+     */
+    private Multi<OutboundSseEvent> toEvents(Function<IntConsumer, Multi<String>> generation) {
+        return toEvents((onQueued, onStarted) -> generation.apply(onQueued), null, 0);
+    }
+
+    /**
+     * Converts a generation into SSE events. Once the answer has a message
+     * id, each event has the id "&lt;message id&gt;:&lt;characters sent&gt;",
+     * which the client sends back as Last-Event-ID to resume the answer.
+     *
+     * @param generation builds the token stream from the queue position and
+     *                   message id listeners
+     * @param messageId  the message id of a resumed answer, or null
+     * @param offset     the characters of the answer the client already has
+     * @return the SSE event stream
+     */
+    private Multi<OutboundSseEvent> toEvents(BiFunction<IntConsumer, Consumer<String>, Multi<String>> generation,
+            String messageId, int offset) {
+        return Multi.createFrom().emitter(emitter -> {
+            AtomicReference<String> id = new AtomicReference<>(messageId);
+            AtomicInteger sent = new AtomicInteger(offset);
+            IntConsumer onQueued = position -> emitter.emit(
+                sse.newEventBuilder().name(QUEUE_EVENT).data(String.valueOf(position)).build());
+            Cancellable subscription = generation.apply(onQueued, id::set).subscribe().with(
+                token -> {
+                    OutboundSseEvent.Builder event = sse.newEventBuilder().data(token);
+                    if (id.get() != null) {
+                        event.id(new ResumePoint(id.get(), sent.addAndGet(token.length())).eventId());
+                    }
+                    emitter.emit(event.build());
+                },
+                emitter::fail,
+                emitter::complete);
+            emitter.onTermination(subscription::cancel);
+        });
+    }
+
+    @ServerExceptionMapper
+    public Response mapOverloaded(OverloadedException e) {
+        return Response.status(Response.Status.TOO_MANY_REQUESTS)
+            .header("Retry-After", e.getRetryAfterSeconds())
+            .type(MediaType.APPLICATION_JSON)
+            .entity(Map.of("message", e.getMessage()))
+            .build();
+    }
+
     @POST
     @Path("/chatbot")
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.SERVER_SENT_EVENTS)
-    public Multi<String> chatbot(@Valid ChatbotRequest request) {
+    @WithSpan("RagController.chatbot")
+    public Multi<OutboundSseEvent> chatbot(@Valid ChatbotRequest request) {
         // Extrair userId do token JWT quando disponível
         String jwtToken = (String) requestContext.getProperty("jwt.token");
         
         if (jwtToken != null) {
             // Novo formato: usar token JWT para extrair userId
             Log.info("Chatbot POST - Conversation: " + request.conversationId);
+            checkAdmission();
             
             // Sincronizar usuário do JWT token e extrair ID
-            return syncUserFromRequest()
+            return toEvents((onQueued, onStarted) -> metricsService.trackRequest(CHATBOT_PIPELINE,
+                metricsService.timeStage(CHATBOT_PIPELINE, "jwt_sync", syncUserFromRequest())
+                .call(syncedUser -> rateLimitService.acquire(CHATBOT_PIPELINE, syncedUser.getId()))
                 .onItem().transformToMulti(syncedUser -> {
                     String syncedUserId = syncedUser.getId();
                     // Verificar acesso antes de processar (usando o ID do usuário)
-                    return conversationService.userHasAccess(syncedUserId, request.conversationId)
+                    return metricsService.timeStage(CHATBOT_PIPELINE, "access_check",
+                            conversationService.userHasAccess(syncedUserId, request.conversationId))
                         .onItem().transformToMulti(hasAccess -> {
                             if (!hasAccess) {
                                 Log.warn("Acesso negado para usuário " + syncedUserId + " na conversa " + request.conversationId);
                                 return Multi.createFrom().failure(new SecurityException("Acesso negado"));
                             }
                             // Passar o ID do usuário sincronizado, não o hash
-                            return chatbotUseCase.execute(syncedUserId, request.conversationId, request.prompt);
+                            return chatbotUseCase.execute(syncedUserId, request.conversationId, request.prompt,
+                                    request.filters, request.resumable, onQueued, onStarted);
                         })
-                        .onFailure().recoverWithMulti(e -> {
+                        .onFailure(e -> !(e instanceof OverloadedException)).recoverWithMulti(e -> {
                             // Tratar falhas convertendo em mensagem SSE válida
                             String errorMessage = e instanceof SecurityException 
                                 ? "Erro: Acesso negado à conversa" 
@@ -113,22 +223,90 @@ public class RagController {
                         });
                 })
                 .onFailure().invoke(e -> Log.error("Erro ao processar requisição de chatbot", e))
-                .onFailure().recoverWithMulti(e -> {
+                .onFailure(e -> !(e instanceof OverloadedException)).recoverWithMulti(e -> {
                     // Tratar falhas na sincronização do usuário
                     String errorMessage = e.getMessage() != null ? e.getMessage() : "Erro desconhecido";
                     return Multi.createFrom().item("data: Erro: " + errorMessage + "\n\n");
-                });
+                })), null, 0);
         } else {
             // Token não presente - retornar erro
             Log.warn("JWT token não encontrado na requisição POST /chatbot");
-            return Multi.createFrom().item("data: Erro: Token de autenticação não encontrado\n\n");
+            return toEvents(onQueued -> Multi.createFrom().item("data: Erro: Token de autenticação não encontrado\n\n"));
         }
     }
     
+    /**
+     * Resumes an answer after a disconnect from the Last-Event-ID of the last
+     * event received: the rest of the answer while it is generated, or the
+     * rest of its saved content afterwards.
+     */
+    @GET
+    @Path("/chatbot/resume")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    @WithSpan("RagController.resume")
+    public Multi<OutboundSseEvent> resume(@HeaderParam("Last-Event-ID") String lastEventId) {
+        ResumePoint resumePoint = ResumePoint.parse(lastEventId);
+        String messageId = resumePoint.messageId();
+        int offset = resumePoint.offset();
+        Log.info("Chatbot resume - Message: " + messageId + " a partir de " + offset);
+
+        return toEvents((onQueued, onStarted) -> syncUserFromRequest()
+            .onItem().transformToUni(syncedUser -> memoryService.getMessage(messageId)
+                .onItem().ifNull().failWith(() -> new NotFoundException("Mensagem não encontrada"))
+                .call(message -> conversationService.userHasAccess(syncedUser.getId(), message.getConversationId())
+                    .invoke(hasAccess -> {
+                        if (!hasAccess) {
+                            throw new SecurityException("Acesso negado");
+                        }
+                    })))
+            .onItem().transformToMulti(message -> chatbotUseCase.resume(message, offset))
+            .onFailure().invoke(e -> Log.error("Erro ao retomar resposta " + messageId, e))
+            .onFailure().recoverWithMulti(e -> {
+                String errorMessage = e instanceof SecurityException
+                    ? "Erro: Acesso negado à conversa"
+                    : "Erro: " + (e.getMessage() != null ? e.getMessage() : "Erro desconhecido");
+                return Multi.createFrom().item("data: " + errorMessage + "\n\n");
+            }), messageId, offset);
+    }
+
+    /**
+     * Starts the retrieval of a prompt the user is still typing, reused by
+     * the chatbot when the sent prompt is nearly the same. Best effort: it is
+     * skipped while the service is overloaded and its failures are ignored.
+     * Limited by its own rate limit bucket, larger than the chatbot's, so
+     * that a client typing fast cannot saturate the embedding bulkhead.
+     */
+    @POST
+    @Path("/chatbot/prefetch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @WithSpan("RagController.prefetch")
+    public Uni<Response> prefetch(@Valid ChatbotRequest request) {
+        if (admissionService.isSaturated()) {
+            return Uni.createFrom().item(Response.noContent().build());
+        }
+        return syncUserFromRequest()
+            .call(syncedUser -> rateLimitService.acquire(PREFETCH_PIPELINE, syncedUser.getId()))
+            .onItem().transformToUni(syncedUser ->
+                conversationService.userHasAccess(syncedUser.getId(), request.conversationId))
+            .onItem().transform(hasAccess -> {
+                if (!hasAccess) {
+                    return Response.status(Response.Status.FORBIDDEN).build();
+                }
+                return chatbotUseCase.prefetch(request.conversationId, request.prompt, request.filters)
+                    ? Response.accepted().build()
+                    : Response.noContent().build();
+            })
+            .onFailure(e -> !(e instanceof OverloadedException)).recoverWithItem(e -> {
+                Log.debug("Pré-busca ignorada: " + e.getMessage());
+                return Response.noContent().build();
+            });
+    }
+
     @GET
     @Path("/chatbot")
     @Produces(MediaType.SERVER_SENT_EVENTS)
-    public Multi<String> chatbotLegacy(
+    @WithSpan("RagController.chatbotLegacy")
+    public Multi<OutboundSseEvent> chatbotLegacy(
             @QueryParam("session") String session,
             @QueryParam("userId") String userId,
             @QueryParam("conversationId") String conversationId,
@@ -137,22 +315,26 @@ public class RagController {
         if (userId != null && conversationId != null) {
             // Requer autenticação JWT para novo formato
             Log.info("Chatbot GET (legacy) User: " + userId + ", Conversation: " + conversationId);
+            checkAdmission();
             
             // Sincronizar usuário do JWT token
-            return syncUserFromRequest()
+            return toEvents(onQueued -> metricsService.trackRequest(CHATBOT_PIPELINE,
+                metricsService.timeStage(CHATBOT_PIPELINE, "jwt_sync", syncUserFromRequest())
+                .call(syncedUser -> rateLimitService.acquire(CHATBOT_PIPELINE, syncedUser.getId()))
                 .onItem().transformToMulti(syncedUser -> {
                     String syncedUserId = syncedUser.getId();
                     // Verificar acesso antes de processar (usando o ID do usuário)
-                    return conversationService.userHasAccess(syncedUserId, conversationId)
+                    return metricsService.timeStage(CHATBOT_PIPELINE, "access_check",
+                            conversationService.userHasAccess(syncedUserId, conversationId))
                         .onItem().transformToMulti(hasAccess -> {
                             if (!hasAccess) {
                                 Log.warn("Acesso negado para usuário " + syncedUserId + " na conversa " + conversationId);
                                 return Multi.createFrom().failure(new SecurityException("Acesso negado"));
                             }
                             // Passar o ID do usuário sincronizado, não o hash
-                            return chatbotUseCase.execute(syncedUserId, conversationId, prompt);
+                            return chatbotUseCase.execute(syncedUserId, conversationId, prompt, onQueued);
                         })
-                        .onFailure().recoverWithMulti(e -> {
+                        .onFailure(e -> !(e instanceof OverloadedException)).recoverWithMulti(e -> {
                             // Tratar falhas convertendo em mensagem SSE válida
                             String errorMessage = e instanceof SecurityException 
                                 ? "Erro: Acesso negado à conversa" 
@@ -161,33 +343,40 @@ public class RagController {
                         });
                 })
                 .onFailure().invoke(e -> Log.error("Erro ao processar requisição de chatbot", e))
-                .onFailure().recoverWithMulti(e -> {
+                .onFailure(e -> !(e instanceof OverloadedException)).recoverWithMulti(e -> {
                     // Tratar falhas na sincronização do usuário
                     String errorMessage = e.getMessage() != null ? e.getMessage() : "Erro desconhecido";
                     return Multi.createFrom().item("data: Erro: " + errorMessage + "\n\n");
-                });
+                })));
         } else if (session != null) {
             // Formato antigo para compatibilidade (sem autenticação JWT)
             Log.info("Chatbot GET (legacy) Session: " + session);
-            return chatbotUseCase.execute(session, prompt)
-                .onFailure().recoverWithMulti(e -> {
+            checkAdmission();
+            return toEvents(onQueued -> metricsService.trackRequest(CHATBOT_PIPELINE,
+                rateLimitService.acquire(CHATBOT_PIPELINE, session)
+                .onItem().transformToMulti(ignored -> chatbotUseCase.execute(session, prompt, onQueued))
+                .onFailure(e -> !(e instanceof OverloadedException)).recoverWithMulti(e -> {
                     Log.error("Erro ao processar chatbot com sessão", e);
                     String errorMessage = e.getMessage() != null ? e.getMessage() : "Erro desconhecido";
                     return Multi.createFrom().item("data: Erro: " + errorMessage + "\n\n");
-                });
+                })));
         } else {
-            return Multi.createFrom().item("data: Erro: Deve fornecer session ou userId+conversationId\n\n");
+            return toEvents(onQueued -> Multi.createFrom().item("data: Erro: Deve fornecer session ou userId+conversationId\n\n"));
         }
     }
 
     @GET
     @Path("/ask")
     @Produces(MediaType.SERVER_SENT_EVENTS)
-    public Multi<String> askModel(
+    @WithSpan("RagController.askModel")
+    public Multi<OutboundSseEvent> askModel(
             @QueryParam("session") @NotBlank String session,
             @QueryParam("prompt") @NotBlank String prompt) {
         Log.info("Ask Model Session: " + session);
-        return askQuestionUseCase.execute(session, prompt);
+        checkAdmission();
+        return toEvents(onQueued -> metricsService.trackRequest(ASK_PIPELINE,
+            rateLimitService.acquire(ASK_PIPELINE, session)
+                .onItem().transformToMulti(ignored -> askQuestionUseCase.execute(session, prompt, onQueued))));
     }
 
     @GET
@@ -325,5 +514,13 @@ public class RagController {
         
         @NotBlank
         public String prompt;
+
+        // Opcional: restringe o contexto, ex. {"course": "vue"}; outras chaves além de
+        // RagQuery.FILTER_KEYS são rejeitadas
+        public Map<String, String> filters = Map.of();
+
+        // Opcional: o cliente retoma a resposta com /chatbot/resume se a conexão cair;
+        // sem isso a geração é cancelada assim que ele se desconecta
+        public boolean resumable;
     }
 }
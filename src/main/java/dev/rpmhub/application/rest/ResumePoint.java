@@ -0,0 +1,52 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.application.rest;
+
+import jakarta.ws.rs.BadRequestException;
+
+/**
+ * Position of a client in a chatbot answer, sent as the id of each SSE event
+ * ("&lt;message id&gt;:&lt;characters received&gt;") and sent back as the
+ * Last-Event-ID header to resume the answer.
+ *
+ * @param messageId the id of the assistant message
+ * @param offset    the number of characters of the answer received
+ */
+record ResumePoint(String messageId, int offset) {
+
+    /**
+     * Parses a Last-Event-ID header.
+     *
+     * @param lastEventId the header value
+     * @return the position it holds
+     * @throws BadRequestException if the header is missing or malformed
+     */
+    static ResumePoint parse(String lastEventId) {
+        int separator = lastEventId == null ? -1 : lastEventId.lastIndexOf(':');
+        if (separator <= 0) {
+            throw new BadRequestException("Last-Event-ID inválido");
+        }
+        int offset;
+        try {
+            offset = Integer.parseInt(lastEventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Last-Event-ID inválido");
+        }
+        if (offset < 0) {
+            throw new BadRequestException("Last-Event-ID inválido");
+        }
+        return new ResumePoint(lastEventId.substring(0, separator), offset);
+    }
+
+    /**
+     * @return the SSE event id of this position
+     */
+    String eventId() {
+        return messageId + ":" + offset;
+    }
+}
@@ -7,33 +7,57 @@
  */
 package dev.rpmhub.domain.model;
 
+import java.util.function.IntConsumer;
+
 import lombok.Getter;
 
 /**
- * Represents a request to an AI service, including session ID, prompt,
- * context, and optional conversation history.
+ * Represents a request to an AI service, including session ID, prompt and
+ * context. The conversation history is read by the AI service from the chat
+ * memory of the session.
  */
 @Getter
 public class AIRequest {
 
+    /**
+     * Listener used when the caller does not follow the queue position.
+     */
+    private static final IntConsumer IGNORE_QUEUE = position -> {
+    };
+
     private final String session;
+    private final String userId;
     private final String prompt;
     private final String context;
-    private final String history;
+
+    /**
+     * Receives the queue position while the request waits for an LLM slot.
+     */
+    private final IntConsumer queueListener;
+
+    /**
+     * Top similarity score of the retrieval that built the context, or NaN
+     * when there was no retrieval or it skipped the vector search.
+     */
+    private final double score;
 
     public AIRequest(String session, String prompt, String context) {
-        this.session = session;
-        this.prompt = prompt;
-        this.context = context;
-        this.history = "";
+        this(session, session, prompt, context, IGNORE_QUEUE);
+    }
+
+    public AIRequest(String session, String userId, String prompt, String context,
+            IntConsumer queueListener) {
+        this(session, userId, prompt, context, queueListener, Double.NaN);
     }
 
-    public AIRequest(String session, String prompt, String context,
-            String history) {
+    public AIRequest(String session, String userId, String prompt, String context,
+            IntConsumer queueListener, double score) {
         this.session = session;
+        this.userId = userId;
         this.prompt = prompt;
         this.context = context;
-        this.history = history;
+        this.queueListener = queueListener != null ? queueListener : IGNORE_QUEUE;
+        this.score = score;
     }
 
 }
@@ -58,6 +58,11 @@ public class ChatMessage {
     @Column(nullable = false)
     private LocalDateTime timestamp;
 
+    // Respostas do assistente são salvas em partes enquanto são geradas
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private MessageStatus status = MessageStatus.COMPLETE;
+
     public ChatMessage() {
         this.timestamp = LocalDateTime.now();
     }
@@ -89,4 +94,13 @@ public class ChatMessage {
         USER, ASSISTANT, SYSTEM
     }
 
+    /**
+     * STREAMING while the answer is being generated and saved in
+     * checkpoints, COMPLETE once it is whole, ABORTED when its generation
+     * failed or was cancelled and only part of it was saved.
+     */
+    public enum MessageStatus {
+        STREAMING, COMPLETE, ABORTED
+    }
+
 }
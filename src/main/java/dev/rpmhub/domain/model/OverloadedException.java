@@ -0,0 +1,27 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.domain.model;
+
+import lombok.Getter;
+
+/**
+ * Signals that a request was rejected because the service is at capacity.
+ * The client should retry after the suggested delay.
+ */
+@Getter
+public class OverloadedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public OverloadedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -8,21 +8,60 @@
 
 package dev.rpmhub.domain.model;
 
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
 import lombok.Getter;
 
 /**
  * Represents a query for a RAG (Retrieval-Augmented Generation) system.
+ *
+ * Filters restrict the search to chunks whose metadata has the given values,
+ * e.g. {@code course=vue} or {@code file=instancia.pdf}. Supported keys are
+ * listed in {@link #FILTER_KEYS}; a query with any other key is rejected, so
+ * that a client cannot filter on internal metadata such as the index
+ * generation.
  */
 @Getter
 public class RagQuery {
+
+    /**
+     * Chunk metadata that can be used in filters.
+     */
+    public static final Set<String> FILTER_KEYS = Set.of("course", "document_id", "file", "page", "section");
+
     private final String query;
     private final int maxResults;
     private final double minScore;
+    private final int maxContextTokens;
+    private final Map<String, String> filters;
 
     public RagQuery(String query, int maxResults, double minScore) {
+        this(query, maxResults, minScore, Integer.MAX_VALUE);
+    }
+
+    public RagQuery(String query, int maxResults, double minScore, int maxContextTokens) {
+        this(query, maxResults, minScore, maxContextTokens, Map.of());
+    }
+
+    /**
+     * @throws IllegalArgumentException when a filter key is not in
+     *                                  {@link #FILTER_KEYS}
+     */
+    public RagQuery(String query, int maxResults, double minScore, int maxContextTokens,
+            Map<String, String> filters) {
         this.query = query;
         this.maxResults = maxResults;
         this.minScore = minScore;
+        this.maxContextTokens = maxContextTokens;
+        this.filters = filters == null ? Map.of() : Map.copyOf(filters);
+        for (String key : this.filters.keySet()) {
+            if (!FILTER_KEYS.contains(key)) {
+                throw new IllegalArgumentException("Filtro não suportado: " + key + " (use "
+                        + String.join(", ", new TreeSet<>(FILTER_KEYS)) + ")");
+            }
+        }
     }
 
 }
@@ -19,6 +19,10 @@ import lombok.Getter;
 public class RagResponse {
     private final String query;
     private final List<String> contexts;
+
+    /**
+     * Top similarity score of the vector search, or NaN when it was skipped.
+     */
     private final double score;
 
     public RagResponse(String query, List<String> contexts, double score) {
@@ -35,4 +39,13 @@ public class RagResponse {
     public String getFirstContext() {
         return contexts.isEmpty() ? "" : contexts.get(0);
     }
+
+    /**
+     * Gets all contexts, most relevant first, separated by blank lines.
+     *
+     * @return the joined contexts or an empty string
+     */
+    public String getJoinedContext() {
+        return String.join("\n\n", contexts);
+    }
 }
@@ -0,0 +1,22 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.domain.model;
+
+/**
+ * Signals that a client exceeded its request rate for an endpoint. Handled
+ * like {@link OverloadedException}: the client should retry after the
+ * suggested delay.
+ */
+public class RateLimitExceededException extends OverloadedException {
+
+    private static final long serialVersionUID = 1L;
+
+    public RateLimitExceededException(String message, long retryAfterSeconds) {
+        super(message, retryAfterSeconds);
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.domain.port;
+
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+import io.smallrye.mutiny.Multi;
+
+/**
+ * Port for bounding the number of concurrent LLM generations. Requests above
+ * the limit wait in a bounded queue that is served fairly across users.
+ */
+public interface AdmissionService {
+
+    /**
+     * Runs a generation once a slot is available. The slot is released when
+     * the generation terminates or is cancelled.
+     *
+     * @param key        the fairness key (usually the user ID)
+     * @param onQueued   receives the 1-based queue position while waiting
+     * @param generation supplies the generation to run
+     * @return a Multi emitting the generation, or failing with
+     *         {@link dev.rpmhub.domain.model.OverloadedException} if the
+     *         queue is full
+     */
+    Multi<String> admit(String key, IntConsumer onQueued, Supplier<Multi<String>> generation);
+
+    /**
+     * Checks whether new requests would be rejected, so callers can fail fast
+     * before doing any work.
+     *
+     * @return true if the queue is full
+     */
+    boolean isSaturated();
+
+    /**
+     * Estimates how long a rejected client should wait before retrying.
+     *
+     * @return the delay in seconds
+     */
+    long retryAfterSeconds();
+}
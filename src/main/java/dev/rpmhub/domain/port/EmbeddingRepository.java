@@ -7,6 +7,9 @@
  */
 package dev.rpmhub.domain.port;
 
+import java.nio.file.Path;
+import java.util.Collection;
+
 import dev.rpmhub.domain.model.RagQuery;
 import dev.rpmhub.domain.model.RagResponse;
 import io.smallrye.mutiny.Multi;
@@ -27,4 +30,13 @@ public interface EmbeddingRepository {
      * @param directoryPath the path to the directory containing the documents
      */
     void ingestDocuments(String directoryPath);
+
+    /**
+     * Re-ingests only the given files of the directory, removing the chunks
+     * of files that no longer exist.
+     *
+     * @param directoryPath the path to the directory containing the documents
+     * @param changed       the created, modified or deleted paths
+     */
+    void ingestFiles(String directoryPath, Collection<Path> changed);
 }
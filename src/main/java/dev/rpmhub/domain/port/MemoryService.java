@@ -28,6 +28,27 @@ public interface MemoryService {
      */
     Uni<Void> saveMessage(ChatMessage message);
 
+    /**
+     * Appends content to a saved message and, when given, sets its status,
+     * in a single update. Used to save an answer in checkpoints while it is
+     * generated. Messages of a conversation are updated in the database,
+     * messages of a session (backward compatibility) in its Redis memory.
+     *
+     * @param message the saved message
+     * @param content the content to append
+     * @param status  the new status, or null to keep the current one
+     * @return a Uni that completes when the message is updated
+     */
+    Uni<Void> appendMessage(ChatMessage message, String content, ChatMessage.MessageStatus status);
+
+    /**
+     * Retrieves a saved message.
+     *
+     * @param messageId the message id
+     * @return a Uni containing the message, or null if not found
+     */
+    Uni<ChatMessage> getMessage(String messageId);
+
     /**
      * Retrieves the conversation memory for a specific session.
      * Tries Redis cache first, falls back to MySQL if not found.
@@ -0,0 +1,74 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.domain.port;
+
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+
+/**
+ * Port for recording latency, throughput and cache metrics of the RAG
+ * pipeline.
+ */
+public interface MetricsService {
+
+    /**
+     * Records the duration of a pipeline stage.
+     *
+     * @param pipeline   the pipeline name (e.g. chatbot, ask)
+     * @param stage      the stage name (e.g. embedding, history_load)
+     * @param startNanos the value of {@link System#nanoTime()} when the stage started
+     */
+    void recordStage(String pipeline, String stage, long startNanos);
+
+    /**
+     * Times a reactive stage from subscription until it terminates.
+     *
+     * @param pipeline  the pipeline name
+     * @param stage     the stage name
+     * @param operation the operation to time
+     * @return a Uni emitting the same result as the operation
+     */
+    <T> Uni<T> timeStage(String pipeline, String stage, Uni<T> operation);
+
+    /**
+     * Times a streamed LLM generation, recording the time to the first token
+     * and the total generation time as pipeline stages.
+     *
+     * @param pipeline   the pipeline name
+     * @param generation the token stream
+     * @return a Multi emitting the same tokens as the generation
+     */
+    Multi<String> timeGeneration(String pipeline, Multi<String> generation);
+
+    /**
+     * Records a cache lookup.
+     *
+     * @param cache the cache name
+     * @param hit   true if the lookup was served by the cache
+     */
+    void recordCacheAccess(String cache, boolean hit);
+
+    /**
+     * Records a call to a backend (e.g. redis, mysql). Calls are also
+     * accumulated per request when made inside a tracked request.
+     *
+     * @param backend   the backend name
+     * @param operation the operation name
+     */
+    void recordBackendCall(String backend, String operation);
+
+    /**
+     * Tracks a request so the number of backend calls made while it is
+     * processed is recorded when it terminates.
+     *
+     * @param pipeline the pipeline name
+     * @param request  the request stream
+     * @return a Multi emitting the same items as the request
+     */
+    <T> Multi<T> trackRequest(String pipeline, Multi<T> request);
+}
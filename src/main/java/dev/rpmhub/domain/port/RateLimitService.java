@@ -0,0 +1,26 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.domain.port;
+
+import io.smallrye.mutiny.Uni;
+
+/**
+ * Port for limiting the request rate of each client per endpoint.
+ */
+public interface RateLimitService {
+
+    /**
+     * Takes one request from the client's budget for the endpoint.
+     *
+     * @param endpoint the endpoint name (e.g. chatbot, ask)
+     * @param key      the client key (user ID or session)
+     * @return a Uni completing when the request is allowed, or failing with
+     *         {@link dev.rpmhub.domain.model.RateLimitExceededException}
+     */
+    Uni<Void> acquire(String endpoint, String key);
+}
@@ -7,12 +7,21 @@
  */
 package dev.rpmhub.domain.usecase;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow.Subscription;
+import java.util.function.IntConsumer;
+
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import dev.rpmhub.domain.model.AIRequest;
 import dev.rpmhub.domain.model.RagQuery;
 import dev.rpmhub.domain.port.AIService;
 import dev.rpmhub.domain.port.EmbeddingRepository;
+import dev.rpmhub.domain.port.MetricsService;
+import io.opentelemetry.instrumentation.annotations.WithSpan;
 import io.smallrye.mutiny.Multi;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -20,21 +29,46 @@ import jakarta.inject.Inject;
 /**
  * Use case for asking a question and getting a response using RAG
  * (Retrieval-Augmented Generation).
+ *
+ * Identical questions asked concurrently are coalesced: the first request
+ * runs the pipeline and the others subscribe to the same stream, receiving
+ * the tokens already emitted followed by the rest of the response. The
+ * generation is cancelled when every request following it has gone away.
  */
 @ApplicationScoped
 public class AskQuestionUseCase {
 
+    private static final String PIPELINE = "ask";
+    private static final String SINGLE_FLIGHT = "ask_single_flight";
+
     private final EmbeddingRepository embeddingRepository;
     private final AIService aiService;
+    private final MetricsService metricsService;
+    private final int topK;
+    private final double minScore;
+    private final int contextTokenBudget;
+
+    /**
+     * Generations in progress indexed by normalized prompt.
+     */
+    private final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
 
     @ConfigProperty(name = "rag.context", defaultValue = "")
     private static final String DEFAULT_CONTEXT = "";
 
     @Inject
     public AskQuestionUseCase(EmbeddingRepository embeddingRepository,
-            AIService aiService) {
+            AIService aiService,
+            MetricsService metricsService,
+            @ConfigProperty(name = "rag.retrieval.top-k", defaultValue = "4") int topK,
+            @ConfigProperty(name = "rag.retrieval.min-score", defaultValue = "0.6") double minScore,
+            @ConfigProperty(name = "rag.retrieval.context-token-budget", defaultValue = "1500") int contextTokenBudget) {
         this.embeddingRepository = embeddingRepository;
         this.aiService = aiService;
+        this.metricsService = metricsService;
+        this.topK = topK;
+        this.minScore = minScore;
+        this.contextTokenBudget = contextTokenBudget;
     }
 
     /**
@@ -45,18 +79,143 @@ public class AskQuestionUseCase {
      * @return a Multi emitting the response
      */
     public Multi<String> execute(String session, String prompt) {
-        RagQuery query = new RagQuery(prompt, 1, 0.7);
+        return execute(session, prompt, position -> {
+        });
+    }
+
+    /**
+     * Executes the use case to ask a question and get a response.
+     *
+     * @param session  the session ID
+     * @param prompt   the question prompt
+     * @param onQueued receives the queue position while waiting for the model
+     * @return a Multi emitting the response
+     */
+    @WithSpan("AskQuestionUseCase.execute")
+    public Multi<String> execute(String session, String prompt, IntConsumer onQueued) {
+        String key = normalize(prompt);
+        return Multi.createFrom().deferred(() -> {
+            Flight flight = inFlight.computeIfAbsent(key, k -> new Flight(k, session, prompt));
+            int requests = flight.addListener(onQueued);
+            while (requests == 0) {
+                // Cancelled by its last request just before: start another one
+                inFlight.remove(key, flight);
+                flight = inFlight.computeIfAbsent(key, k -> new Flight(k, session, prompt));
+                requests = flight.addListener(onQueued);
+            }
+            metricsService.recordCacheAccess(SINGLE_FLIGHT, requests > 1);
+            Flight joined = flight;
+            return flight.stream.onTermination().invoke(() -> joined.removeListener(onQueued));
+        });
+    }
+
+    /**
+     * Retrieves the context and generates the response for a question.
+     */
+    private Multi<String> generate(String session, String prompt, IntConsumer onQueued) {
+        RagQuery query = new RagQuery(prompt, topK, minScore, contextTokenBudget);
+        long retrievalStart = System.nanoTime();
 
         return embeddingRepository.searchChunks(query)
+                .onItem().invoke(ragResponse -> metricsService.recordStage(PIPELINE, "retrieval", retrievalStart))
                 .flatMap(ragResponse -> {
                     String context = ragResponse.getContexts().isEmpty()
                             ? DEFAULT_CONTEXT
-                            : ragResponse.getFirstContext();
+                            : ragResponse.getJoinedContext();
 
-                    AIRequest aiRequest = new AIRequest(session, prompt, context);
-                    return aiService.generateResponse(aiRequest);
+                    AIRequest aiRequest = new AIRequest(session, session, prompt, context, onQueued,
+                            ragResponse.getScore());
+                    return metricsService.timeGeneration(PIPELINE, aiService.generateResponse(aiRequest));
                 })
                 .group().intoLists().of(20)
                 .onItem().transform(list -> String.join("", list));
     }
+
+    private static String normalize(String prompt) {
+        return prompt.strip().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * A generation shared by every request with the same prompt. The stream
+     * is cached, so it runs once and late subscribers get a replay of the
+     * tokens already emitted. Its requests are counted: when the last one
+     * leaves before the end, the generation is cancelled and the flight is
+     * removed, so a later request starts a new one.
+     */
+    private final class Flight {
+
+        private final String key;
+        private final List<IntConsumer> listeners = new CopyOnWriteArrayList<>();
+        private final Multi<String> stream;
+        private int requests;
+        private int following;
+        private boolean cancelled;
+        private boolean done;
+        private Subscription upstream;
+        private volatile int lastPosition;
+
+        private Flight(String key, String session, String prompt) {
+            this.key = key;
+            this.stream = generate(session, prompt, this::notifyQueued)
+                    .onSubscription().invoke(this::started)
+                    .onItem().invoke(item -> lastPosition = 0)
+                    .onTermination().invoke(this::finished)
+                    .cache();
+        }
+
+        /**
+         * Registers a request and its queue listener.
+         *
+         * @return the number of requests of the flight, this one included,
+         *         or 0 if it was cancelled and cannot be joined
+         */
+        private synchronized int addListener(IntConsumer listener) {
+            if (cancelled) {
+                return 0;
+            }
+            requests++;
+            following++;
+            listeners.add(listener);
+            if (lastPosition > 0) {
+                listener.accept(lastPosition);
+            }
+            return requests;
+        }
+
+        /**
+         * Unregisters a request that received the whole response or went
+         * away, and cancels the generation if it was the last one following
+         * it.
+         */
+        private synchronized void removeListener(IntConsumer listener) {
+            listeners.remove(listener);
+            if (--following > 0 || done || cancelled) {
+                return;
+            }
+            cancelled = true;
+            inFlight.remove(key, this);
+            if (upstream != null) {
+                upstream.cancel();
+            }
+        }
+
+        private synchronized void started(Subscription subscription) {
+            upstream = subscription;
+            if (cancelled) {
+                subscription.cancel();
+            }
+        }
+
+        private synchronized void finished() {
+            done = true;
+            inFlight.remove(key, this);
+        }
+
+        private synchronized void notifyQueued(int position) {
+            lastPosition = position;
+            for (IntConsumer listener : listeners) {
+                listener.accept(position);
+            }
+        }
+    }
 }
@@ -7,16 +7,31 @@
  */
 package dev.rpmhub.domain.usecase;
 
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import dev.rpmhub.domain.model.AIRequest;
 import dev.rpmhub.domain.model.ChatMessage;
 import dev.rpmhub.domain.model.RagQuery;
+import dev.rpmhub.domain.model.RagResponse;
 import dev.rpmhub.domain.port.AIService;
 import dev.rpmhub.domain.port.EmbeddingRepository;
 import dev.rpmhub.domain.port.MemoryService;
+import dev.rpmhub.domain.port.MetricsService;
+import io.opentelemetry.instrumentation.annotations.WithSpan;
 import io.quarkus.logging.Log;
 import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
@@ -27,6 +42,16 @@ import jakarta.inject.Inject;
 @ApplicationScoped
 public class ChatbotUseCase {
 
+    /**
+     * Pipeline name used to tag the stage metrics.
+     */
+    private static final String PIPELINE = "chatbot";
+
+    /**
+     * Number of conversations whose prefetched retrieval is kept.
+     */
+    private static final int PREFETCHED_CONVERSATIONS = 1024;
+
     /**
      * Repository for managing embeddings.
      */
@@ -42,6 +67,86 @@ public class ChatbotUseCase {
      */
     private final MemoryService memoryService;
 
+    /**
+     * Service for recording pipeline metrics.
+     */
+    private final MetricsService metricsService;
+
+    /**
+     * Number of chunks retrieved per question.
+     */
+    private final int topK;
+
+    /**
+     * Minimum relevance score of a retrieved chunk.
+     */
+    private final double minScore;
+
+    /**
+     * Maximum number of tokens of retrieved context put in the prompt.
+     */
+    private final int contextTokenBudget;
+
+    /**
+     * Tokens of an answer generated between two checkpoints.
+     */
+    private final int checkpointTokens;
+
+    /**
+     * Maximum time between two checkpoints of an answer.
+     */
+    private final long checkpointNanos;
+
+    /**
+     * How long the answer of a resumable client is generated after its last
+     * client disconnected.
+     */
+    private final Duration resumeGrace;
+
+    /**
+     * Answers being generated, by assistant message id.
+     */
+    private final Map<String, ResponseStream> streams = new ConcurrentHashMap<>();
+
+    /**
+     * How long a prefetched retrieval can be used.
+     */
+    private final long prefetchTtlNanos;
+
+    /**
+     * Minimum word overlap (Jaccard) between the prefetched and the sent
+     * prompt for the prefetched retrieval to be used.
+     */
+    private final double prefetchMinSimilarity;
+
+    /**
+     * Minimum time between two prefetches of a conversation.
+     */
+    private final long prefetchDebounceNanos;
+
+    /**
+     * Retrieval started while the user was typing, by conversation, guarded
+     * by itself.
+     */
+    private final Map<String, Prefetch> prefetched = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Prefetch> eldest) {
+            return size() > PREFETCHED_CONVERSATIONS;
+        }
+    };
+
+    /**
+     * A retrieval started before the prompt was sent.
+     *
+     * @param words     the normalized words of the partial prompt
+     * @param filters   the chunk metadata filters of the retrieval
+     * @param response  the retrieval, cached once done
+     * @param startedAt when the retrieval started, in System.nanoTime()
+     */
+    private record Prefetch(Set<String> words, Map<String, String> filters, Uni<RagResponse> response,
+            long startedAt) {
+    }
+
     /**
      * Default context to use when no context is found.
      */
@@ -49,10 +154,102 @@ public class ChatbotUseCase {
     private static final String DEFAULT_CONTEXT = "";
 
     @Inject
-    public ChatbotUseCase(EmbeddingRepository embeddingRepository, AIService aiService, MemoryService memoryService) {
+    public ChatbotUseCase(EmbeddingRepository embeddingRepository, AIService aiService, MemoryService memoryService,
+            MetricsService metricsService,
+            @ConfigProperty(name = "rag.retrieval.top-k", defaultValue = "4") int topK,
+            @ConfigProperty(name = "rag.retrieval.min-score", defaultValue = "0.6") double minScore,
+            @ConfigProperty(name = "rag.retrieval.context-token-budget", defaultValue = "1500") int contextTokenBudget,
+            @ConfigProperty(name = "rag.chat.checkpoint.tokens", defaultValue = "32") int checkpointTokens,
+            @ConfigProperty(name = "rag.chat.checkpoint.interval", defaultValue = "1s") Duration checkpointInterval,
+            @ConfigProperty(name = "rag.chat.resume-grace", defaultValue = "10s") Duration resumeGrace,
+            @ConfigProperty(name = "rag.prefetch.ttl", defaultValue = "30s") Duration prefetchTtl,
+            @ConfigProperty(name = "rag.prefetch.min-similarity", defaultValue = "0.8") double prefetchMinSimilarity,
+            @ConfigProperty(name = "rag.prefetch.debounce", defaultValue = "500ms") Duration prefetchDebounce) {
         this.embeddingRepository = embeddingRepository;
         this.aiService = aiService;
         this.memoryService = memoryService;
+        this.metricsService = metricsService;
+        this.topK = topK;
+        this.minScore = minScore;
+        this.contextTokenBudget = contextTokenBudget;
+        this.checkpointTokens = Math.max(1, checkpointTokens);
+        this.checkpointNanos = checkpointInterval.toNanos();
+        this.resumeGrace = resumeGrace;
+        this.prefetchTtlNanos = prefetchTtl.toNanos();
+        this.prefetchMinSimilarity = prefetchMinSimilarity;
+        this.prefetchDebounceNanos = prefetchDebounce.toNanos();
+    }
+
+    /**
+     * Starts the retrieval of a prompt the user is still typing, so that it is
+     * done or under way when the prompt is sent. Replaces the previous
+     * prefetch of the conversation, unless it started less than
+     * rag.prefetch.debounce ago or its prompt has nearly the same words.
+     *
+     * @param conversationId the conversation ID
+     * @param prompt         the partial prompt
+     * @param filters        chunk metadata filters, e.g. course (see RagQuery)
+     * @return false if the prefetch was skipped
+     */
+    public boolean prefetch(String conversationId, String prompt, Map<String, String> filters) {
+        RagQuery query = new RagQuery(prompt, topK, minScore, contextTokenBudget, filters);
+        Set<String> words = words(prompt);
+        long now = System.nanoTime();
+        Uni<RagResponse> response;
+        synchronized (prefetched) {
+            Prefetch previous = prefetched.get(conversationId);
+            if (previous != null && previous.filters().equals(query.getFilters())
+                    && (now - previous.startedAt() < prefetchDebounceNanos
+                            || now - previous.startedAt() <= prefetchTtlNanos
+                                    && similarity(previous.words(), words) >= prefetchMinSimilarity)) {
+                Log.debug("Pré-busca repetida ignorada para a conversa: " + conversationId);
+                return false;
+            }
+            response = embeddingRepository.searchChunks(query).toUni().memoize().indefinitely();
+            prefetched.put(conversationId, new Prefetch(words, query.getFilters(), response, now));
+        }
+        response.subscribe().with(
+                ignored -> Log.debug("Contexto pré-buscado para a conversa: " + conversationId),
+                e -> Log.debug("Falha na pré-busca da conversa " + conversationId + ": " + e.getMessage()));
+        return true;
+    }
+
+    /**
+     * Retrieves the context of a sent prompt, reusing the prefetched
+     * retrieval of the conversation when it is recent, has the same filters
+     * and its prompt has nearly the same words.
+     */
+    private Multi<RagResponse> retrieve(String conversationId, RagQuery query) {
+        Prefetch prefetch;
+        synchronized (prefetched) {
+            prefetch = prefetched.remove(conversationId);
+        }
+        boolean hit = prefetch != null
+                && System.nanoTime() - prefetch.startedAt() <= prefetchTtlNanos
+                && prefetch.filters().equals(query.getFilters())
+                && similarity(prefetch.words(), words(query.getQuery())) >= prefetchMinSimilarity;
+        metricsService.recordCacheAccess("retrieval_prefetch", hit);
+        if (!hit) {
+            return embeddingRepository.searchChunks(query);
+        }
+        return prefetch.response().toMulti()
+                .onFailure().recoverWithMulti(e -> embeddingRepository.searchChunks(query));
+    }
+
+    private static Set<String> words(String text) {
+        Set<String> words = new HashSet<>(Arrays.asList(text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")));
+        words.remove("");
+        return words;
+    }
+
+    private static double similarity(Set<String> a, Set<String> b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0.0;
+        }
+        Set<String> union = new HashSet<>(a);
+        union.addAll(b);
+        long shared = a.stream().filter(b::contains).count();
+        return (double) shared / union.size();
     }
 
     /**
@@ -63,37 +260,47 @@ public class ChatbotUseCase {
      * @return a Multi emitting the chatbot response
      */
     public Multi<String> execute(String session, String prompt) {
-        Log.info("Executing ChatbotUseCase for session: " + session + " with prompt: " + prompt);
+        return execute(session, prompt, position -> {
+        });
+    }
+
+    /**
+     * Executes the use case to interact with the chatbot (backward compatibility).
+     * The answer is saved in checkpoints in the memory of the session, like
+     * the answers of a conversation.
+     *
+     * @param session  the session ID
+     * @param prompt   the user prompt
+     * @param onQueued receives the queue position while waiting for the model
+     * @return a Multi emitting the chatbot response
+     */
+    @WithSpan("ChatbotUseCase.execute")
+    public Multi<String> execute(String session, String prompt, IntConsumer onQueued) {
+        Log.debug("Executing ChatbotUseCase for session: " + session + " with prompt: " + prompt);
         // Save user message to memory
         ChatMessage userMessage = new ChatMessage(session, prompt, ChatMessage.MessageType.USER);
 
-        return memoryService.saveMessage(userMessage)
+        return metricsService.timeStage(PIPELINE, "persist_user_message", memoryService.saveMessage(userMessage))
                 .onItem().invoke(() -> Log.info("Saved user message for session: " + session))
                 .onItem().transformToMulti(ignored -> {
-                    RagQuery query = new RagQuery(prompt, 1, 0.7);
+                    RagQuery query = new RagQuery(prompt, topK, minScore, contextTokenBudget);
+                    long retrievalStart = System.nanoTime();
 
                     return embeddingRepository.searchChunks(query)
+                            .onItem().invoke(ragResponse -> metricsService.recordStage(PIPELINE, "retrieval",
+                                    retrievalStart))
                             .flatMap(ragResponse -> {
                                 String context = ragResponse.getContexts().isEmpty()
                                         ? DEFAULT_CONTEXT
-                                        : ragResponse.getFirstContext();
-
-                                Log.info("Context: " + context);
-
-                                // Get conversation history for context
-                                return memoryService.getHistory(session)
-                                        .onItem().transformToMulti(history -> {
-                                            AIRequest aiRequest = new AIRequest(session, prompt, context, history);
-                                            return aiService.generateContextualResponse(aiRequest)
-                                                    .group().intoLists().of(20)
-                                                    .onItem().transform(list -> String.join("", list))
-                                                    .onItem().call(response -> {
-                                                        // Save assistant response to memory
-                                                        ChatMessage assistantMessage = new ChatMessage(session,
-                                                                response,
-                                                                ChatMessage.MessageType.ASSISTANT);
-                                                        return memoryService.saveMessage(assistantMessage);
-                                                    });
+                                        : ragResponse.getJoinedContext();
+
+                                Log.debug("Context: " + context);
+
+                                // The conversation history is read by the AI service
+                                // from the chat memory of the session
+                                AIRequest aiRequest = new AIRequest(session, session, prompt, context, onQueued);
+                                return answer(new ChatMessage(session, "", ChatMessage.MessageType.ASSISTANT),
+                                        aiRequest, Duration.ZERO, messageId -> {
                                         });
                             });
                 });
@@ -108,43 +315,194 @@ public class ChatbotUseCase {
      * @return a Multi emitting the chatbot response
      */
     public Multi<String> execute(String userId, String conversationId, String prompt) {
-        Log.info("Executing ChatbotUseCase for user: " + userId + ", conversation: " + conversationId + " with prompt: " + prompt);
+        return execute(userId, conversationId, prompt, position -> {
+        });
+    }
+
+    /**
+     * Executes the use case to interact with the chatbot with user and conversation.
+     *
+     * @param userId the user ID
+     * @param conversationId the conversation ID
+     * @param prompt  the user prompt
+     * @param onQueued receives the queue position while waiting for the model
+     * @return a Multi emitting the chatbot response
+     */
+    public Multi<String> execute(String userId, String conversationId, String prompt, IntConsumer onQueued) {
+        return execute(userId, conversationId, prompt, Map.of(), onQueued);
+    }
+
+    /**
+     * Executes the use case to interact with the chatbot with user and
+     * conversation, retrieving context only from chunks matching the filters.
+     *
+     * @param userId the user ID
+     * @param conversationId the conversation ID
+     * @param prompt  the user prompt
+     * @param filters chunk metadata filters, e.g. course (see RagQuery)
+     * @param onQueued receives the queue position while waiting for the model
+     * @return a Multi emitting the chatbot response
+     */
+    public Multi<String> execute(String userId, String conversationId, String prompt, Map<String, String> filters,
+            IntConsumer onQueued) {
+        return execute(userId, conversationId, prompt, filters, false, onQueued, messageId -> {
+        });
+    }
+
+    /**
+     * Executes the use case to interact with the chatbot with user and
+     * conversation, retrieving context only from chunks matching the filters.
+     *
+     * The assistant message is saved when the generation starts and its
+     * content is appended in checkpoints, every rag.chat.checkpoint.tokens
+     * tokens or rag.chat.checkpoint.interval, until it is complete. The
+     * generation does not depend on the returned Multi: a resumable client
+     * that disconnects can follow it again with resume() within
+     * rag.chat.resume-grace. After that, or as soon as a client that is not
+     * resumable disconnects, the generation is cancelled and the partial
+     * answer is saved as ABORTED.
+     *
+     * @param userId the user ID
+     * @param conversationId the conversation ID
+     * @param prompt  the user prompt
+     * @param filters chunk metadata filters, e.g. course (see RagQuery)
+     * @param resumable whether the client resumes the answer after a disconnect
+     * @param onQueued receives the queue position while waiting for the model
+     * @param onStarted receives the id of the assistant message before its first token
+     * @return a Multi emitting the chatbot response
+     */
+    @WithSpan("ChatbotUseCase.execute")
+    public Multi<String> execute(String userId, String conversationId, String prompt, Map<String, String> filters,
+            boolean resumable, IntConsumer onQueued, Consumer<String> onStarted) {
+        Log.debug("Executing ChatbotUseCase for user: " + userId + ", conversation: " + conversationId + " with prompt: " + prompt);
         // Save user message to memory
         ChatMessage userMessage = new ChatMessage(userId, conversationId, prompt, ChatMessage.MessageType.USER);
 
-        return memoryService.saveMessage(userMessage)
+        return metricsService.timeStage(PIPELINE, "persist_user_message", memoryService.saveMessage(userMessage))
                 .onItem().invoke(() -> Log.info("Saved user message for conversation: " + conversationId))
                 .onItem().transformToMulti(ignored -> {
-                    RagQuery query = new RagQuery(prompt, 1, 0.7);
+                    RagQuery query = new RagQuery(prompt, topK, minScore, contextTokenBudget, filters);
+                    long retrievalStart = System.nanoTime();
 
-                    return embeddingRepository.searchChunks(query)
+                    return retrieve(conversationId, query)
+                            .onItem().invoke(ragResponse -> metricsService.recordStage(PIPELINE, "retrieval",
+                                    retrievalStart))
                             .flatMap(ragResponse -> {
                                 String context = ragResponse.getContexts().isEmpty()
                                         ? DEFAULT_CONTEXT
-                                        : ragResponse.getFirstContext();
-
-                                Log.info("Context: " + context);
-
-                                // Get conversation history for context
-                                return memoryService.getHistory(userId, conversationId)
-                                        .onItem().transformToMulti(history -> {
-                                            AIRequest aiRequest = new AIRequest(conversationId, prompt, context, history);
-                                            return aiService.generateContextualResponse(aiRequest)
-                                                    .group().intoLists().of(20)
-                                                    .onItem().transform(list -> String.join("", list))
-                                                    .onItem().call(response -> {
-                                                        // Save assistant response to memory
-                                                        // Mensagens ASSISTANT não devem ter userId
-                                                        ChatMessage assistantMessage = new ChatMessage();
-                                                        assistantMessage.setConversationId(conversationId);
-                                                        assistantMessage.setSessionId(conversationId); // Para compatibilidade
-                                                        assistantMessage.setContent(response);
-                                                        assistantMessage.setType(ChatMessage.MessageType.ASSISTANT);
-                                                        assistantMessage.setUserId(null); // Mensagens do assistente não têm userId
-                                                        return memoryService.saveMessage(assistantMessage);
-                                                    });
-                                        });
+                                        : ragResponse.getJoinedContext();
+
+                                Log.debug("Context: " + context);
+
+                                // The conversation history is read by the AI service
+                                // from the chat memory of the conversation
+                                AIRequest aiRequest = new AIRequest(conversationId, userId, prompt, context, onQueued,
+                                        ragResponse.getScore());
+
+                                // Mensagens ASSISTANT não devem ter userId
+                                ChatMessage assistantMessage = new ChatMessage();
+                                assistantMessage.setConversationId(conversationId);
+                                assistantMessage.setSessionId(conversationId); // Para compatibilidade
+                                assistantMessage.setContent("");
+                                assistantMessage.setType(ChatMessage.MessageType.ASSISTANT);
+                                assistantMessage.setUserId(null); // Mensagens do assistente não têm userId
+                                return answer(assistantMessage, aiRequest, resumable ? resumeGrace : Duration.ZERO,
+                                        onStarted);
                             });
                 });
     }
+
+    /**
+     * Saves the empty assistant message and generates the answer into it.
+     *
+     * @param assistantMessage the assistant message, not yet saved
+     * @param aiRequest        the request with the retrieved context
+     * @param grace            how long the answer is generated without clients
+     * @param onStarted        receives the id of the saved message
+     * @return a Multi emitting the answer
+     */
+    private Multi<String> answer(ChatMessage assistantMessage, AIRequest aiRequest, Duration grace,
+            Consumer<String> onStarted) {
+        assistantMessage.setStatus(ChatMessage.MessageStatus.STREAMING);
+        return metricsService.timeStage(PIPELINE, "persist_response", memoryService.saveMessage(assistantMessage))
+                .onItem().transformToMulti(saved -> {
+                    onStarted.accept(assistantMessage.getId());
+                    return generate(assistantMessage, grace, metricsService.timeGeneration(PIPELINE,
+                            aiService.generateContextualResponse(aiRequest)));
+                });
+    }
+
+    /**
+     * Follows an answer again from the given number of characters: while it
+     * is being generated, the rest of its text and then its tokens as they
+     * come; afterwards, the rest of its saved content.
+     *
+     * @param message the saved assistant message
+     * @param offset  the number of characters the client already has
+     * @return a Multi emitting the rest of the answer
+     */
+    public Multi<String> resume(ChatMessage message, int offset) {
+        ResponseStream stream = streams.get(message.getId());
+        if (stream != null) {
+            return stream.follow(offset);
+        }
+        String content = message.getContent() == null ? "" : message.getContent();
+        return offset < content.length()
+                ? Multi.createFrom().item(content.substring(Math.max(0, offset)))
+                : Multi.createFrom().empty();
+    }
+
+    /**
+     * Runs a generation into the given saved message, saving it in
+     * checkpoints, and follows it from the start.
+     */
+    private Multi<String> generate(ChatMessage message, Duration grace, Multi<String> generation) {
+        String messageId = message.getId();
+        ResponseStream stream = new ResponseStream(message, grace, abandoned -> {
+            Log.info("Resposta " + messageId + " abandonada pelo cliente, geração cancelada");
+            finish(abandoned, ChatMessage.MessageStatus.ABORTED);
+        });
+        streams.put(messageId, stream);
+        stream.generating(generation.subscribe().with(
+                token -> {
+                    if (stream.append(token, checkpointTokens, checkpointNanos)) {
+                        checkpoint(stream, null);
+                    }
+                },
+                e -> {
+                    Log.error("Erro na geração da resposta " + messageId, e);
+                    stream.fail(e);
+                    finish(stream, ChatMessage.MessageStatus.ABORTED);
+                },
+                () -> {
+                    stream.complete();
+                    finish(stream, ChatMessage.MessageStatus.COMPLETE);
+                }));
+        return stream.follow(0);
+    }
+
+    /**
+     * Appends the text generated since the last checkpoint to the saved
+     * answer, once the previous checkpoints are written.
+     */
+    private Uni<Void> checkpoint(ResponseStream stream, ChatMessage.MessageStatus status) {
+        return stream.write(() -> {
+            String chunk = stream.unsaved();
+            if (chunk.isEmpty() && status == null) {
+                return Uni.createFrom().voidItem();
+            }
+            return metricsService.timeStage(PIPELINE, "persist_checkpoint",
+                    memoryService.appendMessage(stream.message(), chunk, status));
+        });
+    }
+
+    /**
+     * Writes the last checkpoint with the final status and stops tracking
+     * the answer, which is then resumed from its saved content.
+     */
+    private void finish(ResponseStream stream, ChatMessage.MessageStatus status) {
+        checkpoint(stream, status).subscribe().with(
+                ignored -> streams.remove(stream.messageId()),
+                e -> streams.remove(stream.messageId()));
+    }
 }
@@ -8,6 +8,7 @@
 package dev.rpmhub.domain.usecase;
 
 import dev.rpmhub.domain.port.EmbeddingRepository;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.event.Observes;
 import jakarta.inject.Inject;
@@ -15,9 +16,15 @@ import org.eclipse.microprofile.config.inject.ConfigProperty;
 import io.quarkus.logging.Log;
 import io.quarkus.runtime.StartupEvent;
 import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Use case for ingesting documents into the embedding repository.
+ *
+ * Ingestion runs in the background on a single thread, so startup is not
+ * blocked and searches keep using the active index generation until the new
+ * one is swapped in.
  */
 @ApplicationScoped
 public class IngestDocumentsUseCase {
@@ -27,6 +34,12 @@ public class IngestDocumentsUseCase {
      */
     private final EmbeddingRepository embeddingRepository;
 
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ingestion");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     @Inject
     public IngestDocumentsUseCase(EmbeddingRepository embeddingRepository) {
         this.embeddingRepository = embeddingRepository;
@@ -34,11 +47,18 @@ public class IngestDocumentsUseCase {
 
     public void execute(@Observes StartupEvent ev,
             @ConfigProperty(name = "rag.location") Path documents) {
-        try {
-            embeddingRepository.ingestDocuments(documents.toString());
-            Log.info("Documents ingested successfully");
-        } catch (Exception e) {
-            Log.error("Error ingesting documents", e);
-        }
+        executor.execute(() -> {
+            try {
+                embeddingRepository.ingestDocuments(documents.toString());
+                Log.info("Documents ingested successfully");
+            } catch (Exception e) {
+                Log.error("Error ingesting documents", e);
+            }
+        });
+    }
+
+    @PreDestroy
+    void close() {
+        executor.shutdownNow();
     }
 }
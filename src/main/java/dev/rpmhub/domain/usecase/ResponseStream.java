@@ -0,0 +1,246 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.domain.usecase;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import dev.rpmhub.domain.model.ChatMessage;
+import io.quarkus.logging.Log;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.Cancellable;
+import io.smallrye.mutiny.subscription.MultiEmitter;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+
+/**
+ * An answer being generated: the text so far, the clients following it and
+ * the part not yet saved. A client that reconnects follows it again from the
+ * number of characters it already received.
+ *
+ * Checkpoints are written one after the other, each with the text generated
+ * since the previous one, without holding back the tokens sent to the
+ * clients. They are written on the Vert.x context of the request that
+ * started the answer: the tokens arrive on the threads of the model client,
+ * where Hibernate Reactive cannot run.
+ *
+ * An answer nobody follows for a grace period is abandoned: its generation
+ * is cancelled, so the model stops producing tokens no one will read, and
+ * the abandonment is handled on the request context too. With no grace, it
+ * is abandoned as soon as its last client leaves.
+ */
+final class ResponseStream {
+
+    private final ChatMessage message;
+
+    /**
+     * Context of the request that started the answer, or null outside a
+     * request.
+     */
+    private final Context context = Vertx.currentContext();
+
+    private final StringBuilder text = new StringBuilder();
+
+    /**
+     * Clients following the answer; a client can leave while a token is
+     * being sent to it.
+     */
+    private final List<MultiEmitter<? super String>> followers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Characters already handed to a checkpoint.
+     */
+    private int saved;
+
+    /**
+     * Tokens generated since the last checkpoint.
+     */
+    private int unsavedTokens;
+
+    private long lastCheckpoint = System.nanoTime();
+    private boolean done;
+    private Throwable failure;
+
+    /**
+     * Last checkpoint written, so the next one starts after it.
+     */
+    private Uni<Void> writes = Uni.createFrom().voidItem();
+
+    private final Duration grace;
+    private final Consumer<ResponseStream> onAbandoned;
+
+    /**
+     * Stops the generation of the answer.
+     */
+    private Cancellable generation = () -> {
+    };
+
+    /**
+     * Pending abandonment, while nobody follows the answer.
+     */
+    private Cancellable abandonment;
+
+    /**
+     * @param message     the saved assistant message
+     * @param grace       how long the answer is generated without followers,
+     *                    or zero to abandon it once the last one leaves
+     * @param onAbandoned called once the answer is abandoned
+     */
+    ResponseStream(ChatMessage message, Duration grace, Consumer<ResponseStream> onAbandoned) {
+        this.message = message;
+        this.grace = grace;
+        this.onAbandoned = onAbandoned;
+    }
+
+    ChatMessage message() {
+        return message;
+    }
+
+    String messageId() {
+        return message.getId();
+    }
+
+    /**
+     * Appends a token and sends it to the followers.
+     *
+     * @param token            the token
+     * @param checkpointTokens tokens after which a checkpoint is due
+     * @param checkpointNanos  time after which a checkpoint is due
+     * @return true when a checkpoint is due
+     */
+    synchronized boolean append(String token, int checkpointTokens, long checkpointNanos) {
+        if (done) {
+            // A token racing with the abandonment of the answer
+            return false;
+        }
+        text.append(token);
+        followers.forEach(follower -> follower.emit(token));
+        unsavedTokens++;
+        return unsavedTokens >= checkpointTokens || System.nanoTime() - lastCheckpoint >= checkpointNanos;
+    }
+
+    /**
+     * Takes the text generated since the last checkpoint.
+     */
+    synchronized String unsaved() {
+        String chunk = text.substring(saved);
+        saved = text.length();
+        unsavedTokens = 0;
+        lastCheckpoint = System.nanoTime();
+        return chunk;
+    }
+
+    /**
+     * Writes a checkpoint once the previous ones are written, whether or not
+     * they succeeded.
+     *
+     * @param write the checkpoint write, called on the request context when
+     *              its turn comes
+     * @return the checkpoint write, already started
+     */
+    synchronized Uni<Void> write(Supplier<Uni<Void>> write) {
+        Uni<Void> next = writes.onFailure().recoverWithNull().chain(() -> onContext(write)).memoize().indefinitely();
+        writes = next;
+        next.subscribe().with(ignored -> {
+        }, e -> Log.error("Erro ao salvar a resposta " + messageId(), e));
+        return next;
+    }
+
+    private Uni<Void> onContext(Supplier<Uni<Void>> write) {
+        return Uni.createFrom().emitter(emitter -> onContext(() -> write.get()
+                .subscribe().with(emitter::complete, emitter::fail)));
+    }
+
+    private void onContext(Runnable action) {
+        if (context == null) {
+            action.run();
+        } else {
+            context.runOnContext(ignored -> action.run());
+        }
+    }
+
+    /**
+     * Sets how the generation of the answer is stopped.
+     */
+    synchronized void generating(Cancellable generation) {
+        this.generation = generation;
+    }
+
+    synchronized void complete() {
+        done = true;
+        followers.forEach(MultiEmitter::complete);
+        followers.clear();
+    }
+
+    synchronized void fail(Throwable error) {
+        done = true;
+        failure = error;
+        followers.forEach(follower -> follower.fail(error));
+        followers.clear();
+    }
+
+    /**
+     * Follows the answer: the text after the given offset, then the tokens
+     * as they are generated.
+     *
+     * @param offset the number of characters the client already has
+     * @return a Multi emitting the rest of the answer
+     */
+    Multi<String> follow(int offset) {
+        return Multi.createFrom().emitter(emitter -> {
+            synchronized (this) {
+                if (offset < text.length()) {
+                    emitter.emit(text.substring(Math.max(0, offset)));
+                }
+                if (failure != null) {
+                    emitter.fail(failure);
+                } else if (done) {
+                    emitter.complete();
+                } else {
+                    if (abandonment != null) {
+                        abandonment.cancel();
+                        abandonment = null;
+                    }
+                    followers.add(emitter);
+                    emitter.onTermination(() -> unfollow(emitter));
+                }
+            }
+        });
+    }
+
+    private void unfollow(MultiEmitter<? super String> emitter) {
+        synchronized (this) {
+            followers.remove(emitter);
+            if (!followers.isEmpty() || done || abandonment != null) {
+                return;
+            }
+            if (grace.isPositive()) {
+                abandonment = Uni.createFrom().voidItem().onItem().delayIt().by(grace)
+                        .subscribe().with(ignored -> onContext(this::abandon));
+                return;
+            }
+        }
+        onContext(this::abandon);
+    }
+
+    private void abandon() {
+        synchronized (this) {
+            if (done || !followers.isEmpty()) {
+                return;
+            }
+            done = true;
+            abandonment = null;
+        }
+        generation.cancel();
+        onAbandoned.accept(this);
+    }
+}
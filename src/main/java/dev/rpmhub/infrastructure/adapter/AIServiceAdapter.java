@@ -7,37 +7,370 @@
  */
 package dev.rpmhub.infrastructure.adapter;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.memory.chat.ChatMemoryProvider;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
 import dev.rpmhub.domain.model.AIRequest;
 import dev.rpmhub.domain.port.AIService;
+import dev.rpmhub.domain.port.AdmissionService;
+import dev.rpmhub.domain.port.MetricsService;
+import dev.rpmhub.infrastructure.util.BlockingToReactive;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.quarkus.logging.Log;
 import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.Cancellable;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
 /**
- * Adapter for the AIService interface, using a personalized AI service
- * implementation.
+ * Adapter for the AIService interface. Responses are sent to the pool of
+ * model endpoints as messages laid out by the PromptAssembler, with the
+ * retrieved context of the question. Contextual responses also carry the
+ * previous turns, so the model can reuse the cached prefix of the
+ * conversation. The previous turns come from the chat memory of the
+ * conversation, which receives the question and the answer once the
+ * generation completes. The ModelRouter chooses the model tier of each
+ * generation.
+ *
+ * A stream cancelled by its subscriber, such as a client that went away,
+ * stops the generation on the model endpoint.
+ *
+ * The generation meters (rag.llm.*) are registered here directly, like the
+ * backend meters of LlmBackendPool; the pipeline stages go through the
+ * MetricsService.
  */
 @ApplicationScoped
 public class AIServiceAdapter implements AIService {
 
+    private static final String TOKENS = "rag.llm.tokens";
+    private static final String TOKENS_PER_SECOND = "rag.llm.tokens.per.second";
+    private static final String PROMPT_TOKENS = "rag.llm.prompt.tokens";
+    private static final String PROMPT_EVALUATED = "rag.llm.prompt.evaluated";
+    private static final String PROMPT_EVAL_SAVED = "rag.llm.prompt.eval.saved";
+    private static final String CANCELLED = "rag.llm.cancelled";
+    private static final String TOKENS_SAVED = "rag.llm.tokens.saved";
+    private static final String TIER_TTFT = "rag.llm.tier.ttft";
+    private static final String TIER_DURATION = "rag.llm.tier.duration";
+
+    /**
+     * Service for recording the pipeline stages of the generations.
+     */
+    private final MetricsService metricsService;
+
+    /**
+     * Registry of the generation meters.
+     */
+    private final MeterRegistry registry;
+
+    /**
+     * Tracer used to create a span for each generation stream.
+     */
+    private final Tracer tracer;
+
+    /**
+     * Bounds the number of concurrent generations sent to the model.
+     */
+    private final AdmissionService admissionService;
+
     /**
-     * The LangChain AI service used for generating responses.
+     * Model endpoints that receive the assembled prompts.
      */
-    private final LangChainAIService ai;
+    private final LlmBackendPool backendPool;
+
+    /**
+     * Lays out prompts from the most to the least stable part.
+     */
+    private final PromptAssembler promptAssembler;
+
+    /**
+     * Chooses the model tier of the generations.
+     */
+    private final ModelRouter modelRouter;
+
+    /**
+     * Chat memories keyed by conversation id.
+     */
+    private final ChatMemoryProvider chatMemoryProvider;
+
+    /**
+     * Moving average of the time to first token per evaluated prompt token,
+     * used to estimate the prompt evaluation time saved by the prefix cache.
+     */
+    private volatile double prefillNanosPerToken;
+
+    /**
+     * Moving average of the number of tokens of the completed answers, used
+     * to estimate the tokens saved by stopping a cancelled generation.
+     */
+    private volatile double answerTokens;
 
     @Inject
-    public AIServiceAdapter(LangChainAIService langChainService) {
-        this.ai = langChainService;
+    public AIServiceAdapter(MetricsService metricsService, MeterRegistry registry, Tracer tracer,
+            AdmissionService admissionService, LlmBackendPool backendPool, PromptAssembler promptAssembler,
+            ChatMemoryProvider chatMemoryProvider, ModelRouter modelRouter) {
+        this.metricsService = metricsService;
+        this.registry = registry;
+        this.tracer = tracer;
+        this.admissionService = admissionService;
+        this.backendPool = backendPool;
+        this.promptAssembler = promptAssembler;
+        this.chatMemoryProvider = chatMemoryProvider;
+        this.modelRouter = modelRouter;
     }
 
     @Override
     public Multi<String> generateResponse(AIRequest request) {
-        return ai.generateResponse(request.getPrompt());
+        return admissionService.admit(request.getUserId(), request.getQueueListener(),
+                () -> measured("response", stream("response", request.getSession(), modelRouter.route(request, 0),
+                        promptAssembler.single(request))));
     }
 
     @Override
     public Multi<String> generateContextualResponse(AIRequest request) {
-        return ai.generateContextualResponse(request.getHistory(),
-                request.getContext(), request.getPrompt());
+        return Multi.createFrom().deferred(() -> {
+            StringBuilder answer = new StringBuilder();
+            // The chat memory store blocks on Redis: it is only read and
+            // written on the memory executor, never on the event loop
+            return metricsService.timeStage("chatbot", "history_load", BlockingToReactive.wrap("memory",
+                    () -> chatMemoryProvider.get(request.getSession()).messages()))
+                    .onItem().transformToMulti(history -> admissionService.admit(request.getUserId(),
+                            request.getQueueListener(), () -> measured("contextual_response",
+                                    stream("contextual_response", request.getSession(),
+                                            modelRouter.route(request, history.size()),
+                                            promptAssembler.contextual(request, history)))))
+                    .onItem().invoke(answer::append)
+                    .onCompletion().call(() -> remember(request, answer.toString()));
+        });
+    }
+
+    /**
+     * Adds a question and its answer to the chat memory of the conversation.
+     */
+    private Uni<Void> remember(AIRequest request, String answer) {
+        return BlockingToReactive.wrap("memory", () -> {
+            ChatMemory memory = chatMemoryProvider.get(request.getSession());
+            memory.add(UserMessage.from(request.getPrompt()));
+            memory.add(AiMessage.from(answer));
+            return (Void) null;
+        }).onFailure().invoke(e -> Log.error("Erro ao salvar a memória da conversa " + request.getSession(), e))
+                .onFailure().recoverWithNull();
+    }
+
+    /**
+     * Streams the response of the chat model to an assembled prompt and
+     * records how much of the prompt the model had to evaluate.
+     *
+     * @param operation    the operation name used to tag the metrics
+     * @param conversation the conversation id, kept on the same backend
+     * @param route        the model tier of the generation
+     * @param prompt       the assembled prompt
+     * @return a Multi emitting the tokens of the response
+     */
+    private Multi<String> stream(String operation, String conversation, ModelRouter.Route route,
+            PromptAssembler.Prompt prompt) {
+        return Multi.createFrom().emitter(emitter -> {
+            long start = System.nanoTime();
+            AtomicLong firstToken = new AtomicLong();
+            Log.debug("Geração roteada para " + route.tier() + " (" + route.model() + "), motivo: " + route.reason());
+            ChatRequest chatRequest = ChatRequest.builder()
+                    .messages(prompt.messages())
+                    .modelName(route.model())
+                    .build();
+            Cancellable generation = backendPool.chat(conversation, chatRequest, new StreamingChatResponseHandler() {
+                @Override
+                public void onPartialResponse(String token) {
+                    firstToken.compareAndSet(0, System.nanoTime());
+                    emitter.emit(token);
+                }
+
+                @Override
+                public void onCompleteResponse(ChatResponse response) {
+                    long timeToFirstToken = firstToken.get() == 0 ? 0 : firstToken.get() - start;
+                    recordPrompt(operation, prompt, response, timeToFirstToken);
+                    recordTierLatency(route, timeToFirstToken, System.nanoTime() - start);
+                    emitter.complete();
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    emitter.fail(error);
+                }
+            });
+            emitter.onTermination(generation::cancel);
+        });
+    }
+
+    /**
+     * Records the latency of an LLM generation served by a model tier.
+     *
+     * @param route            the tier chosen by the router and its model
+     * @param timeToFirstToken the time to the first token in nanoseconds
+     * @param duration         the duration of the whole generation in
+     *                         nanoseconds
+     */
+    private void recordTierLatency(ModelRouter.Route route, long timeToFirstToken, long duration) {
+        Timer.builder(TIER_TTFT)
+                .description("Time to first token per model tier")
+                .tag("tier", route.tier())
+                .tag("model", route.model())
+                .register(registry)
+                .record(timeToFirstToken, TimeUnit.NANOSECONDS);
+        Timer.builder(TIER_DURATION)
+                .description("Duration of the LLM generations per model tier")
+                .tag("tier", route.tier())
+                .tag("model", route.model())
+                .register(registry)
+                .record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the prompt metrics of a generation. Ollama reports the prompt
+     * tokens it evaluated, which excludes the prefix served by its cache;
+     * the time saved is the reused prefix priced at the observed time to
+     * first token per evaluated token.
+     */
+    private void recordPrompt(String operation, PromptAssembler.Prompt prompt, ChatResponse response,
+            long timeToFirstToken) {
+        Integer evaluated = response.tokenUsage() == null ? null : response.tokenUsage().inputTokenCount();
+        if (evaluated != null && evaluated > 0 && timeToFirstToken > 0) {
+            double sample = (double) timeToFirstToken / evaluated;
+            double current = prefillNanosPerToken;
+            prefillNanosPerToken = current == 0 ? sample : 0.8 * current + 0.2 * sample;
+        }
+        int reused = prompt.reusedTokens();
+        DistributionSummary.builder(PROMPT_TOKENS)
+                .description("Estimated prompt tokens, by whether the prefix was shared with the previous turn")
+                .tag("operation", operation)
+                .tag("part", "reused")
+                .register(registry)
+                .record(reused);
+        DistributionSummary.builder(PROMPT_TOKENS)
+                .description("Estimated prompt tokens, by whether the prefix was shared with the previous turn")
+                .tag("operation", operation)
+                .tag("part", "new")
+                .register(registry)
+                .record(Math.max(0, prompt.tokens() - reused));
+
+        if (evaluated != null) {
+            DistributionSummary.builder(PROMPT_EVALUATED)
+                    .description("Prompt tokens evaluated by the model (not served by its prefix cache)")
+                    .tag("operation", operation)
+                    .register(registry)
+                    .record(evaluated);
+        }
+
+        Timer.builder(PROMPT_EVAL_SAVED)
+                .description("Estimated prompt evaluation time saved per turn by the prefix cache")
+                .tag("operation", operation)
+                .register(registry)
+                .record((long) (reused * prefillNanosPerToken), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Counts the streamed tokens, records the decoding throughput when the
+     * generation completes, or the tokens it did not generate when it is
+     * cancelled, and traces the whole stream in a span.
+     *
+     * @param operation the operation name used to tag the metrics
+     * @param stream    the token stream
+     * @return a Multi emitting the same tokens as the stream
+     */
+    private Multi<String> measured(String operation, Multi<String> stream) {
+        return Multi.createFrom().deferred(() -> {
+            Span span = tracer.spanBuilder("LangChainAIService." + operation)
+                    .setParent(Context.current())
+                    .startSpan();
+            long start = System.nanoTime();
+            AtomicInteger tokens = new AtomicInteger();
+            AtomicLong firstToken = new AtomicLong();
+            return stream
+                    .onItem().invoke(token -> {
+                        if (tokens.getAndIncrement() == 0) {
+                            firstToken.set(System.nanoTime());
+                            span.setAttribute("rag.llm.time_to_first_token_ms", (firstToken.get() - start) / 1_000_000);
+                        }
+                    })
+                    .onCompletion().invoke(() -> {
+                        recordTokens(operation, tokens.get(),
+                                tokens.get() == 0 ? 0 : System.nanoTime() - firstToken.get());
+                        double current = answerTokens;
+                        answerTokens = current == 0 ? tokens.get() : 0.9 * current + 0.1 * tokens.get();
+                    })
+                    .onCancellation().invoke(() -> {
+                        span.setAttribute("rag.llm.cancelled", true);
+                        recordCancellation(operation, tokens.get(),
+                                (int) Math.max(0, answerTokens - tokens.get()));
+                    })
+                    .onFailure().invoke(e -> {
+                        span.recordException(e);
+                        span.setStatus(StatusCode.ERROR);
+                    })
+                    .onTermination().invoke(() -> {
+                        span.setAttribute("rag.llm.tokens", tokens.get());
+                        span.end();
+                    });
+        });
+    }
+
+    /**
+     * Records the throughput of a finished LLM generation.
+     *
+     * @param operation     the LLM operation name
+     * @param tokens        the number of streamed tokens
+     * @param decodingNanos the time spent between the first and the last token
+     */
+    private void recordTokens(String operation, int tokens, long decodingNanos) {
+        DistributionSummary.builder(TOKENS)
+                .description("Number of tokens streamed per LLM generation")
+                .tag("operation", operation)
+                .register(registry)
+                .record(tokens);
+
+        if (tokens > 1 && decodingNanos > 0) {
+            DistributionSummary.builder(TOKENS_PER_SECOND)
+                    .description("Decoding throughput of LLM generations")
+                    .tag("operation", operation)
+                    .publishPercentileHistogram()
+                    .register(registry)
+                    .record((tokens - 1) / (decodingNanos / 1_000_000_000.0));
+        }
+    }
+
+    /**
+     * Records an LLM generation cancelled before it finished, e.g. because
+     * its client disconnected.
+     *
+     * @param operation       the LLM operation
+     * @param generatedTokens the tokens streamed before the cancellation
+     * @param savedTokens     the estimated tokens the model did not have to
+     *                        generate
+     */
+    private void recordCancellation(String operation, int generatedTokens, int savedTokens) {
+        DistributionSummary.builder(CANCELLED)
+                .description("Tokens streamed by LLM generations before they were cancelled")
+                .tag("operation", operation)
+                .register(registry)
+                .record(generatedTokens);
+        Counter.builder(TOKENS_SAVED)
+                .description("Estimated tokens not generated because the generation was cancelled")
+                .tag("operation", operation)
+                .register(registry)
+                .increment(savedTokens);
     }
 }
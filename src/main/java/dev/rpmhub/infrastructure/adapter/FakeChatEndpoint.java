@@ -0,0 +1,103 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.adapter;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executor;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.output.TokenUsage;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.subscription.Cancellable;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+
+/**
+ * Deterministic chat endpoint for load tests: after a fixed time to first
+ * token it streams a fixed number of words at a fixed rate. The words are
+ * drawn from a small vocabulary seeded by the prompt, so the same prompt
+ * always gets the same answer.
+ *
+ * The timing is simulated with timers, not with busy threads, so the
+ * service under test sees the latency of a model without its CPU cost.
+ * The tokens are emitted on the Vert.x context of the caller, when there is
+ * one, so the rest of the pipeline runs where it would with a model client.
+ */
+public class FakeChatEndpoint implements LlmBackendPool.Endpoint {
+
+    private static final String[] WORDS = {
+            "o", "componente", "Vue", "recebe", "props", "e", "emite", "eventos", "para", "o", "pai",
+            "a", "Composition", "API", "organiza", "a", "lógica", "em", "funções", "reativas", "com",
+            "ref", "reactive", "computed", "watch", "no", "template", "use", "v-if", "v-for", "slots"
+    };
+
+    private final Duration timeToFirstToken;
+    private final Duration tokenInterval;
+    private final int tokens;
+
+    /**
+     * @param timeToFirstToken the delay before the first token
+     * @param tokensPerSecond  the decoding rate
+     * @param tokens           the number of tokens of each answer
+     */
+    public FakeChatEndpoint(Duration timeToFirstToken, double tokensPerSecond, int tokens) {
+        this.timeToFirstToken = timeToFirstToken;
+        this.tokenInterval = Duration.ofNanos((long) (1_000_000_000L / Math.max(1e-3, tokensPerSecond)));
+        this.tokens = Math.max(1, tokens);
+    }
+
+    @Override
+    public Cancellable chat(ChatRequest request, StreamingChatResponseHandler handler) {
+        int promptTokens = 0;
+        int seed = 0;
+        for (ChatMessage message : request.messages()) {
+            String text = text(message);
+            promptTokens += text.split("\\s+").length;
+            seed = 31 * seed + text.hashCode();
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        StringBuilder answer = new StringBuilder();
+        int inputTokens = promptTokens;
+        Multi<Long> ticks = Multi.createFrom().ticks()
+                .startingAfter(timeToFirstToken.isZero() ? Duration.ofMillis(1) : timeToFirstToken)
+                .every(tokenInterval)
+                .select().first(tokens);
+        Context context = Vertx.currentContext();
+        if (context != null) {
+            Executor onContext = command -> context.runOnContext(ignored -> command.run());
+            ticks = ticks.emitOn(onContext);
+        }
+        return ticks.subscribe().with(
+                        tick -> {
+                            String token = (tick == 0 ? "" : " ") + WORDS[random.nextInt(WORDS.length)];
+                            answer.append(token);
+                            handler.onPartialResponse(token);
+                        },
+                        handler::onError,
+                        () -> handler.onCompleteResponse(ChatResponse.builder()
+                                .aiMessage(AiMessage.from(answer.toString()))
+                                .tokenUsage(new TokenUsage(inputTokens, tokens))
+                                .build()));
+    }
+
+    private static String text(ChatMessage message) {
+        return switch (message) {
+            case SystemMessage system -> system.text();
+            case UserMessage user -> user.singleText();
+            case AiMessage ai -> ai.text() == null ? "" : ai.text();
+            default -> "";
+        };
+    }
+}
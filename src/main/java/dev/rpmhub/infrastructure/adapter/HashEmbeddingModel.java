@@ -0,0 +1,58 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+
+package dev.rpmhub.infrastructure.adapter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+
+/**
+ * Deterministic EmbeddingModel for benchmarks and load tests: each word is
+ * hashed to a dimension and a sign (feature hashing), so texts sharing words
+ * get similar vectors. It costs microseconds per text, which isolates the
+ * rest of the ingestion and retrieval paths from model inference.
+ */
+public class HashEmbeddingModel implements EmbeddingModel {
+
+    private final int dimension;
+
+    public HashEmbeddingModel(int dimension) {
+        this.dimension = dimension;
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> segments) {
+        List<Embedding> embeddings = new ArrayList<>(segments.size());
+        for (TextSegment segment : segments) {
+            embeddings.add(Embedding.from(vector(segment.text())));
+        }
+        return Response.from(embeddings);
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    private float[] vector(String text) {
+        float[] vector = new float[dimension];
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}_-]+")) {
+            if (!word.isEmpty()) {
+                int hash = word.hashCode();
+                vector[Math.floorMod(hash, dimension)] += (hash & 0x10000) == 0 ? 1 : -1;
+            }
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.adapter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Executor;
+
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import dev.langchain4j.model.embedding.onnx.AbstractInProcessEmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.OnnxBertBiEncoder;
+import dev.langchain4j.model.embedding.onnx.PoolingMode;
+import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
+
+/**
+ * all-MiniLM-L6-v2 running in the JVM with ONNX Runtime.
+ *
+ * Same model and pooling as {@link AllMiniLmL6V2EmbeddingModel}, but the ONNX
+ * session is created with explicit thread settings: each embedding runs on
+ * the calling thread with {@code intraOpThreads} threads, and batches
+ * ({@code embedAll}) are spread over the given executor. The session is
+ * created once and shared by all threads.
+ */
+public class InProcessEmbeddingModel extends AbstractInProcessEmbeddingModel {
+
+    private static final String MODEL = "/all-minilm-l6-v2.onnx";
+    private static final String TOKENIZER = "/all-minilm-l6-v2-tokenizer.json";
+    private static final int DIMENSION = 384;
+
+    private final OnnxBertBiEncoder encoder;
+
+    /**
+     * Loads the model bundled in langchain4j-embeddings-all-minilm-l6-v2.
+     *
+     * @param executor       runs the segments of a batch in parallel
+     * @param intraOpThreads threads used by ONNX Runtime inside one inference
+     */
+    public InProcessEmbeddingModel(Executor executor, int intraOpThreads) {
+        super(executor);
+        try (InputStream model = AllMiniLmL6V2EmbeddingModel.class.getResourceAsStream(MODEL);
+                InputStream tokenizer = AllMiniLmL6V2EmbeddingModel.class.getResourceAsStream(TOKENIZER)) {
+            OrtEnvironment environment = OrtEnvironment.getEnvironment();
+            OrtSession.SessionOptions options = new OrtSession.SessionOptions();
+            options.setIntraOpNumThreads(intraOpThreads);
+            options.setInterOpNumThreads(1);
+            options.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.ALL_OPT);
+            OrtSession session = environment.createSession(model.readAllBytes(), options);
+            this.encoder = new OnnxBertBiEncoder(environment, session, tokenizer, PoolingMode.MEAN);
+        } catch (IOException | OrtException e) {
+            throw new IllegalStateException("Could not load the all-MiniLM-L6-v2 model", e);
+        }
+    }
+
+    @Override
+    protected OnnxBertBiEncoder model() {
+        return encoder;
+    }
+
+    @Override
+    protected Integer knownDimension() {
+        return DIMENSION;
+    }
+}
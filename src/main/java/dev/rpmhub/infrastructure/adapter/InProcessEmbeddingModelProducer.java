@@ -0,0 +1,88 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.adapter;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import io.quarkus.arc.properties.IfBuildProperty;
+import io.quarkus.logging.Log;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Alternative;
+import jakarta.enterprise.inject.Disposes;
+import jakarta.enterprise.inject.Produces;
+
+/**
+ * Replaces the Ollama embedding model with {@link InProcessEmbeddingModel}
+ * when the application is built with {@code rag.embedding.mode=in-process}
+ * (e.g. the {@code inprocess} profile).
+ *
+ * Query embeddings then run on the request worker thread without an HTTP
+ * round-trip; ingestion batches use a dedicated pool sized to the cores. The
+ * model is warmed up at startup so the first query does not pay for session
+ * initialization and JIT compilation.
+ */
+@ApplicationScoped
+@IfBuildProperty(name = "rag.embedding.mode", stringValue = "in-process")
+public class InProcessEmbeddingModelProducer {
+
+    private static final List<TextSegment> WARM_UP = List.of(
+            TextSegment.from("Como criar um componente?"),
+            TextSegment.from("O que é a Composition API do Vue.js e quando ela deve ser usada?"),
+            TextSegment.from("props, emits, slots"));
+
+    private final int threads;
+    private final int intraOpThreads;
+    private final int warmUpRounds;
+    private ExecutorService executor;
+
+    public InProcessEmbeddingModelProducer(
+            @ConfigProperty(name = "rag.embedding.in-process.threads", defaultValue = "0") int threads,
+            @ConfigProperty(name = "rag.embedding.in-process.intra-op-threads", defaultValue = "1") int intraOpThreads,
+            @ConfigProperty(name = "rag.embedding.in-process.warm-up-rounds", defaultValue = "3") int warmUpRounds) {
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.intraOpThreads = Math.max(1, intraOpThreads);
+        this.warmUpRounds = warmUpRounds;
+    }
+
+    @Produces
+    @ApplicationScoped
+    @Alternative
+    @Priority(1)
+    EmbeddingModel embeddingModel() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "embedding-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long start = System.nanoTime();
+        InProcessEmbeddingModel model = new InProcessEmbeddingModel(executor, intraOpThreads);
+        for (int round = 0; round < warmUpRounds; round++) {
+            WARM_UP.forEach(model::embed);
+            model.embedAll(WARM_UP);
+        }
+        Log.infof("In-process embedding model ready in %d ms (%d threads, %d intra-op)",
+                (System.nanoTime() - start) / 1_000_000, threads, intraOpThreads);
+        return model;
+    }
+
+    void close(@Disposes EmbeddingModel model) {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
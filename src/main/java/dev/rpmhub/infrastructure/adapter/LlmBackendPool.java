@@ -0,0 +1,404 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.adapter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.logging.Log;
+import io.smallrye.mutiny.subscription.Cancellable;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Spreads the chat generations over a pool of model endpoints.
+ *
+ * Each generation goes to the healthy backend with the fewest generations in
+ * flight, unless the backend that served the previous turn of the same
+ * conversation is at most affinity-slack generations busier: staying there
+ * lets it reuse the cached prefix of the conversation. Backends are checked
+ * passively: when the moving average of their error rate or time to first
+ * token crosses its threshold they are left out for eject-seconds. A
+ * generation that fails before its first token is retried on another backend.
+ * A cancelled generation is stopped on its backend and frees its slot.
+ *
+ * Without rag.llm.pool.endpoints the pool has the single configured Ollama
+ * instance.
+ */
+@ApplicationScoped
+public class LlmBackendPool {
+
+    /**
+     * Number of conversations whose last backend is remembered.
+     */
+    private static final int TRACKED_CONVERSATIONS = 4096;
+
+    /**
+     * Weight of the newest sample in the moving averages.
+     */
+    private static final double ALPHA = 0.2;
+
+    /**
+     * A model endpoint that streams chat generations.
+     */
+    @FunctionalInterface
+    public interface Endpoint {
+
+        /**
+         * Starts a chat generation.
+         *
+         * @param request the chat request
+         * @param handler receives the tokens and the completion or failure
+         * @return stops the generation
+         */
+        Cancellable chat(ChatRequest request, StreamingChatResponseHandler handler);
+
+        /**
+         * Adapts a langchain4j streaming model. Its generations cannot be
+         * stopped: once cancelled, the rest of the tokens is ignored.
+         *
+         * @param model the streaming model
+         * @return the endpoint
+         */
+        static Endpoint of(StreamingChatModel model) {
+            return (request, handler) -> {
+                model.chat(request, handler);
+                return () -> {
+                };
+            };
+        }
+    }
+
+    private final List<Backend> backends;
+    private final MeterRegistry registry;
+    private final int affinitySlack;
+    private final double errorThreshold;
+    private final long ttftThresholdNanos;
+    private final long ejectNanos;
+
+    /**
+     * Last backend of each conversation, guarded by itself.
+     */
+    private final Map<String, Backend> affinity = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Backend> eldest) {
+            return size() > TRACKED_CONVERSATIONS;
+        }
+    };
+
+    @Inject
+    public LlmBackendPool(MeterRegistry registry,
+            @ConfigProperty(name = "rag.llm.pool.endpoints") Optional<List<String>> endpoints,
+            @ConfigProperty(name = "quarkus.langchain4j.ollama.base-url", defaultValue = "http://localhost:11434") String baseUrl,
+            @ConfigProperty(name = "quarkus.langchain4j.ollama.chat-model.model-id") String modelId,
+            @ConfigProperty(name = "rag.llm.pool.timeout", defaultValue = "120s") Duration timeout,
+            @ConfigProperty(name = "rag.llm.pool.affinity-slack", defaultValue = "2") int affinitySlack,
+            @ConfigProperty(name = "rag.llm.pool.error-threshold", defaultValue = "0.5") double errorThreshold,
+            @ConfigProperty(name = "rag.llm.pool.ttft-threshold", defaultValue = "15s") Duration ttftThreshold,
+            @ConfigProperty(name = "rag.llm.pool.eject-seconds", defaultValue = "30") int ejectSeconds) {
+        this(ollamaEndpoints(endpoints.filter(urls -> !urls.isEmpty()).orElse(List.of(baseUrl)), modelId, timeout),
+                registry, affinitySlack, errorThreshold, ttftThreshold, ejectSeconds);
+    }
+
+    public LlmBackendPool(Map<String, Endpoint> endpoints, MeterRegistry registry, int affinitySlack,
+            double errorThreshold, Duration ttftThreshold, int ejectSeconds) {
+        this.registry = registry;
+        this.affinitySlack = affinitySlack;
+        this.errorThreshold = errorThreshold;
+        this.ttftThresholdNanos = ttftThreshold.toNanos();
+        this.ejectNanos = TimeUnit.SECONDS.toNanos(ejectSeconds);
+        this.backends = endpoints.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(entry -> new Backend(entry.getKey(), entry.getValue()))
+                .toList();
+        Log.info("Backends LLM: " + backends.stream().map(Backend::name).toList());
+    }
+
+    private static Map<String, Endpoint> ollamaEndpoints(List<String> urls, String modelId, Duration timeout) {
+        Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+        for (String url : urls) {
+            endpoints.put(url, new OllamaEndpoint(url, modelId, timeout));
+        }
+        return endpoints;
+    }
+
+    /**
+     * Streams a chat generation from a backend of the pool.
+     *
+     * @param conversation the conversation id used for affinity, or null
+     * @param request      the chat request
+     * @param handler      receives the tokens and the completion or failure
+     * @return stops the generation; the handler is not called afterwards
+     */
+    public Cancellable chat(String conversation, ChatRequest request, StreamingChatResponseHandler handler) {
+        Generation generation = new Generation(conversation, request, handler);
+        generation.dispatch();
+        return generation::cancel;
+    }
+
+    /**
+     * A generation and its attempts on the backends.
+     */
+    private final class Generation {
+
+        private final String conversation;
+        private final ChatRequest request;
+        private final StreamingChatResponseHandler handler;
+        /**
+         * Backends already tried. A retry is dispatched from the thread of
+         * the failed attempt, not the one of the first dispatch.
+         */
+        private final Set<Backend> tried = ConcurrentHashMap.newKeySet();
+        private volatile boolean cancelled;
+
+        /**
+         * Stops the current attempt.
+         */
+        private volatile Runnable stop = () -> {
+        };
+
+        private Generation(String conversation, ChatRequest request, StreamingChatResponseHandler handler) {
+            this.conversation = conversation;
+            this.request = request;
+            this.handler = handler;
+        }
+
+        void cancel() {
+            cancelled = true;
+            stop.run();
+        }
+
+        void dispatch() {
+            Backend backend = choose(conversation, tried);
+            tried.add(backend);
+            backend.outstanding.incrementAndGet();
+            long start = System.nanoTime();
+            AtomicBoolean started = new AtomicBoolean();
+            AtomicBoolean finished = new AtomicBoolean();
+            AtomicReference<Cancellable> call = new AtomicReference<>();
+
+            StreamingChatResponseHandler tracked = new StreamingChatResponseHandler() {
+                @Override
+                public void onPartialResponse(String token) {
+                    if (finished.get()) {
+                        return;
+                    }
+                    if (started.compareAndSet(false, true)) {
+                        backend.recordFirstToken(System.nanoTime() - start);
+                    }
+                    handler.onPartialResponse(token);
+                }
+
+                @Override
+                public void onCompleteResponse(ChatResponse response) {
+                    if (finished.compareAndSet(false, true)) {
+                        backend.finish(true);
+                        handler.onCompleteResponse(response);
+                    }
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    if (!finished.compareAndSet(false, true)) {
+                        return;
+                    }
+                    backend.finish(false);
+                    // Tokens already sent cannot be taken back; before the first
+                    // one the generation can start over on another backend
+                    if (!started.get() && tried.size() < backends.size() && !cancelled) {
+                        Log.warn("Backend LLM " + backend.name() + " falhou, tentando outro: " + error.getMessage());
+                        backend.failovers.increment();
+                        dispatch();
+                    } else {
+                        handler.onError(error);
+                    }
+                }
+            };
+
+            stop = () -> {
+                if (finished.compareAndSet(false, true)) {
+                    backend.cancel();
+                    Cancellable current = call.get();
+                    if (current != null) {
+                        current.cancel();
+                    }
+                }
+            };
+            try {
+                call.set(backend.endpoint().chat(request, tracked));
+            } catch (RuntimeException e) {
+                tracked.onError(e);
+            }
+            // Cancelled while the call was starting
+            if (cancelled && call.get() != null) {
+                stop.run();
+                call.get().cancel();
+            }
+        }
+    }
+
+    /**
+     * Chooses the healthy backend with the fewest generations in flight,
+     * preferring the previous backend of the conversation. When no backend
+     * is healthy, all are candidates.
+     */
+    private Backend choose(String conversation, Set<Backend> tried) {
+        long now = System.nanoTime();
+        List<Backend> candidates = new ArrayList<>();
+        for (Backend backend : backends) {
+            if (!tried.contains(backend) && backend.isHealthy(now)) {
+                candidates.add(backend);
+            }
+        }
+        if (candidates.isEmpty()) {
+            backends.stream().filter(backend -> !tried.contains(backend)).forEach(candidates::add);
+        }
+        Backend least = candidates.stream()
+                .min(Comparator.comparingInt((Backend backend) -> backend.outstanding.get())
+                        .thenComparingDouble(backend -> backend.ttftNanos))
+                .orElseThrow();
+        if (conversation == null) {
+            return least;
+        }
+        synchronized (affinity) {
+            Backend previous = affinity.get(conversation);
+            Backend chosen = previous != null && candidates.contains(previous)
+                    && previous.outstanding.get() <= least.outstanding.get() + affinitySlack ? previous : least;
+            affinity.put(conversation, chosen);
+            return chosen;
+        }
+    }
+
+    /**
+     * A model endpoint and its passive health.
+     */
+    private final class Backend {
+
+        private final String name;
+        private final Endpoint endpoint;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final Counter successes;
+        private final Counter failures;
+        private final Counter failovers;
+        private final Counter cancellations;
+        private final Timer timeToFirstToken;
+
+        /**
+         * Moving averages, updated under this backend's lock.
+         */
+        private volatile double errorRate;
+        private volatile double ttftNanos;
+
+        /**
+         * Whether the backend was ever ejected, and until when, in
+         * System.nanoTime(), which may be negative.
+         */
+        private volatile boolean ejected;
+        private volatile long ejectedUntil;
+
+        private Backend(String name, Endpoint endpoint) {
+            this.name = name;
+            this.endpoint = endpoint;
+            this.successes = generations("success");
+            this.failures = generations("failure");
+            this.failovers = generations("failover");
+            this.cancellations = generations("cancelled");
+            this.timeToFirstToken = Timer.builder("rag.llm.backend.ttft")
+                    .description("Time to first token per LLM backend")
+                    .tag("backend", name)
+                    .register(registry);
+            Gauge.builder("rag.llm.backend.outstanding", outstanding, AtomicInteger::get)
+                    .description("Generations in flight per LLM backend")
+                    .tag("backend", name)
+                    .register(registry);
+            Gauge.builder("rag.llm.backend.healthy", this, backend -> backend.isHealthy(System.nanoTime()) ? 1 : 0)
+                    .description("1 if the LLM backend receives generations, 0 while ejected")
+                    .tag("backend", name)
+                    .register(registry);
+        }
+
+        private Counter generations(String outcome) {
+            return Counter.builder("rag.llm.backend.generations")
+                    .description("Generations per LLM backend and outcome")
+                    .tag("backend", name)
+                    .tag("outcome", outcome)
+                    .register(registry);
+        }
+
+        String name() {
+            return name;
+        }
+
+        Endpoint endpoint() {
+            return endpoint;
+        }
+
+        boolean isHealthy(long now) {
+            return !ejected || now - ejectedUntil >= 0;
+        }
+
+        synchronized void recordFirstToken(long nanos) {
+            timeToFirstToken.record(nanos, TimeUnit.NANOSECONDS);
+            ttftNanos = ttftNanos == 0 ? nanos : (1 - ALPHA) * ttftNanos + ALPHA * nanos;
+            if (ttftNanos > ttftThresholdNanos) {
+                eject("tempo até o primeiro token " + (long) (ttftNanos / 1_000_000) + " ms");
+                // Give it a fresh start after the ejection
+                ttftNanos = ttftThresholdNanos / 2.0;
+            }
+        }
+
+        synchronized void finish(boolean success) {
+            outstanding.decrementAndGet();
+            (success ? successes : failures).increment();
+            errorRate = (1 - ALPHA) * errorRate + ALPHA * (success ? 0 : 1);
+            if (errorRate > errorThreshold) {
+                eject("taxa de erro " + String.format("%.2f", errorRate));
+                errorRate = errorThreshold / 2;
+            }
+        }
+
+        /**
+         * Frees the slot of a cancelled generation, which says nothing about
+         * the health of the backend.
+         */
+        void cancel() {
+            outstanding.decrementAndGet();
+            cancellations.increment();
+        }
+
+        private void eject(String reason) {
+            if (isHealthy(System.nanoTime())) {
+                Log.warn("Backend LLM " + name + " fora do pool por " + TimeUnit.NANOSECONDS.toSeconds(ejectNanos)
+                        + " s: " + reason);
+            }
+            ejectedUntil = System.nanoTime() + ejectNanos;
+            ejected = true;
+        }
+    }
+}
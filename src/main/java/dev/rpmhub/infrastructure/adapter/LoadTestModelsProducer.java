@@ -0,0 +1,84 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.adapter;
+
+import java.time.Duration;
+import java.util.Map;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.arc.properties.IfBuildProperty;
+import io.quarkus.logging.Log;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Alternative;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Singleton;
+
+/**
+ * Replaces Ollama and Chroma with local fakes when the application is built
+ * with {@code rag.load-test.enabled=true} (e.g. the {@code loadtest}
+ * profile): a {@link FakeChatEndpoint} behind the LLM pool, a
+ * {@link HashEmbeddingModel} and an in-memory embedding
+ * store. The whole chatbot path can then be load-tested without the model
+ * and vector database, with a model latency set by configuration.
+ *
+ * The fakes take precedence over the in-process embedding model.
+ */
+@ApplicationScoped
+@IfBuildProperty(name = "rag.load-test.enabled", stringValue = "true")
+public class LoadTestModelsProducer {
+
+    private final FakeChatEndpoint chatEndpoint;
+    private final int dimension;
+
+    public LoadTestModelsProducer(
+            @ConfigProperty(name = "rag.load-test.llm.time-to-first-token", defaultValue = "300ms") Duration timeToFirstToken,
+            @ConfigProperty(name = "rag.load-test.llm.tokens-per-second", defaultValue = "40") double tokensPerSecond,
+            @ConfigProperty(name = "rag.load-test.llm.tokens", defaultValue = "200") int tokens,
+            @ConfigProperty(name = "rag.load-test.embedding.dimension", defaultValue = "384") int dimension) {
+        this.chatEndpoint = new FakeChatEndpoint(timeToFirstToken, tokensPerSecond, tokens);
+        this.dimension = dimension;
+        Log.warnf("Modelos falsos para teste de carga: TTFT %d ms, %.1f tokens/s, %d tokens, embeddings de %d dimensões",
+                timeToFirstToken.toMillis(), tokensPerSecond, tokens, dimension);
+    }
+
+    @Produces
+    @Singleton
+    @Alternative
+    @Priority(2)
+    LlmBackendPool backendPool(MeterRegistry registry,
+            @ConfigProperty(name = "rag.llm.pool.affinity-slack", defaultValue = "2") int affinitySlack,
+            @ConfigProperty(name = "rag.llm.pool.error-threshold", defaultValue = "0.5") double errorThreshold,
+            @ConfigProperty(name = "rag.llm.pool.ttft-threshold", defaultValue = "15s") Duration ttftThreshold,
+            @ConfigProperty(name = "rag.llm.pool.eject-seconds", defaultValue = "30") int ejectSeconds) {
+        return new LlmBackendPool(Map.of("fake", chatEndpoint), registry, affinitySlack, errorThreshold,
+                ttftThreshold, ejectSeconds);
+    }
+
+    @Produces
+    @ApplicationScoped
+    @Alternative
+    @Priority(2)
+    EmbeddingModel embeddingModel() {
+        return new HashEmbeddingModel(dimension);
+    }
+
+    @Produces
+    @ApplicationScoped
+    @Alternative
+    @Priority(2)
+    EmbeddingStore<TextSegment> embeddingStore() {
+        return new InMemoryEmbeddingStore<>();
+    }
+}
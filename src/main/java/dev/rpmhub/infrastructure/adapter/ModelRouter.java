@@ -0,0 +1,123 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.adapter;
+
+import java.text.Normalizer;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import dev.rpmhub.domain.model.AIRequest;
+import io.quarkus.logging.Log;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Chooses the model tier of a contextual generation from cheap local
+ * signals. A question is simple, and goes to the small model, when its
+ * prompt is short, the retrieval found a close match, the conversation is
+ * short and the prompt has none of the keywords of questions that need
+ * reasoning (comparisons, explanations, code). Any other question goes to
+ * the complex tier.
+ *
+ * Both tiers default to the configured chat model, so routing changes
+ * nothing until rag.llm.routing.complex.model is set.
+ */
+@ApplicationScoped
+public class ModelRouter {
+
+    public static final String SIMPLE = "simple";
+    public static final String COMPLEX = "complex";
+
+    private final String simpleModel;
+    private final String complexModel;
+    private final int maxSimplePromptWords;
+    private final double minSimpleScore;
+    private final int maxSimpleHistory;
+
+    /**
+     * Lower-case keywords without accents.
+     */
+    private final List<String> complexKeywords;
+
+    /**
+     * A routing decision.
+     *
+     * @param tier   the tier name, used to tag the metrics
+     * @param model  the model of the tier
+     * @param reason the first signal that made the question complex, or
+     *               null for a simple one
+     */
+    public record Route(String tier, String model, String reason) {
+    }
+
+    @Inject
+    public ModelRouter(
+            @ConfigProperty(name = "quarkus.langchain4j.ollama.chat-model.model-id") String modelId,
+            @ConfigProperty(name = "rag.llm.routing.simple.model") Optional<String> simpleModel,
+            @ConfigProperty(name = "rag.llm.routing.complex.model") Optional<String> complexModel,
+            @ConfigProperty(name = "rag.llm.routing.max-simple-prompt-words", defaultValue = "30") int maxSimplePromptWords,
+            @ConfigProperty(name = "rag.llm.routing.min-simple-score", defaultValue = "0.75") double minSimpleScore,
+            @ConfigProperty(name = "rag.llm.routing.max-simple-history", defaultValue = "6") int maxSimpleHistory,
+            @ConfigProperty(name = "rag.llm.routing.complex-keywords") Optional<List<String>> complexKeywords) {
+        this.simpleModel = simpleModel.orElse(modelId);
+        this.complexModel = complexModel.orElse(modelId);
+        this.maxSimplePromptWords = maxSimplePromptWords;
+        this.minSimpleScore = minSimpleScore;
+        this.maxSimpleHistory = maxSimpleHistory;
+        this.complexKeywords = complexKeywords.orElse(List.of()).stream()
+                .map(ModelRouter::normalize)
+                .filter(keyword -> !keyword.isBlank())
+                .toList();
+        Log.info("Roteamento de modelos: simples=" + this.simpleModel + ", complexo=" + this.complexModel);
+    }
+
+    /**
+     * Routes a contextual generation.
+     *
+     * @param request         the request, with the retrieval score
+     * @param historyMessages the number of previous messages sent with it
+     * @return the tier and model of the generation
+     */
+    public Route route(AIRequest request, int historyMessages) {
+        String reason = complexity(request, historyMessages);
+        return reason == null ? new Route(SIMPLE, simpleModel, null) : new Route(COMPLEX, complexModel, reason);
+    }
+
+    /**
+     * Returns the first signal of a complex question, or null.
+     */
+    private String complexity(AIRequest request, int historyMessages) {
+        String prompt = request.getPrompt() == null ? "" : normalize(request.getPrompt());
+        if (prompt.split("\\s+").length > maxSimplePromptWords) {
+            return "prompt";
+        }
+        // Requests made without a vector search have no score
+        if (!Double.isNaN(request.getScore()) && request.getScore() < minSimpleScore) {
+            return "score";
+        }
+        if (historyMessages > maxSimpleHistory) {
+            return "history";
+        }
+        for (String keyword : complexKeywords) {
+            if (prompt.contains(keyword)) {
+                return "keyword";
+            }
+        }
+        return null;
+    }
+
+    private static String normalize(String text) {
+        return Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT)
+                .trim();
+    }
+}
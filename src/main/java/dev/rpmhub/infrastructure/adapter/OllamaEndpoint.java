@@ -0,0 +1,79 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.adapter;
+
+import java.time.Duration;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.output.TokenUsage;
+import io.quarkiverse.langchain4j.ollama.Message;
+import io.quarkiverse.langchain4j.ollama.OllamaClient;
+import io.quarkiverse.langchain4j.ollama.Role;
+import io.smallrye.mutiny.subscription.Cancellable;
+
+/**
+ * An Ollama instance streaming chat generations over its HTTP API.
+ *
+ * Unlike the langchain4j streaming model, which keeps its HTTP subscription
+ * to itself, cancelling a generation here closes the response stream, and
+ * Ollama stops generating when its client goes away.
+ *
+ * The model of the request, when set, replaces the default model of the
+ * endpoint: one Ollama instance serves every model tier.
+ */
+public class OllamaEndpoint implements LlmBackendPool.Endpoint {
+
+    private final OllamaClient client;
+    private final String model;
+
+    public OllamaEndpoint(String baseUrl, String model, Duration timeout) {
+        this.client = new OllamaClient(baseUrl, timeout, false, false, null, null);
+        this.model = model;
+    }
+
+    @Override
+    public Cancellable chat(ChatRequest request, StreamingChatResponseHandler handler) {
+        StringBuilder text = new StringBuilder();
+        io.quarkiverse.langchain4j.ollama.ChatRequest ollamaRequest = io.quarkiverse.langchain4j.ollama.ChatRequest
+                .builder()
+                .model(request.modelName() != null ? request.modelName() : model)
+                .messages(request.messages().stream().map(OllamaEndpoint::toOllama).toList())
+                .stream(true)
+                .build();
+        return client.streamingChat(ollamaRequest).subscribe().with(
+                response -> {
+                    String token = response.message() == null ? null : response.message().content();
+                    if (token != null && !token.isEmpty()) {
+                        text.append(token);
+                        handler.onPartialResponse(token);
+                    }
+                    if (Boolean.TRUE.equals(response.done())) {
+                        handler.onCompleteResponse(ChatResponse.builder()
+                                .aiMessage(AiMessage.from(text.toString()))
+                                .tokenUsage(new TokenUsage(response.promptEvalCount(), response.evalCount()))
+                                .build());
+                    }
+                },
+                handler::onError);
+    }
+
+    private static Message toOllama(ChatMessage message) {
+        return switch (message) {
+            case SystemMessage system -> Message.builder().role(Role.SYSTEM).content(system.text()).build();
+            case UserMessage user -> Message.builder().role(Role.USER).content(user.singleText()).build();
+            case AiMessage ai -> Message.builder().role(Role.ASSISTANT).content(ai.text()).build();
+            default -> throw new IllegalArgumentException("Mensagem não suportada: " + message.type());
+        };
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.adapter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ai.djl.huggingface.tokenizers.Encoding;
+import ai.djl.huggingface.tokenizers.HuggingFaceTokenizer;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.scoring.ScoringModel;
+
+/**
+ * ScoringModel running a BERT-style cross-encoder (e.g. ms-marco-MiniLM-L-6-v2
+ * exported to ONNX) in-process with ONNX Runtime. Each (query, segment) pair
+ * is encoded together and the model's single logit is returned as the score,
+ * mapped to (0, 1) with a sigmoid.
+ *
+ * The session is shared and thread-safe, and each call runs on one thread, so
+ * callers parallelize by scoring batches concurrently.
+ */
+public class OnnxCrossEncoderScoringModel implements ScoringModel, AutoCloseable {
+
+    private static final String INPUT_IDS = "input_ids";
+    private static final String ATTENTION_MASK = "attention_mask";
+    private static final String TOKEN_TYPE_IDS = "token_type_ids";
+
+    private final OrtEnvironment environment;
+    private final OrtSession session;
+    private final HuggingFaceTokenizer tokenizer;
+    private final boolean usesTokenTypes;
+
+    /**
+     * Loads the model and its tokenizer.
+     *
+     * @param modelPath     the ONNX model file
+     * @param tokenizerPath the tokenizer.json of the model
+     * @param maxLength     the maximum number of tokens of a pair; the
+     *                      segment is truncated, never the query
+     * @throws IOException  if the model or the tokenizer cannot be loaded
+     */
+    public OnnxCrossEncoderScoringModel(Path modelPath, Path tokenizerPath, int maxLength) throws IOException {
+        try {
+            this.environment = OrtEnvironment.getEnvironment();
+            OrtSession.SessionOptions options = new OrtSession.SessionOptions();
+            options.setIntraOpNumThreads(1);
+            this.session = environment.createSession(modelPath.toString(), options);
+            this.usesTokenTypes = session.getInputNames().contains(TOKEN_TYPE_IDS);
+        } catch (OrtException e) {
+            throw new IOException("Could not load cross-encoder model " + modelPath, e);
+        }
+        this.tokenizer = HuggingFaceTokenizer.newInstance(tokenizerPath, Map.of(
+                "truncation", "only_second",
+                "maxLength", String.valueOf(maxLength),
+                "padding", "false"));
+    }
+
+    @Override
+    public Response<List<Double>> scoreAll(List<TextSegment> segments, String query) {
+        if (segments.isEmpty()) {
+            return Response.from(List.of());
+        }
+
+        Encoding[] encodings = new Encoding[segments.size()];
+        int length = 0;
+        for (int i = 0; i < encodings.length; i++) {
+            encodings[i] = tokenizer.encode(query, segments.get(i).text());
+            length = Math.max(length, encodings[i].getIds().length);
+        }
+
+        // Pad the batch to its longest pair
+        long[][] inputIds = new long[encodings.length][length];
+        long[][] attentionMask = new long[encodings.length][length];
+        long[][] tokenTypeIds = new long[encodings.length][length];
+        for (int i = 0; i < encodings.length; i++) {
+            long[] ids = encodings[i].getIds();
+            System.arraycopy(ids, 0, inputIds[i], 0, ids.length);
+            System.arraycopy(encodings[i].getAttentionMask(), 0, attentionMask[i], 0, ids.length);
+            System.arraycopy(encodings[i].getTypeIds(), 0, tokenTypeIds[i], 0, ids.length);
+        }
+
+        Map<String, OnnxTensor> inputs = new HashMap<>();
+        try {
+            inputs.put(INPUT_IDS, OnnxTensor.createTensor(environment, inputIds));
+            inputs.put(ATTENTION_MASK, OnnxTensor.createTensor(environment, attentionMask));
+            if (usesTokenTypes) {
+                inputs.put(TOKEN_TYPE_IDS, OnnxTensor.createTensor(environment, tokenTypeIds));
+            }
+            try (OrtSession.Result result = session.run(inputs)) {
+                Object logits = result.get(0).getValue();
+                List<Double> scores = new ArrayList<>(encodings.length);
+                for (int i = 0; i < encodings.length; i++) {
+                    float logit = logits instanceof float[][] matrix ? matrix[i][0] : ((float[]) logits)[i];
+                    scores.add(1 / (1 + Math.exp(-logit)));
+                }
+                return Response.from(scores);
+            }
+        } catch (OrtException e) {
+            throw new IllegalStateException("Cross-encoder inference failed", e);
+        } finally {
+            inputs.values().forEach(OnnxTensor::close);
+        }
+    }
+
+    @Override
+    public void close() throws OrtException {
+        session.close();
+        tokenizer.close();
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.adapter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.embedding.onnx.HuggingFaceTokenCountEstimator;
+import dev.rpmhub.domain.model.AIRequest;
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * Lays out the messages of a contextual generation from the most to the least
+ * stable part: the system message, the previous turns of the conversation as
+ * chat messages, and a last user message with the retrieved context and the
+ * question.
+ *
+ * Everything before the last message is identical to the previous turn of
+ * the same conversation, so the model runtime (Ollama) reuses its KV cache for
+ * that prefix and only evaluates the new turns. The turns come from the chat
+ * memory, which drops the oldest ones in steps so the prefix stays the same
+ * for several turns after its window is full.
+ *
+ * Single questions have no previous turns: their prompt is the system
+ * message and the question with its retrieved context.
+ */
+@ApplicationScoped
+public class PromptAssembler {
+
+    static final String SYSTEM_MESSAGE = "Você é um assistente de programação " +
+            "para estudantes você deve detalhar os exemplos de código e explicar " +
+            "conceitos. Responda em português. " +
+            "IMPORTANTE: Sempre formate suas respostas com quebras de linha adequadas. " +
+            "Use quebras de linha duplas (\\n\\n) para separar parágrafos e seções. " +
+            "Use quebras de linha simples (\\n) dentro de parágrafos quando necessário. " +
+            "Formate listas, títulos e seções com espaçamento adequado para melhor legibilidade.";
+
+    /**
+     * Number of previous prompts remembered to measure the reused prefix.
+     */
+    private static final int TRACKED_CONVERSATIONS = 1024;
+
+    private final HuggingFaceTokenCountEstimator tokenCountEstimator = new HuggingFaceTokenCountEstimator();
+
+    /**
+     * Hash and estimated token count of each message of the last prompt of
+     * each conversation, guarded by itself.
+     */
+    private final Map<String, long[]> lastPrompts = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, long[]> eldest) {
+            return size() > TRACKED_CONVERSATIONS;
+        }
+    };
+
+    /**
+     * An assembled prompt.
+     *
+     * @param messages     the messages to send, in order
+     * @param tokens       the estimated number of tokens of the messages
+     * @param reusedTokens the estimated number of tokens of the prefix shared
+     *                     with the previous prompt of the conversation
+     */
+    public record Prompt(List<ChatMessage> messages, int tokens, int reusedTokens) {
+    }
+
+    /**
+     * Assembles the prompt of a contextual generation.
+     *
+     * @param request the request with the context and question
+     * @param history the previous turns of the conversation, oldest first
+     * @return the prompt
+     */
+    public Prompt contextual(AIRequest request, List<ChatMessage> history) {
+        List<ChatMessage> messages = new ArrayList<>();
+        messages.add(SystemMessage.from(SYSTEM_MESSAGE));
+        messages.addAll(history);
+        messages.add(UserMessage.from(question(request.getContext(), request.getPrompt())));
+        return measure(request.getSession(), messages);
+    }
+
+    /**
+     * Assembles the prompt of a single question, which has no previous turns
+     * and so no prefix to reuse.
+     *
+     * @param request the request with the context and question
+     * @return the prompt
+     */
+    public Prompt single(AIRequest request) {
+        return measure(null, List.of(SystemMessage.from(SYSTEM_MESSAGE),
+                UserMessage.from(question(request.getContext(), request.getPrompt()))));
+    }
+
+    private static String question(String context, String prompt) {
+        if (context == null || context.isBlank()) {
+            return "Pergunta: " + prompt;
+        }
+        return "Contexto:\n" + context + "\n\nPergunta: " + prompt;
+    }
+
+    /**
+     * Estimates the tokens of the prompt and of the prefix it shares with the
+     * previous prompt of the conversation, and remembers it for the next turn.
+     */
+    private Prompt measure(String conversation, List<ChatMessage> messages) {
+        long[] current = new long[messages.size() * 2];
+        int tokens = 0;
+        for (int i = 0; i < messages.size(); i++) {
+            current[2 * i] = Objects.hash(messages.get(i).type(), text(messages.get(i)));
+            current[2 * i + 1] = tokenCountEstimator.estimateTokenCountInText(text(messages.get(i)));
+            tokens += (int) current[2 * i + 1];
+        }
+
+        long[] previous;
+        synchronized (lastPrompts) {
+            previous = conversation == null ? null : lastPrompts.put(conversation, current);
+        }
+        // The last message of the previous prompt held its context; only
+        // the messages before it can still be cached as they are
+        int shared = previous == null ? 0 : Math.min(previous.length / 2 - 1, messages.size());
+        int reused = 0;
+        for (int i = 0; i < shared && previous[2 * i] == current[2 * i]; i++) {
+            reused += (int) current[2 * i + 1];
+        }
+        return new Prompt(Collections.unmodifiableList(messages), tokens, reused);
+    }
+
+    private static String text(ChatMessage message) {
+        return switch (message) {
+            case SystemMessage system -> system.text();
+            case UserMessage user -> user.singleText();
+            case AiMessage ai -> ai.text();
+            default -> message.toString();
+        };
+    }
+}
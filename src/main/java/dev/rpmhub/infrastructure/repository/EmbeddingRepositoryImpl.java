@@ -8,30 +8,60 @@
 package dev.rpmhub.infrastructure.repository;
 
 import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.document.Metadata;
 import dev.langchain4j.data.document.loader.FileSystemDocumentLoader;
+import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.model.embedding.onnx.HuggingFaceTokenCountEstimator;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
 import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
 import dev.langchain4j.store.embedding.EmbeddingStore;
-import dev.langchain4j.store.embedding.EmbeddingStoreIngestor;
+import dev.langchain4j.store.embedding.filter.Filter;
+import dev.rpmhub.domain.model.OverloadedException;
 import dev.rpmhub.domain.model.RagQuery;
 import dev.rpmhub.domain.model.RagResponse;
 import dev.rpmhub.domain.port.EmbeddingRepository;
+import dev.rpmhub.domain.port.MetricsService;
+import dev.rpmhub.infrastructure.service.BulkheadService;
+import dev.rpmhub.infrastructure.service.CrossEncoderService;
 import dev.rpmhub.infrastructure.service.PDFExtractorService;
+import dev.rpmhub.infrastructure.util.Bm25Index;
 import dev.rpmhub.infrastructure.util.BlockingToReactive;
+import dev.rpmhub.infrastructure.util.Bulkhead;
+import dev.rpmhub.infrastructure.util.QuantizedVectorIndex;
+import dev.rpmhub.infrastructure.util.Tracing;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
 import io.quarkus.logging.Log;
 import io.smallrye.mutiny.Multi;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
 import static dev.langchain4j.data.document.splitter.DocumentSplitters.recursive;
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Pattern;
 
 /**
  * Implementation of the EmbeddingRepository interface using LangChain4j.
@@ -39,99 +69,595 @@ import java.util.List;
 @ApplicationScoped
 public class EmbeddingRepositoryImpl implements EmbeddingRepository {
 
+        /**
+         * Pipeline name used to tag the retrieval stage metrics.
+         */
+        private static final String PIPELINE = "retrieval";
+
+        /**
+         * Segment metadata: the position of the chunk in its document (see
+         * SegmentIndex for the document and generation keys).
+         */
+        private static final String CHUNK_SEQ = "chunk_seq";
+
+        /**
+         * Number of query embeddings kept, so a prompt already embedded by a
+         * prefetch or a previous question is not embedded again.
+         */
+        private static final int CACHED_QUERY_EMBEDDINGS = 512;
+
+        /**
+         * Filterable segment metadata (see RagQuery.FILTER_KEYS): the course
+         * (first directory under rag.location), the file name, the PDF page
+         * and the Markdown section.
+         */
+        private static final String COURSE = "course";
+        private static final String FILE = "file";
+        private static final String PAGE = "page";
+        private static final String SECTION = "section";
+
+        private static final Pattern HEADING = Pattern.compile("#{1,6}\\s+(.+?)[\\s#]*");
+
         private final EmbeddingStore<TextSegment> embeddingStore;
         private final EmbeddingModel embeddingModel;
         private final PDFExtractorService pdfService;
+        private final MetricsService metricsService;
+        private final Tracer tracer;
+        private final CrossEncoderService crossEncoderService;
+        private final BulkheadService bulkheadService;
+        private final HuggingFaceTokenCountEstimator tokenCountEstimator = new HuggingFaceTokenCountEstimator();
+
+        /**
+         * Number of candidates fetched from the store for MMR re-ranking.
+         */
+        private final int mmrCandidates;
+
+        /**
+         * How many times the best BM25 score must exceed the second one to
+         * skip the vector search; 0 disables skipping.
+         */
+        private final double lexicalSkipRatio;
+
+        /**
+         * Where the vector search runs: in Chroma, or over the in-process
+         * vector index when a scan mode is configured.
+         */
+        private final Optional<QuantizedVectorIndex.Mode> localVectorSearch;
+
+        /**
+         * Oversampling of a quantized scan: candidates re-scored with full
+         * precision per requested result.
+         */
+        private final int rescoreFactor;
+
+        /**
+         * Splits documents into non-overlapping chunks; context across chunk
+         * boundaries is restored at retrieval time by neighbour expansion.
+         */
+        private final DocumentSplitter splitter;
+
+        /**
+         * Files read and split in parallel during a full ingestion.
+         */
+        private final int extractionThreads;
+
+        /**
+         * BM25 and vector indexes over the segments of the active generation,
+         * swapped in as a whole once a new generation is validated.
+         */
+        private final IndexGenerations generations;
+
+        /**
+         * Fuses, re-ranks, expands and packs the retrieved chunks.
+         */
+        private final RetrievalPostProcessor postProcessor;
+
+        /**
+         * Embeddings of recent queries, guarded by itself.
+         */
+        private final Map<String, Embedding> queryEmbeddings = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Embedding> eldest) {
+                        return size() > CACHED_QUERY_EMBEDDINGS;
+                }
+        };
 
         @Inject
         public EmbeddingRepositoryImpl(
                         EmbeddingStore<TextSegment> embeddingStore,
                         EmbeddingModel embeddingModel,
-                        PDFExtractorService pdfExtractorService) {
+                        PDFExtractorService pdfExtractorService,
+                        MetricsService metricsService,
+                        Tracer tracer,
+                        CrossEncoderService crossEncoderService,
+                        BulkheadService bulkheadService,
+                        @ConfigProperty(name = "rag.retrieval.mmr.candidates", defaultValue = "20") int mmrCandidates,
+                        @ConfigProperty(name = "rag.retrieval.mmr.lambda", defaultValue = "0.7") double mmrLambda,
+                        @ConfigProperty(name = "rag.retrieval.bm25.skip-vector-ratio", defaultValue = "0") double lexicalSkipRatio,
+                        @ConfigProperty(name = "rag.retrieval.vector-search", defaultValue = "chroma") String vectorSearch,
+                        @ConfigProperty(name = "rag.retrieval.vector-search.rescore-factor", defaultValue = "4") int rescoreFactor,
+                        @ConfigProperty(name = "rag.ingestion.chunk-size", defaultValue = "500") int chunkSize,
+                        @ConfigProperty(name = "rag.ingestion.chunk-overlap", defaultValue = "0") int chunkOverlap,
+                        @ConfigProperty(name = "rag.retrieval.neighbours", defaultValue = "1") int neighbours,
+                        @ConfigProperty(name = "rag.indexing.min-chunk-ratio", defaultValue = "0.5") double minChunkRatio,
+                        @ConfigProperty(name = "rag.indexing.validation-samples", defaultValue = "8") int validationSamples,
+                        @ConfigProperty(name = "rag.indexing.validation-min-recall", defaultValue = "0.8") double validationMinRecall,
+                        @ConfigProperty(name = "rag.indexing.gc-delay-seconds", defaultValue = "30") long gcDelaySeconds,
+                        @ConfigProperty(name = "rag.ingestion.extraction-threads", defaultValue = "1") int extractionThreads) {
                 this.embeddingStore = embeddingStore;
                 this.embeddingModel = embeddingModel;
                 this.pdfService = pdfExtractorService;
+                this.metricsService = metricsService;
+                this.tracer = tracer;
+                this.crossEncoderService = crossEncoderService;
+                this.bulkheadService = bulkheadService;
+                this.mmrCandidates = mmrCandidates;
+                this.lexicalSkipRatio = lexicalSkipRatio;
+                this.localVectorSearch = "chroma".equalsIgnoreCase(vectorSearch) ? Optional.empty()
+                                : Optional.of(QuantizedVectorIndex.Mode.valueOf(vectorSearch.toUpperCase(Locale.ROOT)));
+                this.rescoreFactor = Math.max(1, rescoreFactor);
+                this.splitter = recursive(chunkSize, chunkOverlap, tokenCountEstimator);
+                this.extractionThreads = extractionThreads;
+                this.generations = new IndexGenerations(embeddingStore, bulkheadService, localVectorSearch,
+                                this.rescoreFactor, minChunkRatio, validationSamples, validationMinRecall,
+                                gcDelaySeconds);
+                this.postProcessor = new RetrievalPostProcessor(crossEncoderService, tokenCountEstimator, mmrLambda,
+                                neighbours);
+        }
+
+        @PreDestroy
+        void close() {
+                generations.close();
         }
 
         /**
          * Searches for relevant chunks based on the provided RagQuery.
          *
+         * Candidates come from the vector store and from the in-process BM25
+         * index, fused with Reciprocal Rank Fusion, then re-ranked with MMR
+         * and expanded with their neighbouring chunks.
+         * When BM25 alone is confident about the answer, the embedding and
+         * vector search are skipped, and so is the minimum similarity of the
+         * query, which only applies to the vector matches. A search
+         * rejected by a full bulkhead fails with an OverloadedException, like
+         * a request rejected by the admission control.
+         *
          * @param query the RagQuery containing the search parameters
          * @return a Multi emitting RagResponse objects with the search results
          */
         @Override
         public Multi<RagResponse> searchChunks(RagQuery query) {
-                // Use wrapper to execute blocking operations (embedding + search) on executor thread
-                // and emit result back on EventLoop thread
-                return BlockingToReactive.wrap(() -> {
+                // Capture the trace context of the caller, since the blocking
+                // operations run on an executor thread
+                Context parent = Context.current();
+                int pool = Math.max(query.getMaxResults(), mmrCandidates);
+
+                // Read before the index: once a build is swapped in, the index
+                // has its generation and the build marker is ignored
+                String pending = generations.building();
+                SegmentIndex index = generations.active();
+
+                // Use wrapper to execute the retrieval (BM25, embedding, search and
+                // re-ranking) on executor thread and emit result back on EventLoop thread
+                return BlockingToReactive.wrap("retrieval", () -> Tracing.inSpan(tracer,
+                                "EmbeddingRepository.searchChunks", parent,
+                                searchSpan -> {
+                        Context searchContext = parent.with(searchSpan);
+                        searchSpan.setAttribute("rag.query.max_results", query.getMaxResults());
+                        searchSpan.setAttribute("rag.query.min_score", query.getMinScore());
+                        searchSpan.setAttribute("rag.query.filters", query.getFilters().toString());
+
+                        BitSet allowed = index.allowed(query.getFilters());
+                        long lexicalStart = System.nanoTime();
+                        Bm25Index.Result lexical = index.bm25().search(query.getQuery(), pool, allowed);
+                        metricsService.recordStage(PIPELINE, "lexical_search", lexicalStart);
+
+                        if (isConfident(lexical)) {
+                                searchSpan.setAttribute("rag.search.vector_skipped", true);
+                                // BM25 scores are not similarities: without a vector
+                                // search there is no top similarity to report
+                                return respond(query, postProcessor.fuse(List.of(), lexical, index, pool), index, allowed,
+                                                Double.NaN, searchSpan);
+                        }
+
                         // These operations are blocking:
                         // 1. embeddingModel.embed() - ML model processing
                         // 2. embeddingStore.search() - Database query to Chroma
-                        EmbeddingSearchRequest searchRequest = EmbeddingSearchRequest.builder()
-                                        .queryEmbedding(embeddingModel.embed(query.getQuery())
-                                                        .content())
-                                        .minScore(query.getMinScore())
-                                        .maxResults(query.getMaxResults())
-                                        .build();
-
-                        var matches = embeddingStore.search(searchRequest).matches();
-                        var contexts = matches.stream()
-                                        .map(match -> match.embedded().text())
-                                        .toList();
+                        var queryEmbedding = Tracing.inSpan(tracer, "EmbeddingModel.embed", searchContext, span -> {
+                                long embeddingStart = System.nanoTime();
+                                var embedding = embedQuery(query.getQuery());
+                                metricsService.recordStage(PIPELINE, "embedding", embeddingStart);
+                                span.setAttribute("rag.embedding.dimension", embedding.dimension());
+                                return embedding;
+                        });
 
-                        double score = matches.isEmpty() ? 0.0 : matches.get(0).score();
+                        var matches = Tracing.inSpan(tracer, "EmbeddingStore.search", searchContext, span -> {
+                                long searchStart = System.nanoTime();
+                                var found = localVectorSearch.isPresent() && index.size() > 0
+                                                ? searchLocally(index, queryEmbedding, query.getMinScore(), pool,
+                                                                allowed)
+                                                : bulkheadService.named(Bulkhead.VECTOR_SEARCH).call(() -> embeddingStore.search(
+                                                                EmbeddingSearchRequest.builder()
+                                                                                .queryEmbedding(queryEmbedding)
+                                                                                .minScore(query.getMinScore())
+                                                                                .maxResults(pool)
+                                                                                .filter(storeFilter(index, pending,
+                                                                                                query.getFilters()))
+                                                                                .build()).matches());
+                                metricsService.recordStage(PIPELINE, "vector_search", searchStart);
+                                span.setAttribute("rag.search.matches", found.size());
+                                span.setAttribute("rag.search.vector_index",
+                                                localVectorSearch.map(Enum::name).orElse("chroma"));
+                                return found;
+                        });
+
+                        List<RetrievalPostProcessor.Candidate> candidates = postProcessor.fuse(matches, lexical,
+                                        index, pool);
+                        if (crossEncoderService.isEnabled()) {
+                                searchSpan.setAttribute("rag.search.cross_encoder",
+                                                postProcessor.crossEncode(query.getQuery(), candidates));
+                        }
 
-                        return new RagResponse(query.getQuery(), contexts, score);
-                })
+                        double score = matches.isEmpty() ? 0.0 : matches.get(0).score();
+                        return respond(query, candidates, index, allowed, score, searchSpan);
+                }))
+                .onFailure(RejectedExecutionException.class).transform(e -> new OverloadedException(
+                                "Serviço sobrecarregado, tente novamente em instantes", 1))
                 .toMulti();
         }
 
+        /**
+         * Searches the in-process vector index: a scan over the quantized
+         * vectors followed by exact re-scoring of the best candidates.
+         */
+        private List<EmbeddingMatch<TextSegment>> searchLocally(SegmentIndex index, Embedding queryEmbedding,
+                        double minScore, int maxResults, BitSet allowed) {
+                var result = index.vectors().search(queryEmbedding.vector(), maxResults, maxResults * rescoreFactor,
+                                allowed);
+                List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>(result.ids().length);
+                for (int i = 0; i < result.ids().length; i++) {
+                        int id = result.ids()[i];
+                        // Same scale as the store: (cosine + 1) / 2
+                        double score = (result.scores()[i] + 1) / 2;
+                        if (score >= minScore) {
+                                matches.add(new EmbeddingMatch<>(score, index.ids().get(id),
+                                                Embedding.from(index.vectors().vector(id)),
+                                                TextSegment.from(index.texts().get(id))));
+                        }
+                }
+                return matches;
+        }
+
+        /**
+         * Restricts a store search to the active generation and the query
+         * filters. Before the first generation of this process is active, the
+         * chunks of previous runs are searched, except those of the generation
+         * being built.
+         */
+        private static Filter storeFilter(SegmentIndex index, String pending, Map<String, String> filters) {
+                Filter generation = IndexGenerations.storeFilter(index, pending);
+                Filter query = toFilter(filters);
+                if (generation == null || query == null) {
+                        return generation == null ? query : generation;
+                }
+                return Filter.and(generation, query);
+        }
+
+        /**
+         * Translates the query filters to a store filter, so the search only
+         * considers matching chunks. Page numbers are stored as integers.
+         *
+         * @return the conjunction of the filters, or null if there are none
+         */
+        private static Filter toFilter(Map<String, String> filters) {
+                Filter filter = null;
+                for (var entry : filters.entrySet()) {
+                        Filter condition = PAGE.equals(entry.getKey()) && entry.getValue().matches("\\d{1,9}")
+                                        ? metadataKey(PAGE).isEqualTo(Integer.parseInt(entry.getValue()))
+                                        : metadataKey(entry.getKey()).isEqualTo(entry.getValue());
+                        filter = filter == null ? condition : Filter.and(filter, condition);
+                }
+                return filter;
+        }
+
+        /**
+         * Embeds a query on the embedding bulkhead, or returns its embedding
+         * when the same text was embedded recently.
+         */
+        private Embedding embedQuery(String text) {
+                Embedding cached;
+                synchronized (queryEmbeddings) {
+                        cached = queryEmbeddings.get(text);
+                }
+                metricsService.recordCacheAccess("query_embedding", cached != null);
+                if (cached != null) {
+                        return cached;
+                }
+                Embedding embedding = bulkheadService.named(Bulkhead.EMBEDDING)
+                                .call(() -> embeddingModel.embed(text).content());
+                synchronized (queryEmbeddings) {
+                        queryEmbeddings.put(text, embedding);
+                }
+                return embedding;
+        }
+
+        /**
+         * Checks whether the BM25 result is clear enough to answer without the
+         * vector search: every query term is indexed and the best chunk scores
+         * well above the second one.
+         */
+        private boolean isConfident(Bm25Index.Result lexical) {
+                if (lexicalSkipRatio <= 0 || lexical.docs().length == 0
+                                || lexical.matchedTerms() < lexical.queryTerms()) {
+                        return false;
+                }
+                return lexical.docs().length == 1 || lexical.scores()[0] >= lexicalSkipRatio * lexical.scores()[1];
+        }
+
+        /**
+         * Re-ranks, expands and packs the fused candidates into the response.
+         */
+        private RagResponse respond(RagQuery query, List<RetrievalPostProcessor.Candidate> candidates,
+                        SegmentIndex index, BitSet allowed, double score, Span searchSpan) {
+                long rerankStart = System.nanoTime();
+                var contexts = postProcessor.select(candidates, query.getMaxResults(), index, allowed,
+                                query.getMaxContextTokens());
+                metricsService.recordStage(PIPELINE, "rerank", rerankStart);
+
+                searchSpan.setAttribute("rag.search.top_score", score);
+                searchSpan.setAttribute("rag.search.selected", contexts.size());
+
+                return new RagResponse(query.getQuery(), contexts, score);
+        }
+
         /**
          * Ingests documents from the specified directory into the embedding store.
          *
+         * The chunks are written as a new generation, tagged in their
+         * metadata, while searches keep using the active one. Once validated,
+         * the new generation is swapped in and the chunks of older ones are
+         * removed; if validation fails, the new chunks are removed instead.
+         * One generation is built at a time.
+         *
          * @param directoryPath the path to the directory containing the documents
          */
         @Override
-        public void ingestDocuments(String directoryPath) {
+        public synchronized void ingestDocuments(String directoryPath) {
+                long start = System.nanoTime();
+                String generation = generations.begin();
                 try {
-                        List<Document> documents = new ArrayList<>();
                         Path dirPath = Path.of(directoryPath);
-
-                        try (var files = Files.walk(dirPath)) {
-                                files.filter(Files::isRegularFile)
-                                        .forEach(file -> {
-                                                if (pdfService.isPdfFile(file)) {
-                                                        String extractedText = pdfService
-                                                                        .extractText(file);
-                                                        if (!extractedText.isEmpty()) {
-                                                                Document pdfDocument = Document
-                                                                                .from(extractedText);
-                                                                documents.add(pdfDocument);
-                                                                Log.info("PDF processado: "
-                                                                                + file.getFileName());
-                                                        }
-                                                } else {
-                                                        Document fileDoc = FileSystemDocumentLoader
-                                                                        .loadDocument(file);
-                                                        documents.add(fileDoc);
-                                                        Log.info("Arquivo processado: " + file.getFileName());
-                                                }
-                                        });
+                        List<Path> files;
+                        try (var paths = Files.walk(dirPath)) {
+                                files = paths.filter(Files::isRegularFile).sorted().toList();
                         }
+                        List<TextSegment> segments = new ArrayList<>();
+                        int fileCount = 0;
+                        for (List<TextSegment> fileSegments : extract(dirPath, files, generation)) {
+                                segments.addAll(fileSegments);
+                                fileCount += fileSegments.isEmpty() ? 0 : 1;
+                        }
+
+                        Log.info("Total de documentos processados: " + fileCount);
 
-                        Log.info("Total de documentos processados: " + documents.size());
+                        // The segments are embedded here, instead of by an
+                        // EmbeddingStoreIngestor, so the BM25 index is built
+                        // over the same segments and store ids
+                        Bulkhead ingestion = bulkheadService.named(Bulkhead.INGESTION);
+                        List<Embedding> embeddings = ingestion.call(() -> embeddingModel.embedAll(segments).content());
+                        List<String> ids = ingestion.call(() -> embeddingStore.addAll(embeddings, segments));
 
-                        EmbeddingStoreIngestor ingestor = EmbeddingStoreIngestor.builder()
-                                        .embeddingStore(embeddingStore)
-                                        .embeddingModel(embeddingModel)
-                                        .documentSplitter(recursive(500, 250, new HuggingFaceTokenCountEstimator()))
-                                        .build();
+                        List<float[]> vectors = embeddings.stream().map(Embedding::vector).toList();
+                        SegmentIndex candidate = generations.build(generation, segments, ids, vectors);
+                        Log.info("Índice vetorial " + candidate.vectors().mode() + ": "
+                                        + candidate.vectors().scanBytes() + " bytes na varredura, "
+                                        + candidate.vectors().totalBytes() + " bytes no total");
 
-                        ingestor.ingest(documents);
-                        Log.info("Ingestão concluída com sucesso!");
+                        if (!generations.activate(candidate, embeddings)) {
+                                return;
+                        }
+                        metricsService.recordStage("ingestion", "build_generation", start);
+                        Log.info("Ingestão concluída com sucesso! Geração " + generation + " ativa, segmentos indexados: "
+                                        + segments.size());
 
                 } catch (IOException e) {
                         Log.error("Erro ao processar diretório: " + directoryPath, e);
+                } finally {
+                        generations.end();
+                }
+        }
+
+        /**
+         * Re-ingests the given files into the active generation: their chunks
+         * are replaced by the chunks of the current file contents, or removed
+         * if the file (or directory) no longer exists. Other files are not
+         * read or embedded again. Without an active generation, the whole
+         * directory is ingested.
+         *
+         * @param directoryPath the ingested directory
+         * @param changed       the created, modified or deleted paths
+         */
+        @Override
+        public synchronized void ingestFiles(String directoryPath, Collection<Path> changed) {
+                SegmentIndex active = generations.active();
+                if (active.generation() == null) {
+                        ingestDocuments(directoryPath);
+                        return;
+                }
+
+                long start = System.nanoTime();
+                Path dirPath = Path.of(directoryPath).toAbsolutePath().normalize();
+                Set<String> affected = new HashSet<>();
+                List<TextSegment> added = new ArrayList<>();
+                for (Path path : changed.stream().map(path -> path.toAbsolutePath().normalize()).sorted().toList()) {
+                        if (!path.startsWith(dirPath) || path.equals(dirPath)) {
+                                continue;
+                        }
+                        affected.add(documentId(dirPath, path));
+                        if (Files.isRegularFile(path)) {
+                                added.addAll(split(loadFile(dirPath, path), active.generation()));
+                        }
+                }
+                if (affected.isEmpty()) {
+                        return;
+                }
+
+                Bulkhead ingestion = bulkheadService.named(Bulkhead.INGESTION);
+                List<Embedding> embeddings = added.isEmpty() ? List.of()
+                                : ingestion.call(() -> embeddingModel.embedAll(added).content());
+                List<String> addedIds = added.isEmpty() ? List.of()
+                                : ingestion.call(() -> embeddingStore.addAll(embeddings, added));
+
+                // Keep the chunks of the other files, in order, and append the new ones
+                List<TextSegment> segments = new ArrayList<>();
+                List<String> ids = new ArrayList<>();
+                List<float[]> vectors = new ArrayList<>();
+                List<String> removedIds = new ArrayList<>();
+                for (int i = 0; i < active.size(); i++) {
+                        String documentId = active.segments().get(i).metadata().getString(SegmentIndex.DOCUMENT_ID);
+                        if (isAffected(documentId, affected)) {
+                                removedIds.add(active.ids().get(i));
+                        } else {
+                                segments.add(active.segments().get(i));
+                                ids.add(active.ids().get(i));
+                                vectors.add(active.vectors().vector(i));
+                        }
+                }
+                segments.addAll(added);
+                ids.addAll(addedIds);
+                embeddings.forEach(embedding -> vectors.add(embedding.vector()));
+
+                generations.update(generations.build(active.generation(), segments, ids, vectors));
+                if (!removedIds.isEmpty()) {
+                        generations.remove(removedIds);
+                }
+                metricsService.recordStage("ingestion", "update_files", start);
+                Log.info("Arquivos reprocessados: " + affected + " (+" + added.size() + " / -" + removedIds.size()
+                                + " segmentos)");
+        }
+
+        private static boolean isAffected(String documentId, Set<String> affected) {
+                if (documentId == null) {
+                        return false;
+                }
+                // A deleted directory affects every document under it
+                return affected.contains(documentId)
+                                || affected.stream().anyMatch(path -> documentId.startsWith(path + "/"));
+        }
+
+        /**
+         * Reads and splits the files, on extraction-threads threads when more
+         * than one is configured.
+         *
+         * @return the segments of each file, in the order of the files
+         */
+        private List<List<TextSegment>> extract(Path directory, List<Path> files, String generation) {
+                if (extractionThreads <= 1) {
+                        return files.stream().map(file -> split(loadFile(directory, file), generation)).toList();
+                }
+                ForkJoinPool pool = new ForkJoinPool(extractionThreads);
+                try {
+                        return pool.submit(() -> files.parallelStream()
+                                        .map(file -> split(loadFile(directory, file), generation))
+                                        .toList()).join();
+                } finally {
+                        pool.shutdown();
+                }
+        }
+
+        /**
+         * Reads a file as documents: the pages of a PDF or the sections of a
+         * text file.
+         */
+        private List<Document> loadFile(Path directory, Path file) {
+                List<Document> documents = new ArrayList<>();
+                if (pdfService.isPdfFile(file)) {
+                        List<String> pages = bulkheadService.named(Bulkhead.PDF_EXTRACTION)
+                                        .call(() -> pdfService.extractPages(file));
+                        for (int page = 0; page < pages.size(); page++) {
+                                if (!pages.get(page).isBlank()) {
+                                        documents.add(Document.from(pages.get(page),
+                                                        fileMetadata(directory, file).put(PAGE, page + 1)));
+                                }
+                        }
+                        Log.info("PDF processado: " + file.getFileName());
+                } else {
+                        String text = FileSystemDocumentLoader.loadDocument(file).text();
+                        sections(text).forEach((section, body) -> {
+                                Metadata metadata = fileMetadata(directory, file);
+                                if (!section.isEmpty()) {
+                                        metadata.put(SECTION, section);
+                                }
+                                documents.add(Document.from(body, metadata));
+                        });
+                        Log.info("Arquivo processado: " + file.getFileName());
+                }
+                return documents;
+        }
+
+        /**
+         * Splits the documents of a file into chunks numbered in order, so
+         * neighbours span its pages and sections.
+         */
+        private List<TextSegment> split(List<Document> documents, String generation) {
+                List<TextSegment> segments = new ArrayList<>();
+                int seq = 0;
+                for (Document document : documents) {
+                        for (TextSegment segment : splitter.split(document)) {
+                                segment.metadata().put(CHUNK_SEQ, seq++).put(SegmentIndex.GENERATION, generation);
+                                segments.add(segment);
+                        }
+                }
+                return segments;
+        }
+
+        /**
+         * Metadata shared by the chunks of a file: its id (the path relative
+         * to the ingested directory), its name and, for files in a
+         * subdirectory, the course (the first directory of the path).
+         */
+        private static Metadata fileMetadata(Path directory, Path file) {
+                Path relative = directory.relativize(file);
+                Metadata metadata = Metadata.from(SegmentIndex.DOCUMENT_ID, documentId(directory, file))
+                                .put(FILE, file.getFileName().toString());
+                if (relative.getNameCount() > 1) {
+                        metadata.put(COURSE, relative.getName(0).toString());
+                }
+                return metadata;
+        }
+
+        private static String documentId(Path directory, Path file) {
+                return directory.relativize(file).toString().replace('\\', '/');
+        }
+
+        /**
+         * Splits a text at its Markdown headings.
+         *
+         * @param text the text of a file
+         * @return the body of each section by heading, in order; text before
+         *         the first heading has an empty heading
+         */
+        private static Map<String, String> sections(String text) {
+                Map<String, String> sections = new LinkedHashMap<>();
+                String heading = "";
+                StringBuilder body = new StringBuilder();
+                for (String line : text.split("\\R", -1)) {
+                        var matcher = HEADING.matcher(line);
+                        if (matcher.matches()) {
+                                addSection(sections, heading, body);
+                                heading = matcher.group(1);
+                                body.setLength(0);
+                        }
+                        body.append(line).append('\n');
+                }
+                addSection(sections, heading, body);
+                return sections;
+        }
+
+        private static void addSection(Map<String, String> sections, String heading, StringBuilder body) {
+                if (!body.toString().isBlank()) {
+                        // Repeated headings are kept in one section
+                        sections.merge(heading, body.toString(), String::concat);
                 }
         }
 }
@@ -0,0 +1,262 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.repository;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import dev.rpmhub.infrastructure.service.BulkheadService;
+import dev.rpmhub.infrastructure.util.Bulkhead;
+import dev.rpmhub.infrastructure.util.QuantizedVectorIndex;
+import io.quarkus.logging.Log;
+
+/**
+ * Index generations of the embedding store.
+ *
+ * A full ingestion writes its chunks to the store as a new generation, tagged
+ * in their metadata, while searches keep using the active one. The new
+ * generation is validated before it is swapped in: it must not be much
+ * smaller than the active one, and sample chunks must be found by a search
+ * with their own embedding. After the swap, the chunks of older generations
+ * are removed once the searches started before it had time to finish.
+ */
+final class IndexGenerations {
+
+    /**
+     * Results checked per sample query when validating a new generation.
+     */
+    private static final int VALIDATION_TOP_K = 5;
+
+    private final EmbeddingStore<TextSegment> embeddingStore;
+    private final BulkheadService bulkheadService;
+
+    /**
+     * Scan mode of the in-process vector index, or empty when the vector
+     * search runs in the store.
+     */
+    private final Optional<QuantizedVectorIndex.Mode> localVectorSearch;
+    private final int rescoreFactor;
+
+    /**
+     * Minimum size of a new generation relative to the active one.
+     */
+    private final double minChunkRatio;
+
+    /**
+     * Number of chunks searched with their own embedding to validate a new
+     * generation, and the fraction that must be found.
+     */
+    private final int validationSamples;
+    private final double validationMinRecall;
+
+    /**
+     * Delay before the chunks of replaced generations are removed.
+     */
+    private final long gcDelaySeconds;
+
+    private final ScheduledExecutorService gcExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "index-gc");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Indexes over the segments of the active generation, swapped as a whole.
+     */
+    private volatile SegmentIndex active = SegmentIndex.EMPTY;
+
+    /**
+     * Generation being written to the store, or null.
+     */
+    private volatile String building;
+
+    IndexGenerations(EmbeddingStore<TextSegment> embeddingStore, BulkheadService bulkheadService,
+            Optional<QuantizedVectorIndex.Mode> localVectorSearch, int rescoreFactor, double minChunkRatio,
+            int validationSamples, double validationMinRecall, long gcDelaySeconds) {
+        this.embeddingStore = embeddingStore;
+        this.bulkheadService = bulkheadService;
+        this.localVectorSearch = localVectorSearch;
+        this.rescoreFactor = rescoreFactor;
+        this.minChunkRatio = minChunkRatio;
+        this.validationSamples = Math.max(1, validationSamples);
+        this.validationMinRecall = validationMinRecall;
+        this.gcDelaySeconds = gcDelaySeconds;
+    }
+
+    void close() {
+        gcExecutor.shutdownNow();
+    }
+
+    /**
+     * The indexes of the active generation.
+     */
+    SegmentIndex active() {
+        return active;
+    }
+
+    /**
+     * Starts writing a new generation.
+     *
+     * @return the id of the new generation
+     */
+    String begin() {
+        building = String.valueOf(System.currentTimeMillis());
+        return building;
+    }
+
+    /**
+     * Ends the generation being written, whether it was swapped in or not.
+     */
+    void end() {
+        building = null;
+    }
+
+    /**
+     * The generation being written to the store, or null. Read it before
+     * the active indexes: once a build is swapped in, the indexes have its
+     * generation and the build marker is ignored.
+     */
+    String building() {
+        return building;
+    }
+
+    /**
+     * Restricts a store search to the generation of the given indexes.
+     * Before the first generation of this process is active, the chunks of
+     * previous runs are searched, except those of the generation being
+     * built.
+     *
+     * @param index   the indexes the search uses
+     * @param pending the generation being built when the search started
+     * @return the generation filter, or null to search every chunk
+     */
+    static Filter storeFilter(SegmentIndex index, String pending) {
+        if (index.generation() != null) {
+            return metadataKey(SegmentIndex.GENERATION).isEqualTo(index.generation());
+        }
+        return pending != null ? metadataKey(SegmentIndex.GENERATION).isNotEqualTo(pending) : null;
+    }
+
+    /**
+     * Builds the local indexes over the segments of a generation. The
+     * segments of a file must be contiguous and in order.
+     */
+    SegmentIndex build(String generation, List<TextSegment> segments, List<String> ids, List<float[]> vectors) {
+        var vectorIndex = QuantizedVectorIndex.build(vectors.toArray(float[][]::new),
+                localVectorSearch.orElse(QuantizedVectorIndex.Mode.FLOAT));
+        return SegmentIndex.of(generation, segments, ids, vectorIndex);
+    }
+
+    /**
+     * Validates a new generation and swaps it in, scheduling the removal of
+     * the older ones. If validation fails, its chunks are removed instead.
+     *
+     * @param candidate  the indexes of the new generation
+     * @param embeddings the embeddings of its segments, in order
+     * @return true if the generation is now active
+     */
+    boolean activate(SegmentIndex candidate, List<Embedding> embeddings) {
+        if (!validate(candidate, embeddings)) {
+            remove(candidate.ids());
+            return false;
+        }
+        active = candidate;
+        String generation = candidate.generation();
+        gcExecutor.schedule(() -> collectGarbage(generation), gcDelaySeconds, TimeUnit.SECONDS);
+        return true;
+    }
+
+    /**
+     * Replaces the indexes of the active generation after some of its files
+     * were re-ingested.
+     */
+    void update(SegmentIndex index) {
+        active = index;
+    }
+
+    /**
+     * Removes chunks from the store, logging instead of failing.
+     */
+    void remove(Collection<String> ids) {
+        removeQuietly(() -> embeddingStore.removeAll(ids));
+    }
+
+    private boolean validate(SegmentIndex candidate, List<Embedding> embeddings) {
+        int activeSize = active.size();
+        if (candidate.size() == 0 || candidate.size() < activeSize * minChunkRatio) {
+            Log.warn("Geração " + candidate.generation() + " descartada: " + candidate.size()
+                    + " segmentos (ativa: " + activeSize + ")");
+            return false;
+        }
+
+        int samples = Math.min(validationSamples, candidate.size());
+        int found = 0;
+        for (int sample = 0; sample < samples; sample++) {
+            int position = (int) ((long) sample * candidate.size() / samples);
+            List<String> texts;
+            if (localVectorSearch.isPresent()) {
+                var result = candidate.vectors().search(embeddings.get(position).vector(),
+                        VALIDATION_TOP_K, VALIDATION_TOP_K * rescoreFactor);
+                texts = Arrays.stream(result.ids()).mapToObj(candidate.texts()::get).toList();
+            } else {
+                var request = EmbeddingSearchRequest.builder()
+                        .queryEmbedding(embeddings.get(position))
+                        .maxResults(VALIDATION_TOP_K)
+                        .filter(metadataKey(SegmentIndex.GENERATION).isEqualTo(candidate.generation()))
+                        .build();
+                texts = bulkheadService.named(Bulkhead.INGESTION)
+                        .call(() -> embeddingStore.search(request)).matches().stream()
+                        .map(match -> match.embedded().text())
+                        .toList();
+            }
+            // Compared by text, so an identical chunk also counts
+            if (texts.contains(candidate.texts().get(position))) {
+                found++;
+            }
+        }
+
+        double recall = (double) found / samples;
+        if (recall < validationMinRecall) {
+            Log.warn("Geração " + candidate.generation() + " descartada: recall de validação " + recall);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Removes the chunks of every generation other than the given one, if it
+     * is still active.
+     */
+    private void collectGarbage(String generation) {
+        if (generation.equals(active.generation())) {
+            removeQuietly(() -> embeddingStore.removeAll(metadataKey(SegmentIndex.GENERATION)
+                    .isNotEqualTo(generation)));
+            Log.info("Gerações anteriores a " + generation + " removidas");
+        }
+    }
+
+    private static void removeQuietly(Runnable removal) {
+        try {
+            removal.run();
+        } catch (RuntimeException e) {
+            Log.warn("Não foi possível remover segmentos do repositório de embeddings", e);
+        }
+    }
+}
@@ -7,19 +7,35 @@
  */
 package dev.rpmhub.infrastructure.repository;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.BiConsumer;
 
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessageDeserializer;
+import dev.langchain4j.data.message.ChatMessageSerializer;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.chat.ChatMemoryProvider;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
 import dev.rpmhub.domain.model.ChatMessage;
 import dev.rpmhub.domain.model.Conversation;
 import dev.rpmhub.domain.model.ConversationMemory;
 import dev.rpmhub.domain.port.ConversationRepository;
 import dev.rpmhub.domain.port.ConversationService;
 import dev.rpmhub.domain.port.MemoryService;
+import dev.rpmhub.domain.port.MetricsService;
 import dev.rpmhub.domain.port.UserRepository;
+import dev.rpmhub.infrastructure.util.Tracing;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
 import io.quarkus.hibernate.reactive.panache.common.WithSession;
 import io.quarkus.hibernate.reactive.panache.common.WithTransaction;
 import io.quarkus.logging.Log;
@@ -27,26 +43,42 @@ import io.quarkus.redis.datasource.ReactiveRedisDataSource;
 import io.quarkus.redis.datasource.keys.ReactiveKeyCommands;
 import io.quarkus.redis.datasource.value.ReactiveValueCommands;
 import io.smallrye.mutiny.Uni;
+import io.vertx.core.Context;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Produces;
 import jakarta.inject.Inject;
 
 /**
  * Implementation of MemoryService using MySQL + Redis hybrid approach.
  * MySQL for persistence, Redis for cache/performance.
+ *
+ * It is also the langchain4j ChatMemoryStore of the model-facing memory: the
+ * turns of each conversation as chat messages, keyed by conversation id and
+ * kept in Redis as JSON. The store keeps at most memory.chat.max-messages
+ * messages and drops the oldest memory.chat.trim-step at a time, so the
+ * prefix sent to the model stays the same for several turns.
  */
 @ApplicationScoped
-public class MemoryServiceImpl implements MemoryService {
+public class MemoryServiceImpl implements MemoryService, ChatMemoryStore {
 
     private static final String CONVERSATION_PREFIX = "conversation:";
     private static final String MEMORY_PREFIX = "memory:";
+    private static final String CHAT_MEMORY_PREFIX = "chat-memory:";
+    private static final Duration REDIS_TIMEOUT = Duration.ofSeconds(5);
+    private static final String REDIS = "redis";
+    private static final String MYSQL = "mysql";
 
     private final ReactiveRedisDataSource reactiveRedisDataSource;
     private final ConversationRepository conversationRepository;
     private final ConversationService conversationService;
     private final UserRepository userRepository;
     private final ChatMessageRepository chatMessageRepository;
+    private final MetricsService metricsService;
+    private final Tracer tracer;
     private final int defaultMaxMessages;
     private final int ttlHours;
+    private final int chatMaxMessages;
+    private final int chatTrimStep;
 
     @Inject
     public MemoryServiceImpl(ReactiveRedisDataSource reactiveRedisDataSource,
@@ -54,15 +86,150 @@ public class MemoryServiceImpl implements MemoryService {
             ConversationService conversationService,
             UserRepository userRepository,
             ChatMessageRepository chatMessageRepository,
+            MetricsService metricsService,
+            Tracer tracer,
             @ConfigProperty(name = "memory.default.max-messages", defaultValue = "50") int defaultMaxMessages,
-            @ConfigProperty(name = "memory.ttl.hours", defaultValue = "24") int ttlHours) {
+            @ConfigProperty(name = "memory.ttl.hours", defaultValue = "24") int ttlHours,
+            @ConfigProperty(name = "memory.chat.max-messages", defaultValue = "20") int chatMaxMessages,
+            @ConfigProperty(name = "memory.chat.trim-step", defaultValue = "10") int chatTrimStep) {
         this.reactiveRedisDataSource = reactiveRedisDataSource;
         this.conversationRepository = conversationRepository;
         this.conversationService = conversationService;
         this.userRepository = userRepository;
         this.chatMessageRepository = chatMessageRepository;
+        this.metricsService = metricsService;
+        this.tracer = tracer;
         this.defaultMaxMessages = defaultMaxMessages;
         this.ttlHours = ttlHours;
+        this.chatMaxMessages = chatMaxMessages;
+        this.chatTrimStep = Math.max(1, chatTrimStep);
+    }
+
+    /**
+     * Chat memories backed by this store, keyed by conversation id. The store
+     * does the windowing, so the memory itself keeps every message it loads.
+     *
+     * @return the chat memory provider
+     */
+    @Produces
+    @ApplicationScoped
+    ChatMemoryProvider chatMemoryProvider() {
+        return memoryId -> MessageWindowChatMemory.builder()
+                .id(memoryId)
+                .maxMessages(Integer.MAX_VALUE)
+                .chatMemoryStore(this)
+                .build();
+    }
+
+    /**
+     * Loads the chat messages of a conversation. Blocks: must not be called
+     * on the event loop. A conversation without chat memory yet (started
+     * before it existed) is rebuilt from its cached conversation memory.
+     *
+     * @param memoryId the conversation id
+     * @return the messages, oldest first
+     * @throws IllegalStateException when called on an event loop thread
+     */
+    @Override
+    public List<dev.langchain4j.data.message.ChatMessage> getMessages(Object memoryId) {
+        requireBlockingAllowed();
+        String json = instrumented(REDIS, "get",
+                reactiveRedisDataSource.value(String.class).get(CHAT_MEMORY_PREFIX + memoryId))
+                .await().atMost(REDIS_TIMEOUT);
+        if (json != null) {
+            return new ArrayList<>(ChatMessageDeserializer.messagesFromJson(json));
+        }
+        ConversationMemory memory = getConversationMemoryFromRedis(MEMORY_PREFIX + memoryId)
+                .onItem().ifNull().switchTo(() -> getConversationMemoryFromRedis(CONVERSATION_PREFIX + memoryId))
+                .onFailure().recoverWithNull()
+                .await().atMost(REDIS_TIMEOUT);
+        return memory == null ? new ArrayList<>() : toChatMessages(memory.getMessages());
+    }
+
+    @Override
+    public void updateMessages(Object memoryId, List<dev.langchain4j.data.message.ChatMessage> messages) {
+        requireBlockingAllowed();
+        String json = ChatMessageSerializer.messagesToJson(window(messages));
+        instrumented(REDIS, "setex", reactiveRedisDataSource.value(String.class)
+                .setex(CHAT_MEMORY_PREFIX + memoryId, ttlHours * 3600L, json))
+                .await().atMost(REDIS_TIMEOUT);
+    }
+
+    @Override
+    public void deleteMessages(Object memoryId) {
+        requireBlockingAllowed();
+        instrumented(REDIS, "del", reactiveRedisDataSource.key().del(CHAT_MEMORY_PREFIX + memoryId))
+                .await().atMost(REDIS_TIMEOUT);
+    }
+
+    /**
+     * The chat memory store waits for Redis, which must never happen on an
+     * event loop thread. Its callers (AIServiceAdapter) run it on the
+     * "memory" executor of BlockingToReactive; fail at once if one does not,
+     * instead of stalling the event loop.
+     */
+    private static void requireBlockingAllowed() {
+        if (Context.isOnEventLoopThread()) {
+            throw new IllegalStateException("Chat memory store called on an event loop thread: "
+                    + Thread.currentThread().getName());
+        }
+    }
+
+    /**
+     * Keeps at most chatMaxMessages messages, dropping the oldest in steps of
+     * chatTrimStep, and starts the window at a user message.
+     */
+    private List<dev.langchain4j.data.message.ChatMessage> window(
+            List<dev.langchain4j.data.message.ChatMessage> messages) {
+        int excess = messages.size() - chatMaxMessages;
+        int start = excess <= 0 ? 0 : Math.min(messages.size(), (excess + chatTrimStep - 1) / chatTrimStep * chatTrimStep);
+        while (start < messages.size() && !(messages.get(start) instanceof UserMessage)) {
+            start++;
+        }
+        return messages.subList(start, messages.size());
+    }
+
+    /**
+     * Maps stored messages to chat messages, merging consecutive fragments of
+     * a response. Responses still streaming, aborted or empty are left out,
+     * as is a question without an answer, such as the question of the turn
+     * in progress: it is added to the memory with its context once answered.
+     * Rows without a status predate it and are complete.
+     */
+    static List<dev.langchain4j.data.message.ChatMessage> toChatMessages(List<ChatMessage> stored) {
+        List<ChatMessage> ordered = stored.stream()
+                .filter(message -> message.getType() != ChatMessage.MessageType.SYSTEM)
+                .filter(MemoryServiceImpl::complete)
+                .sorted(Comparator.comparing(ChatMessage::getTimestamp,
+                        Comparator.nullsFirst(Comparator.naturalOrder())))
+                .toList();
+        List<dev.langchain4j.data.message.ChatMessage> messages = new ArrayList<>();
+        String question = null;
+        StringBuilder answer = new StringBuilder();
+        for (int i = 0; i < ordered.size(); i++) {
+            ChatMessage message = ordered.get(i);
+            if (message.getType() == ChatMessage.MessageType.USER) {
+                // A later question replaces one left without an answer
+                question = message.getContent();
+                continue;
+            }
+            answer.append(message.getContent());
+            boolean last = i + 1 == ordered.size() || ordered.get(i + 1).getType() == ChatMessage.MessageType.USER;
+            if (last && question != null) {
+                messages.add(UserMessage.from(question));
+                messages.add(AiMessage.from(answer.toString()));
+                question = null;
+            }
+            if (last) {
+                answer.setLength(0);
+            }
+        }
+        return messages;
+    }
+
+    private static boolean complete(ChatMessage message) {
+        return (message.getStatus() == null || message.getStatus() == ChatMessage.MessageStatus.COMPLETE)
+                && message.getContent() != null && !message.getContent().isBlank();
     }
 
     @Override
@@ -90,7 +257,7 @@ public class MemoryServiceImpl implements MemoryService {
                 .chain(memory -> {
                     ReactiveValueCommands<String, ConversationMemory> valueCommands = reactiveRedisDataSource
                             .value(ConversationMemory.class);
-                    return valueCommands.setex(key, ttlHours * 3600L, memory);
+                    return instrumented(REDIS, "setex", valueCommands.setex(key, ttlHours * 3600L, memory));
                 })
                 .onFailure().invoke(e -> Log.error("Error saving message to Redis: " + e.getMessage(), e))
                 .replaceWithVoid();
@@ -115,7 +282,7 @@ public class MemoryServiceImpl implements MemoryService {
                 
                 // 2. Salvar no MySQL (persistência permanente)
                 // Buscar conversa para verificar existência e obter referência
-                return conversationRepository.findById(message.getConversationId())
+                return instrumented(MYSQL, "find_conversation", conversationRepository.findById(message.getConversationId()))
                     .onItem().ifNull().failWith(() -> new IllegalArgumentException("Conversa não encontrada"))
                     .chain(conversation -> {
                         // Configurar relacionamentos
@@ -129,10 +296,10 @@ public class MemoryServiceImpl implements MemoryService {
                         // Buscar usuário se for mensagem de usuário
                         if (message.getType() == ChatMessage.MessageType.USER && message.getUserId() != null) {
                             // Tentar buscar pelo ID primeiro
-                            return userRepository.findById(message.getUserId())
+                            return instrumented(MYSQL, "find_user", userRepository.findById(message.getUserId()))
                                 .onItem().ifNull().switchTo(() -> {
                                     // Se não encontrar pelo ID, tentar buscar pelo hash (compatibilidade)
-                                    return userRepository.findByOrionUserHash(message.getUserId());
+                                    return instrumented(MYSQL, "find_user", userRepository.findByOrionUserHash(message.getUserId()));
                                 })
                                 .chain(user -> {
                                     if (user == null) {
@@ -142,16 +309,16 @@ public class MemoryServiceImpl implements MemoryService {
                                     message.setUserId(user.getId());
                                     message.setUser(user);
                                     // Persistir mensagem diretamente em vez de usar cascade
-                                    return chatMessageRepository.persist(message)
-                                        .chain(() -> conversationRepository.flush());
+                                    return instrumented(MYSQL, "persist_message", chatMessageRepository.persist(message)
+                                        .chain(() -> conversationRepository.flush()));
                                 });
                         } else {
                             // Mensagem do assistente ou sistema - não deve ter user_id
                             message.setUserId(null);
                             message.setUser(null);
                             // Persistir mensagem diretamente em vez de usar cascade
-                            return chatMessageRepository.persist(message)
-                                .chain(() -> conversationRepository.flush());
+                            return instrumented(MYSQL, "persist_message", chatMessageRepository.persist(message)
+                                .chain(() -> conversationRepository.flush()));
                         }
                     });
             })
@@ -161,6 +328,54 @@ public class MemoryServiceImpl implements MemoryService {
             // Isso evita problemas de contexto de thread após @WithTransaction
     }
 
+    @Override
+    public Uni<Void> appendMessage(ChatMessage message, String content, ChatMessage.MessageStatus status) {
+        if (message.getConversationId() != null) {
+            return appendMessageHybrid(message.getId(), content, status);
+        }
+
+        // Fluxo antigo para compatibilidade (apenas Redis)
+        String key = CONVERSATION_PREFIX + message.getSessionId();
+        return getConversationMemory(message.getSessionId())
+                .onItem().ifNotNull().transformToUni(memory -> {
+                    ChatMessage saved = memory.getMessages().stream()
+                            .filter(candidate -> message.getId().equals(candidate.getId()))
+                            .findFirst()
+                            .orElse(null);
+                    if (saved == null) {
+                        // Já removida da janela de mensagens da sessão
+                        return Uni.createFrom().voidItem();
+                    }
+                    saved.setContent(saved.getContent() + content);
+                    if (status != null) {
+                        saved.setStatus(status);
+                    }
+                    ReactiveValueCommands<String, ConversationMemory> valueCommands = reactiveRedisDataSource
+                            .value(ConversationMemory.class);
+                    return instrumented(REDIS, "setex", valueCommands.setex(key, ttlHours * 3600L, memory));
+                })
+                .onFailure().invoke(e -> Log.error("Error appending to message " + message.getId() + ": "
+                        + e.getMessage(), e))
+                .replaceWithVoid();
+    }
+
+    @WithTransaction
+    public Uni<Void> appendMessageHybrid(String messageId, String content, ChatMessage.MessageStatus status) {
+        Uni<Integer> update = status == null
+            ? chatMessageRepository.update("content = concat(content, ?1) where id = ?2", content, messageId)
+            : chatMessageRepository.update("content = concat(content, ?1), status = ?2 where id = ?3",
+                content, status, messageId);
+        return instrumented(MYSQL, "append_message", update)
+            .onFailure().invoke(e -> Log.error("Error appending to message " + messageId + ": " + e.getMessage(), e))
+            .replaceWithVoid();
+    }
+
+    @Override
+    @WithSession
+    public Uni<ChatMessage> getMessage(String messageId) {
+        return instrumented(MYSQL, "find_message", chatMessageRepository.findById(messageId));
+    }
+
     /**
      * Retrieves the conversation memory for a specific session (backward compatibility).
      *
@@ -173,7 +388,7 @@ public class MemoryServiceImpl implements MemoryService {
         ReactiveValueCommands<String, ConversationMemory> valueCommands = reactiveRedisDataSource
                 .value(ConversationMemory.class);
 
-        return valueCommands.get(key)
+        return instrumented(REDIS, "get", valueCommands.get(key))
                 .onItem().invoke(memory -> {
                     if (memory != null) {
                         Log.debug("Retrieved conversation for session: " + sessionId +
@@ -201,13 +416,14 @@ public class MemoryServiceImpl implements MemoryService {
         
         // Tentar buscar do cache primeiro
         return getConversationMemoryFromRedis(redisKey)
+            .onItem().invoke(memory -> metricsService.recordCacheAccess("conversation_memory", memory != null))
             .onItem().ifNull().switchTo(() -> loadConversationMemoryFromDB(conversationId)
                 .chain(memory -> {
                     if (memory != null) {
                         // Salvar no cache para próximas consultas
                         ReactiveValueCommands<String, ConversationMemory> valueCommands = 
                             reactiveRedisDataSource.value(ConversationMemory.class);
-                        return valueCommands.setex(redisKey, ttlHours * 3600L, memory)
+                        return instrumented(REDIS, "setex", valueCommands.setex(redisKey, ttlHours * 3600L, memory))
                             .replaceWith(memory);
                     }
                     return Uni.createFrom().nullItem();
@@ -218,12 +434,13 @@ public class MemoryServiceImpl implements MemoryService {
     private Uni<ConversationMemory> getConversationMemoryFromRedis(String key) {
         ReactiveValueCommands<String, ConversationMemory> valueCommands = 
             reactiveRedisDataSource.value(ConversationMemory.class);
-        return valueCommands.get(key);
+        return instrumented(REDIS, "get", valueCommands.get(key),
+            (span, memory) -> span.setAttribute("rag.cache.hit", memory != null));
     }
     
     @WithSession
     protected Uni<ConversationMemory> loadConversationMemoryFromDB(String conversationId) {
-        return conversationRepository.findById(conversationId)
+        return instrumented(MYSQL, "load_conversation", conversationRepository.findById(conversationId))
             .onItem().ifNotNull().transform(conversation -> {
                 // Criar ConversationMemory mesmo se a conversa não tiver mensagens ainda
                 ConversationMemory memory = new ConversationMemory();
@@ -325,7 +542,7 @@ public class MemoryServiceImpl implements MemoryService {
         String key = CONVERSATION_PREFIX + sessionId;
         ReactiveKeyCommands<String> keyCommands = reactiveRedisDataSource.key();
 
-        return keyCommands.del(key)
+        return instrumented(REDIS, "del", keyCommands.del(key, CHAT_MEMORY_PREFIX + sessionId))
                 .onItem().invoke(() -> Log.info("Cleared conversation for session: " + sessionId))
                 .onFailure().invoke(e -> Log.error("Error clearing conversation from Redis: " + e.getMessage(), e))
                 .replaceWithVoid();
@@ -337,7 +554,7 @@ public class MemoryServiceImpl implements MemoryService {
         ReactiveKeyCommands<String> keyCommands = reactiveRedisDataSource.key();
         
         // Limpar apenas do cache Redis (mensagens permanecem no MySQL)
-        return keyCommands.del(redisKey)
+        return instrumented(REDIS, "del", keyCommands.del(redisKey, CHAT_MEMORY_PREFIX + conversationId))
                 .onItem().invoke(() -> Log.info("Cleared conversation cache for: " + conversationId))
                 .onFailure().invoke(e -> Log.error("Error clearing conversation cache: " + e.getMessage(), e))
                 .replaceWithVoid();
@@ -365,7 +582,7 @@ public class MemoryServiceImpl implements MemoryService {
                     String key = CONVERSATION_PREFIX + sessionId;
                     ReactiveValueCommands<String, ConversationMemory> valueCommands = reactiveRedisDataSource
                             .value(ConversationMemory.class);
-                    return valueCommands.setex(key, ttlHours * 3600L, memory);
+                    return instrumented(REDIS, "setex", valueCommands.setex(key, ttlHours * 3600L, memory));
                 })
                 .onItem()
                 .invoke(() -> Log.debug("Updated max messages for session: " + sessionId + " to " + maxMessages))
@@ -377,4 +594,26 @@ public class MemoryServiceImpl implements MemoryService {
         return getConversationMemory(sessionId)
                 .onItem().transform(memory -> memory != null ? memory.getMessageCount() : 0);
     }
+
+    /**
+     * Records a backend call when the given operation is subscribed and traces
+     * it in its own span.
+     *
+     * @param backend   the backend name (redis or mysql)
+     * @param operation the operation name
+     * @param call      the backend call
+     * @return the same call, instrumented
+     */
+    private <T> Uni<T> instrumented(String backend, String operation, Uni<T> call) {
+        return instrumented(backend, operation, call, (span, item) -> {
+        });
+    }
+
+    private <T> Uni<T> instrumented(String backend, String operation, Uni<T> call,
+            BiConsumer<Span, T> onItem) {
+        return Tracing.span(tracer, backend + " " + operation,
+                Attributes.of(AttributeKey.stringKey("db.system"), backend),
+                call.onSubscription().invoke(subscription -> metricsService.recordBackendCall(backend, operation)),
+                onItem);
+    }
 }
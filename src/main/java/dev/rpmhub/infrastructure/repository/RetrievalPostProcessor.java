@@ -0,0 +1,281 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.repository;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.onnx.HuggingFaceTokenCountEstimator;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.rpmhub.infrastructure.service.CrossEncoderService;
+import dev.rpmhub.infrastructure.util.Bm25Index;
+import dev.rpmhub.infrastructure.util.MaximalMarginalRelevance;
+import dev.rpmhub.infrastructure.util.ReciprocalRankFusion;
+
+/**
+ * Turns the rankings of a search into the contexts of the prompt.
+ *
+ * The vector and lexical rankings are fused with Reciprocal Rank Fusion,
+ * optionally re-scored by the cross-encoder, re-ranked with MMR, expanded
+ * with their neighbouring chunks and packed into the token budget.
+ */
+final class RetrievalPostProcessor {
+
+    private final CrossEncoderService crossEncoderService;
+    private final HuggingFaceTokenCountEstimator tokenCountEstimator;
+
+    /**
+     * MMR trade-off between relevance (1) and diversity (0).
+     */
+    private final double mmrLambda;
+
+    /**
+     * Chunks added on each side of a retrieved chunk, from the same document.
+     */
+    private final int neighbours;
+
+    RetrievalPostProcessor(CrossEncoderService crossEncoderService,
+            HuggingFaceTokenCountEstimator tokenCountEstimator, double mmrLambda, int neighbours) {
+        this.crossEncoderService = crossEncoderService;
+        this.tokenCountEstimator = tokenCountEstimator;
+        this.mmrLambda = mmrLambda;
+        this.neighbours = Math.max(0, neighbours);
+    }
+
+    /**
+     * Merges the vector and lexical rankings with Reciprocal Rank Fusion.
+     *
+     * @param matches the vector matches, best first
+     * @param lexical the BM25 matches, best first
+     * @param index   the lexical index the BM25 matches refer to
+     * @param limit   the maximum number of candidates
+     * @return the candidates sorted by fused score
+     */
+    List<Candidate> fuse(List<EmbeddingMatch<TextSegment>> matches, Bm25Index.Result lexical,
+            SegmentIndex index, int limit) {
+        Map<String, Candidate> candidates = new HashMap<>();
+        List<String> vectorRanking = new ArrayList<>(matches.size());
+        for (EmbeddingMatch<TextSegment> match : matches) {
+            float[] vector = match.embedding() == null ? null : match.embedding().vector();
+            candidates.computeIfAbsent(match.embeddingId(), id -> new Candidate(match.embedded().text(),
+                    vector, index.positions().getOrDefault(id, -1)));
+            vectorRanking.add(match.embeddingId());
+        }
+        List<String> lexicalRanking = new ArrayList<>(lexical.docs().length);
+        for (int doc : lexical.docs()) {
+            candidates.computeIfAbsent(index.ids().get(doc),
+                    id -> new Candidate(index.texts().get(doc), index.vectors().vector(doc), doc));
+            lexicalRanking.add(index.ids().get(doc));
+        }
+
+        List<Candidate> fused = new ArrayList<>();
+        ReciprocalRankFusion.fuse(List.of(vectorRanking, lexicalRanking), limit).forEach((id, score) -> {
+            Candidate candidate = candidates.get(id);
+            candidate.score = score;
+            fused.add(candidate);
+        });
+        return fused;
+    }
+
+    /**
+     * Replaces the fused scores with cross-encoder scores and re-sorts the
+     * candidates. Keeps the fused order if scoring is over its budget.
+     *
+     * @return true if the candidates were re-scored
+     */
+    boolean crossEncode(String query, List<Candidate> candidates) {
+        var scores = crossEncoderService.score(query,
+                candidates.stream().map(candidate -> candidate.text).toList());
+        if (scores.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < candidates.size(); i++) {
+            candidates.get(i).score = scores.get()[i];
+        }
+        candidates.sort(Comparator.comparingDouble((Candidate candidate) -> candidate.score).reversed());
+        return true;
+    }
+
+    /**
+     * Selects the contexts of the prompt: re-ranks the candidates, expands
+     * them with their neighbours and keeps those that fit in the budget.
+     *
+     * @param candidates the candidates, most relevant first
+     * @param k          the number of chunks to select
+     * @param index      the local chunk store
+     * @param allowed    the positions matching the filters, or null for all
+     * @param maxTokens  the token budget of the context
+     * @return the texts of the contexts to put in the prompt
+     */
+    List<String> select(List<Candidate> candidates, int k, SegmentIndex index, BitSet allowed, int maxTokens) {
+        return packContexts(expand(rerank(candidates, k), index, allowed), maxTokens);
+    }
+
+    /**
+     * Re-ranks the candidates with Maximal Marginal Relevance, using their
+     * embeddings and the fused score as relevance. Falls back to the fused
+     * order if an embedding is not available.
+     *
+     * @param candidates the candidates, most relevant first
+     * @param k          the number of chunks to keep
+     * @return the selected chunks in MMR order
+     */
+    private List<Candidate> rerank(List<Candidate> candidates, int k) {
+        int n = candidates.size();
+        if (n <= 1 || candidates.stream().anyMatch(candidate -> candidate.vector == null)) {
+            return candidates.subList(0, Math.min(k, n));
+        }
+
+        float[][] vectors = new float[n][];
+        double[] relevance = new double[n];
+        double best = candidates.get(0).score;
+        for (int i = 0; i < n; i++) {
+            Candidate candidate = candidates.get(i);
+            vectors[i] = candidate.vector;
+            relevance[i] = candidate.score / best;
+        }
+
+        int[] order = MaximalMarginalRelevance.select(vectors, relevance, k, mmrLambda);
+        List<Candidate> selected = new ArrayList<>(order.length);
+        for (int index : order) {
+            selected.add(candidates.get(index));
+        }
+        return selected;
+    }
+
+    /**
+     * Replaces each selected chunk with the run of chunks around it in its
+     * document. Runs of the same document that overlap or touch are merged
+     * into the first one, so no text is repeated in the prompt. Chunks not in
+     * the local index (e.g. stored by a previous run) are kept as they are.
+     * Neighbours excluded by the query filters are not added.
+     *
+     * @param selected the selected chunks, in order
+     * @param index    the local chunk store
+     * @param allowed  the positions matching the filters, or null for all
+     * @return the expanded contexts, in the order of the selection
+     */
+    private List<Expansion> expand(List<Candidate> selected, SegmentIndex index, BitSet allowed) {
+        if (neighbours == 0) {
+            return selected.stream().map(candidate -> new Expansion(candidate.text, candidate.text)).toList();
+        }
+
+        // Each entry is either a run [from, to] of positions or a chunk
+        // outside the index (from = -1)
+        List<int[]> runs = new ArrayList<>(selected.size());
+        List<String> hits = new ArrayList<>(selected.size());
+        for (Candidate candidate : selected) {
+            int position = candidate.position;
+            if (position < 0) {
+                runs.add(new int[] { -1, -1 });
+                hits.add(candidate.text);
+                continue;
+            }
+            int document = index.documents()[position];
+            int from = position;
+            while (from > 0 && position - from < neighbours && index.documents()[from - 1] == document
+                    && (allowed == null || allowed.get(from - 1))) {
+                from--;
+            }
+            int to = position;
+            while (to + 1 < index.size() && to - position < neighbours
+                    && index.documents()[to + 1] == document
+                    && (allowed == null || allowed.get(to + 1))) {
+                to++;
+            }
+
+            int[] merged = null;
+            for (int[] run : runs) {
+                if (run[0] >= 0 && index.documents()[run[0]] == document && from <= run[1] + 1
+                        && to >= run[0] - 1) {
+                    merged = run;
+                    break;
+                }
+            }
+            if (merged == null) {
+                runs.add(new int[] { from, to });
+                hits.add(candidate.text);
+            } else {
+                merged[0] = Math.min(merged[0], from);
+                merged[1] = Math.max(merged[1], to);
+            }
+        }
+
+        List<Expansion> expansions = new ArrayList<>(runs.size());
+        for (int i = 0; i < runs.size(); i++) {
+            int[] run = runs.get(i);
+            String text = run[0] < 0 ? hits.get(i)
+                    : String.join("\n", index.texts().subList(run[0], run[1] + 1));
+            expansions.add(new Expansion(text, hits.get(i)));
+        }
+        return expansions;
+    }
+
+    /**
+     * Keeps the contexts that fit in the token budget, in order. A context
+     * whose expansion does not fit is reduced to the retrieved chunk, and
+     * skipped if that does not fit either, so smaller ones after it can still
+     * be used.
+     *
+     * @param expansions the selected contexts
+     * @param maxTokens  the token budget of the context
+     * @return the texts of the contexts to put in the prompt
+     */
+    private List<String> packContexts(List<Expansion> expansions, int maxTokens) {
+        List<String> contexts = new ArrayList<>(expansions.size());
+        int tokens = 0;
+        for (Expansion expansion : expansions) {
+            for (String text : expansion.hit().equals(expansion.text()) ? List.of(expansion.text())
+                    : List.of(expansion.text(), expansion.hit())) {
+                int chunkTokens = maxTokens == Integer.MAX_VALUE ? 0
+                        : tokenCountEstimator.estimateTokenCountInText(text);
+                if (tokens + chunkTokens <= maxTokens) {
+                    contexts.add(text);
+                    tokens += chunkTokens;
+                    break;
+                }
+            }
+        }
+        return contexts;
+    }
+
+    /**
+     * A retrieved chunk with the surrounding chunks of its document.
+     *
+     * @param text the chunk and its neighbours
+     * @param hit  the retrieved chunk alone
+     */
+    private record Expansion(String text, String hit) {
+    }
+
+    /**
+     * A chunk found by at least one of the rankings.
+     */
+    static final class Candidate {
+
+        private final String text;
+        private final float[] vector;
+
+        /**
+         * Position in the segment index, or -1 if not indexed locally.
+         */
+        private final int position;
+        private double score;
+
+        private Candidate(String text, float[] vector, int position) {
+            this.text = text;
+            this.vector = vector;
+            this.position = position;
+        }
+    }
+}
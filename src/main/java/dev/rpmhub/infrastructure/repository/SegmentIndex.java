@@ -0,0 +1,106 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.repository;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.rpmhub.domain.model.RagQuery;
+import dev.rpmhub.infrastructure.util.Bm25Index;
+import dev.rpmhub.infrastructure.util.QuantizedVectorIndex;
+
+/**
+ * Segments of a generation with their store ids, indexed by the same
+ * position in the BM25 and vector indexes. Segments of a document are
+ * contiguous and in order, so the neighbours of a segment are the adjacent
+ * positions with the same document number.
+ */
+record SegmentIndex(String generation, Bm25Index bm25, List<TextSegment> segments, List<String> ids,
+        List<String> texts, QuantizedVectorIndex vectors, int[] documents,
+        Map<String, Integer> positions, Map<String, Map<String, BitSet>> metadata) {
+
+    /**
+     * Segment metadata: the source document of the chunk.
+     */
+    static final String DOCUMENT_ID = "document_id";
+
+    /**
+     * Segment metadata: the index generation the chunk was written by.
+     */
+    static final String GENERATION = "generation";
+
+    static final SegmentIndex EMPTY = of(null, List.of(), List.of(),
+            QuantizedVectorIndex.build(new float[0][], QuantizedVectorIndex.Mode.FLOAT));
+
+    /**
+     * Indexes the segments of a generation. The segments of a file must be
+     * contiguous and in order.
+     *
+     * @param generation the generation of the segments
+     * @param segments   the segments
+     * @param ids        the store ids of the segments
+     * @param vectors    the vector index over the segments, in the same order
+     * @return the index
+     */
+    static SegmentIndex of(String generation, List<TextSegment> segments, List<String> ids,
+            QuantizedVectorIndex vectors) {
+        List<String> texts = segments.stream().map(TextSegment::text).toList();
+        int[] documents = new int[segments.size()];
+        for (int i = 1; i < documents.length; i++) {
+            boolean sameFile = Objects.equals(segments.get(i).metadata().getString(DOCUMENT_ID),
+                    segments.get(i - 1).metadata().getString(DOCUMENT_ID));
+            documents[i] = sameFile ? documents[i - 1] : documents[i - 1] + 1;
+        }
+        Map<String, Integer> positions = new HashMap<>(ids.size() * 2);
+        // Value -> positions, per filterable key
+        Map<String, Map<String, BitSet>> metadata = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            positions.put(ids.get(i), i);
+            Map<String, Object> values = segments.get(i).metadata().toMap();
+            for (String key : RagQuery.FILTER_KEYS) {
+                if (values.get(key) != null) {
+                    metadata.computeIfAbsent(key, k -> new HashMap<>())
+                            .computeIfAbsent(String.valueOf(values.get(key)), v -> new BitSet())
+                            .set(i);
+                }
+            }
+        }
+        return new SegmentIndex(generation, Bm25Index.build(texts), segments, ids, texts, vectors,
+                documents, positions, metadata);
+    }
+
+    /**
+     * Positions of the segments matching every filter.
+     *
+     * @return the matching positions, or null if there are no filters
+     */
+    BitSet allowed(Map<String, String> filters) {
+        if (filters.isEmpty()) {
+            return null;
+        }
+        BitSet allowed = new BitSet(size());
+        allowed.set(0, size());
+        filters.forEach((key, value) -> {
+            BitSet matching = metadata.getOrDefault(key, Map.of()).get(value);
+            if (matching == null) {
+                allowed.clear();
+            } else {
+                allowed.and(matching);
+            }
+        });
+        return allowed;
+    }
+
+    int size() {
+        return ids.size();
+    }
+}
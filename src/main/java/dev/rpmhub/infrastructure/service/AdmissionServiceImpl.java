@@ -0,0 +1,243 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import dev.rpmhub.domain.model.OverloadedException;
+import dev.rpmhub.domain.port.AdmissionService;
+import dev.rpmhub.domain.port.MetricsService;
+import io.quarkus.logging.Log;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Implementation of AdmissionService with a fixed number of slots and one
+ * bounded FIFO queue per key. Waiting requests are admitted round-robin across
+ * keys, so a user with many requests cannot starve the others.
+ */
+@ApplicationScoped
+public class AdmissionServiceImpl implements AdmissionService {
+
+    /**
+     * Weight of the last generation in the moving average of slot hold time.
+     */
+    private static final double HOLD_TIME_ALPHA = 0.2;
+
+    private final MetricsService metricsService;
+    private final int maxConcurrency;
+    private final int maxQueue;
+    private final int maxQueuePerKey;
+
+    /**
+     * Queues per key, in round-robin order: the key served last is moved to
+     * the end. Guarded by this.
+     */
+    private final LinkedHashMap<String, ArrayDeque<Waiter>> queues = new LinkedHashMap<>();
+    private int active;
+    private int queued;
+    private double averageHoldSeconds;
+
+    @Inject
+    public AdmissionServiceImpl(MetricsService metricsService,
+            @ConfigProperty(name = "rag.llm.admission.max-concurrency", defaultValue = "2") int maxConcurrency,
+            @ConfigProperty(name = "rag.llm.admission.max-queue", defaultValue = "32") int maxQueue,
+            @ConfigProperty(name = "rag.llm.admission.max-queue-per-user", defaultValue = "3") int maxQueuePerKey,
+            @ConfigProperty(name = "rag.llm.admission.initial-hold-seconds", defaultValue = "10") double initialHoldSeconds) {
+        this.metricsService = metricsService;
+        this.maxConcurrency = maxConcurrency;
+        this.maxQueue = maxQueue;
+        this.maxQueuePerKey = maxQueuePerKey;
+        this.averageHoldSeconds = initialHoldSeconds;
+    }
+
+    @Override
+    public Multi<String> admit(String key, IntConsumer onQueued, Supplier<Multi<String>> generation) {
+        return Multi.createFrom().deferred(() -> {
+            Waiter waiter = new Waiter(key, onQueued, Vertx.currentContext());
+            boolean admitted;
+            synchronized (this) {
+                ArrayDeque<Waiter> queue = queues.get(key);
+                if (active < maxConcurrency && queued == 0) {
+                    active++;
+                    waiter.admittedAt = System.nanoTime();
+                    admitted = true;
+                } else if (queued >= maxQueue || (queue != null && queue.size() >= maxQueuePerKey)) {
+                    Log.warn("LLM queue full, rejecting request for key: " + key);
+                    return Multi.createFrom().failure(new OverloadedException(
+                            "Serviço sobrecarregado, tente novamente em instantes", retryAfterSecondsLocked()));
+                } else {
+                    queues.computeIfAbsent(key, k -> new ArrayDeque<>()).addLast(waiter);
+                    queued++;
+                    admitted = false;
+                }
+            }
+
+            Uni<Void> slot;
+            if (admitted) {
+                slot = Uni.createFrom().voidItem();
+            } else {
+                notifyPositions();
+                slot = Uni.createFrom().completionStage(waiter.slot);
+            }
+
+            return slot
+                    .onItem().transformToMulti(ignored -> {
+                        metricsService.recordStage("llm", "queue_wait", waiter.enqueuedAt);
+                        return generation.get();
+                    })
+                    .onTermination().invoke(() -> release(waiter));
+        });
+    }
+
+    @Override
+    public synchronized boolean isSaturated() {
+        return queued >= maxQueue;
+    }
+
+    @Override
+    public synchronized long retryAfterSeconds() {
+        return retryAfterSecondsLocked();
+    }
+
+    private long retryAfterSecondsLocked() {
+        return Math.max(1, (long) Math.ceil(averageHoldSeconds * (queued + 1) / maxConcurrency));
+    }
+
+    /**
+     * Frees the slot of an admitted waiter, or removes a waiter that gave up
+     * while queued, and admits the next waiter in round-robin order.
+     *
+     * @param waiter the waiter whose request terminated
+     */
+    private void release(Waiter waiter) {
+        Waiter next = null;
+        synchronized (this) {
+            if (waiter.admittedAt > 0) {
+                active--;
+                double held = (System.nanoTime() - waiter.admittedAt) / 1_000_000_000.0;
+                averageHoldSeconds += HOLD_TIME_ALPHA * (held - averageHoldSeconds);
+            } else {
+                ArrayDeque<Waiter> queue = queues.get(waiter.key);
+                if (queue != null && queue.remove(waiter)) {
+                    queued--;
+                    if (queue.isEmpty()) {
+                        queues.remove(waiter.key);
+                    }
+                }
+            }
+
+            if (active < maxConcurrency && queued > 0) {
+                next = pollNext();
+                active++;
+                next.admittedAt = System.nanoTime();
+            }
+        }
+
+        if (next != null) {
+            next.grant();
+        }
+        notifyPositions();
+    }
+
+    /**
+     * Takes the head of the first queue and moves its key to the end of the
+     * round-robin order. Must be called while holding the lock.
+     */
+    private Waiter pollNext() {
+        Iterator<ArrayDeque<Waiter>> iterator = queues.values().iterator();
+        ArrayDeque<Waiter> queue = iterator.next();
+        Waiter next = queue.pollFirst();
+        iterator.remove();
+        if (!queue.isEmpty()) {
+            queues.put(next.key, queue);
+        }
+        queued--;
+        return next;
+    }
+
+    /**
+     * Sends the current queue position to every waiter whose position changed.
+     * Positions follow the round-robin admission order.
+     */
+    private void notifyPositions() {
+        List<Waiter> order = new ArrayList<>();
+        synchronized (this) {
+            List<Iterator<Waiter>> iterators = new ArrayList<>(queues.size());
+            for (ArrayDeque<Waiter> queue : queues.values()) {
+                iterators.add(queue.iterator());
+            }
+            boolean remaining = true;
+            while (remaining) {
+                remaining = false;
+                for (Iterator<Waiter> iterator : iterators) {
+                    if (iterator.hasNext()) {
+                        order.add(iterator.next());
+                        remaining = true;
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < order.size(); i++) {
+            order.get(i).notifyPosition(i + 1);
+        }
+    }
+
+    /**
+     * A request waiting for, or holding, an LLM slot.
+     */
+    private static final class Waiter {
+
+        private final String key;
+        private final IntConsumer onQueued;
+        private final Context context;
+        private final CompletableFuture<Void> slot = new CompletableFuture<>();
+        private final long enqueuedAt = System.nanoTime();
+        private volatile long admittedAt;
+        private int lastPosition;
+
+        private Waiter(String key, IntConsumer onQueued, Context context) {
+            this.key = key;
+            this.onQueued = onQueued;
+            this.context = context;
+        }
+
+        /**
+         * Completes the slot on the waiter's own Vert.x context, so the
+         * generation runs on the request's event loop.
+         */
+        private void grant() {
+            if (context != null) {
+                context.runOnContext(v -> slot.complete(null));
+            } else {
+                slot.complete(null);
+            }
+        }
+
+        private synchronized void notifyPosition(int position) {
+            if (position != lastPosition && admittedAt == 0) {
+                lastPosition = position;
+                onQueued.accept(position);
+            }
+        }
+    }
+}
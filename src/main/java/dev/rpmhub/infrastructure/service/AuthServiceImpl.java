@@ -9,8 +9,10 @@ package dev.rpmhub.infrastructure.service;
 
 import dev.rpmhub.domain.model.User;
 import dev.rpmhub.domain.port.AuthService;
+import dev.rpmhub.domain.port.MetricsService;
 import dev.rpmhub.domain.port.UserRepository;
 import dev.rpmhub.domain.port.UserService;
+import io.opentelemetry.instrumentation.annotations.WithSpan;
 import io.quarkus.hibernate.reactive.panache.common.WithTransaction;
 import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -29,12 +31,15 @@ public class AuthServiceImpl implements AuthService {
     private final UserRepository userRepository;
     private final UserService userService;
     private final ObjectMapper objectMapper;
+    private final MetricsService metricsService;
     
     @Inject
-    public AuthServiceImpl(UserRepository userRepository, UserService userService, ObjectMapper objectMapper) {
+    public AuthServiceImpl(UserRepository userRepository, UserService userService, ObjectMapper objectMapper,
+            MetricsService metricsService) {
         this.userRepository = userRepository;
         this.userService = userService;
         this.objectMapper = objectMapper;
+        this.metricsService = metricsService;
     }
     
     @Override
@@ -87,12 +92,14 @@ public class AuthServiceImpl implements AuthService {
     
     @Override
     @WithTransaction
+    @WithSpan("AuthService.syncUserFromJwt")
     public Uni<User> syncUserFromJwt(String jwtToken) {
         String orionUserHash = extractUserHashFromJwt(jwtToken);
         String email = extractEmailFromJwt(jwtToken);
         
         // Try to find existing user by hash
         return userRepository.findByOrionUserHash(orionUserHash)
+            .onSubscription().invoke(s -> metricsService.recordBackendCall("mysql", "find_user"))
             .onItem().transformToUni(user -> {
                 if (user != null) {
                     // User found by hash, return it
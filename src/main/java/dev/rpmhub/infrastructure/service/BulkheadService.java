@@ -0,0 +1,55 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.microprofile.config.Config;
+
+import dev.rpmhub.infrastructure.util.Bulkhead;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * The bulkheads of the application, one per backend, created from their
+ * configuration on first use: rag.bulkhead.&lt;name&gt;.threads (default 4),
+ * .queue (default 16) and .rejection (abort or caller-runs, default abort).
+ * Their meters are published on the application registry.
+ */
+@ApplicationScoped
+public class BulkheadService {
+
+    private final Config config;
+    private final MeterRegistry registry;
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    @Inject
+    public BulkheadService(Config config, MeterRegistry registry) {
+        this.config = config;
+        this.registry = registry;
+    }
+
+    /**
+     * Returns the bulkhead with the given name.
+     *
+     * @param name the bulkhead name (see the constants of Bulkhead)
+     * @return the bulkhead
+     */
+    public Bulkhead named(String name) {
+        return bulkheads.computeIfAbsent(name, key -> {
+            String prefix = "rag.bulkhead." + key;
+            int threads = config.getOptionalValue(prefix + ".threads", Integer.class).orElse(4);
+            int queue = config.getOptionalValue(prefix + ".queue", Integer.class).orElse(16);
+            String rejection = config.getOptionalValue(prefix + ".rejection", String.class).orElse("abort");
+            return new Bulkhead(key, Math.max(1, threads), queue, "caller-runs".equalsIgnoreCase(rejection),
+                    registry);
+        });
+    }
+}
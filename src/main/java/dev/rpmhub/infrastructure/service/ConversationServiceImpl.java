@@ -10,6 +10,7 @@ package dev.rpmhub.infrastructure.service;
 import dev.rpmhub.domain.model.Conversation;
 import dev.rpmhub.domain.port.ConversationRepository;
 import dev.rpmhub.domain.port.ConversationService;
+import dev.rpmhub.domain.port.MetricsService;
 import dev.rpmhub.domain.port.UserRepository;
 import io.quarkus.hibernate.reactive.panache.common.WithSession;
 import io.quarkus.hibernate.reactive.panache.common.WithTransaction;
@@ -28,12 +29,15 @@ public class ConversationServiceImpl implements ConversationService {
     
     private final ConversationRepository conversationRepository;
     private final UserRepository userRepository;
+    private final MetricsService metricsService;
     
     @Inject
     public ConversationServiceImpl(ConversationRepository conversationRepository, 
-                                   UserRepository userRepository) {
+                                   UserRepository userRepository,
+                                   MetricsService metricsService) {
         this.conversationRepository = conversationRepository;
         this.userRepository = userRepository;
+        this.metricsService = metricsService;
     }
     
     @Override
@@ -90,14 +94,17 @@ public class ConversationServiceImpl implements ConversationService {
         // O userId pode ser tanto orionUserHash quanto id do usuário
         // Primeiro tentar buscar pelo hash do Orion Users (mais comum)
         return userRepository.findByOrionUserHash(userId)
-            .onItem().ifNull().switchTo(() -> userRepository.findById(userId))
+            .onSubscription().invoke(s -> metricsService.recordBackendCall("mysql", "find_user"))
+            .onItem().ifNull().switchTo(() -> userRepository.findById(userId)
+                .onSubscription().invoke(s -> metricsService.recordBackendCall("mysql", "find_user")))
             .onItem().transformToUni(user -> {
                 if (user == null) {
                     // Usuário não encontrado, retornar false
                     return Uni.createFrom().item(false);
                 }
                 // Usar o ID real do usuário para verificar acesso
-                return conversationRepository.userHasAccess(user.getId(), conversationId);
+                return conversationRepository.userHasAccess(user.getId(), conversationId)
+                    .onSubscription().invoke(s -> metricsService.recordBackendCall("mysql", "user_has_access"));
             })
             .onFailure().recoverWithItem(e -> {
                 Log.error("Erro ao verificar acesso do usuário " + userId + " à conversa " + conversationId, e);
@@ -0,0 +1,165 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.rpmhub.domain.port.MetricsService;
+import dev.rpmhub.infrastructure.adapter.OnnxCrossEncoderScoringModel;
+import io.quarkus.logging.Log;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Optional re-ranking of retrieved chunks with a local ONNX cross-encoder.
+ *
+ * Chunks are scored in batches on a small dedicated pool. If scoring does not
+ * finish within the latency budget, or the pool is saturated, no scores are
+ * returned and the caller keeps its original order.
+ */
+@ApplicationScoped
+public class CrossEncoderService {
+
+    private static final String PIPELINE = "retrieval";
+
+    private final MetricsService metricsService;
+    private final int batchSize;
+    private final long timeoutMillis;
+    private final OnnxCrossEncoderScoringModel scoringModel;
+    private final ThreadPoolExecutor executor;
+
+    @Inject
+    public CrossEncoderService(MetricsService metricsService,
+            @ConfigProperty(name = "rag.retrieval.rerank.enabled", defaultValue = "false") boolean enabled,
+            @ConfigProperty(name = "rag.retrieval.rerank.model-path") Optional<Path> modelPath,
+            @ConfigProperty(name = "rag.retrieval.rerank.tokenizer-path") Optional<Path> tokenizerPath,
+            @ConfigProperty(name = "rag.retrieval.rerank.max-length", defaultValue = "512") int maxLength,
+            @ConfigProperty(name = "rag.retrieval.rerank.batch-size", defaultValue = "8") int batchSize,
+            @ConfigProperty(name = "rag.retrieval.rerank.threads", defaultValue = "2") int threads,
+            @ConfigProperty(name = "rag.retrieval.rerank.timeout-ms", defaultValue = "200") long timeoutMillis) {
+        this.metricsService = metricsService;
+        this.batchSize = Math.max(1, batchSize);
+        this.timeoutMillis = timeoutMillis;
+        this.scoringModel = enabled ? load(modelPath, tokenizerPath, maxLength) : null;
+        if (scoringModel == null) {
+            this.executor = null;
+            return;
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 16), runnable -> {
+                    Thread thread = new Thread(runnable, "cross-encoder-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    private static OnnxCrossEncoderScoringModel load(Optional<Path> modelPath, Optional<Path> tokenizerPath,
+            int maxLength) {
+        if (modelPath.isEmpty() || tokenizerPath.isEmpty()) {
+            Log.warn("Cross-encoder re-ranking enabled without model-path and tokenizer-path, disabling it");
+            return null;
+        }
+        try {
+            OnnxCrossEncoderScoringModel model = new OnnxCrossEncoderScoringModel(modelPath.get(),
+                    tokenizerPath.get(), maxLength);
+            Log.info("Cross-encoder loaded: " + modelPath.get());
+            return model;
+        } catch (IOException e) {
+            Log.error("Could not load the cross-encoder, re-ranking disabled", e);
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether a cross-encoder is configured and loaded.
+     *
+     * @return true if chunks can be re-ranked
+     */
+    public boolean isEnabled() {
+        return scoringModel != null;
+    }
+
+    /**
+     * Scores the relevance of each text to the query.
+     *
+     * @param query the user query
+     * @param texts the texts to score
+     * @return the scores in (0, 1), in the order of the texts, or empty if
+     *         re-ranking is disabled or did not finish within the budget
+     */
+    public Optional<double[]> score(String query, List<String> texts) {
+        if (!isEnabled() || texts.isEmpty()) {
+            return Optional.empty();
+        }
+
+        long start = System.nanoTime();
+        List<CompletableFuture<List<Double>>> batches = new ArrayList<>();
+        try {
+            for (int from = 0; from < texts.size(); from += batchSize) {
+                List<TextSegment> batch = texts.subList(from, Math.min(from + batchSize, texts.size())).stream()
+                        .map(TextSegment::from)
+                        .toList();
+                batches.add(CompletableFuture.supplyAsync(() -> scoringModel.scoreAll(batch, query).content(),
+                        executor));
+            }
+
+            CompletableFuture.allOf(batches.toArray(CompletableFuture[]::new))
+                    .get(timeoutMillis, TimeUnit.MILLISECONDS);
+
+            double[] scores = new double[texts.size()];
+            int i = 0;
+            for (CompletableFuture<List<Double>> batch : batches) {
+                for (double score : batch.join()) {
+                    scores[i++] = score;
+                }
+            }
+            metricsService.recordStage(PIPELINE, "cross_encoder", start);
+            return Optional.of(scores);
+        } catch (TimeoutException | RejectedExecutionException e) {
+            // Batches not started yet are skipped once cancelled
+            batches.forEach(batch -> batch.cancel(false));
+            metricsService.recordStage(PIPELINE, "cross_encoder_fallback", start);
+            Log.debug("Cross-encoder over budget, keeping retrieval order");
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } catch (ExecutionException e) {
+            Log.warn("Cross-encoder scoring failed, keeping retrieval order", e.getCause());
+            return Optional.empty();
+        }
+    }
+
+    @PreDestroy
+    void close() throws Exception {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        if (scoringModel != null) {
+            scoringModel.close();
+        }
+    }
+}
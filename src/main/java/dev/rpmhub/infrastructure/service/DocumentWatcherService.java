@@ -0,0 +1,191 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.service;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import dev.rpmhub.domain.port.EmbeddingRepository;
+import io.quarkus.logging.Log;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+/**
+ * Watches rag.location and re-ingests the files that change, without a
+ * restart.
+ *
+ * Changes are collected until no new event arrives for the debounce delay,
+ * so saving or copying many files triggers one update. Updates run one at a
+ * time on a single low-priority thread, so they never compete with more than
+ * one core of the request threads.
+ */
+@ApplicationScoped
+public class DocumentWatcherService {
+
+    private final EmbeddingRepository embeddingRepository;
+    private final Path location;
+    private final boolean enabled;
+    private final long debounceMillis;
+
+    /**
+     * Registered directories by watch key.
+     */
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+
+    /**
+     * Changed paths not ingested yet, guarded by this.
+     */
+    private Set<Path> pending = new HashSet<>();
+    private boolean overflow;
+    private ScheduledFuture<?> flush;
+
+    private WatchService watchService;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "document-ingestion");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    @Inject
+    public DocumentWatcherService(EmbeddingRepository embeddingRepository,
+            @ConfigProperty(name = "rag.location") Path location,
+            @ConfigProperty(name = "rag.watch.enabled", defaultValue = "true") boolean enabled,
+            @ConfigProperty(name = "rag.watch.debounce-ms", defaultValue = "1000") long debounceMillis) {
+        this.embeddingRepository = embeddingRepository;
+        this.location = location.toAbsolutePath().normalize();
+        this.enabled = enabled;
+        this.debounceMillis = debounceMillis;
+    }
+
+    void start(@Observes StartupEvent event) {
+        if (!enabled || !Files.isDirectory(location)) {
+            return;
+        }
+        try {
+            watchService = location.getFileSystem().newWatchService();
+            register(location);
+        } catch (IOException e) {
+            Log.error("Não foi possível observar o diretório " + location, e);
+            return;
+        }
+        Thread watcher = new Thread(this::watch, "document-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        Log.info("Observando alterações em " + location);
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path directory = directories.get(key);
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == OVERFLOW) {
+                        changed(null);
+                        continue;
+                    }
+                    Path path = directory.resolve((Path) event.context());
+                    if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+                        // Files copied with the directory produce no events
+                        register(path);
+                        try (var files = Files.walk(path)) {
+                            files.filter(Files::isRegularFile).forEach(this::changed);
+                        }
+                    } else if (!Files.isDirectory(path)) {
+                        changed(path);
+                    }
+                }
+                if (!key.reset()) {
+                    directories.remove(key);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            Log.error("Erro ao observar o diretório " + location, e);
+        }
+    }
+
+    private void register(Path root) throws IOException {
+        try (var tree = Files.walk(root)) {
+            for (Path directory : tree.filter(Files::isDirectory).toList()) {
+                directories.put(directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE),
+                        directory);
+            }
+        }
+    }
+
+    /**
+     * Records a change and restarts the debounce delay.
+     *
+     * @param path the changed path, or null if events were lost
+     */
+    private synchronized void changed(Path path) {
+        if (path == null) {
+            overflow = true;
+        } else {
+            pending.add(path);
+        }
+        if (flush != null) {
+            flush.cancel(false);
+        }
+        flush = executor.schedule(this::ingest, debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void ingest() {
+        Set<Path> changed;
+        boolean full;
+        synchronized (this) {
+            changed = pending;
+            full = overflow;
+            pending = new HashSet<>();
+            overflow = false;
+        }
+        try {
+            if (full) {
+                embeddingRepository.ingestDocuments(location.toString());
+            } else if (!changed.isEmpty()) {
+                embeddingRepository.ingestFiles(location.toString(), changed);
+            }
+        } catch (RuntimeException e) {
+            Log.error("Erro ao reprocessar arquivos alterados: " + changed, e);
+        }
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        executor.shutdownNow();
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+}
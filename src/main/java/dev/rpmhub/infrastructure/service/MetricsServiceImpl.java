@@ -0,0 +1,147 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import dev.rpmhub.domain.port.MetricsService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Implementation of MetricsService using Micrometer. Meters are exposed by the
+ * Prometheus registry at /q/metrics.
+ */
+@ApplicationScoped
+public class MetricsServiceImpl implements MetricsService {
+
+    private static final String STAGE_TIMER = "rag.pipeline.stage";
+    private static final String CACHE_ACCESS = "rag.cache.access";
+    private static final String BACKEND_CALLS = "rag.backend.calls";
+    private static final String REQUEST_BACKEND_CALLS = "rag.request.backend.calls";
+
+    /**
+     * Key of the per-request backend call tally in the Vert.x duplicated context.
+     */
+    private static final String REQUEST_TALLY = "rag.metrics.backend-calls";
+
+    private static final String[] TRACKED_BACKENDS = { "redis", "mysql" };
+
+    private final MeterRegistry registry;
+
+    /**
+     * Stage timers indexed by "pipeline/stage" to avoid rebuilding meter ids
+     * on the hot path.
+     */
+    private final Map<String, Timer> stageTimers = new ConcurrentHashMap<>();
+
+    @Inject
+    public MetricsServiceImpl(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void recordStage(String pipeline, String stage, long startNanos) {
+        stageTimers.computeIfAbsent(pipeline + "/" + stage, key -> Timer.builder(STAGE_TIMER)
+                .description("Duration of each stage of the RAG pipeline")
+                .tag("pipeline", pipeline)
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .register(registry))
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public <T> Uni<T> timeStage(String pipeline, String stage, Uni<T> operation) {
+        return Uni.createFrom().deferred(() -> {
+            long start = System.nanoTime();
+            return operation.onTermination().invoke(() -> recordStage(pipeline, stage, start));
+        });
+    }
+
+    @Override
+    public Multi<String> timeGeneration(String pipeline, Multi<String> generation) {
+        return Multi.createFrom().deferred(() -> {
+            long start = System.nanoTime();
+            AtomicBoolean firstToken = new AtomicBoolean();
+            return generation
+                    .onItem().invoke(token -> {
+                        if (firstToken.compareAndSet(false, true)) {
+                            recordStage(pipeline, "llm_first_token", start);
+                        }
+                    })
+                    .onCompletion().invoke(() -> recordStage(pipeline, "llm_total", start));
+        });
+    }
+
+    @Override
+    public void recordCacheAccess(String cache, boolean hit) {
+        Counter.builder(CACHE_ACCESS)
+                .description("Cache lookups by result; hit ratio = hit / (hit + miss)")
+                .tag("cache", cache)
+                .tag("result", hit ? "hit" : "miss")
+                .register(registry)
+                .increment();
+    }
+
+    @Override
+    public void recordBackendCall(String backend, String operation) {
+        Counter.builder(BACKEND_CALLS)
+                .description("Calls made to backend services")
+                .tag("backend", backend)
+                .tag("operation", operation)
+                .register(registry)
+                .increment();
+
+        Map<String, AtomicInteger> tally = currentTally();
+        if (tally != null) {
+            tally.computeIfAbsent(backend, key -> new AtomicInteger()).incrementAndGet();
+        }
+    }
+
+    @Override
+    public <T> Multi<T> trackRequest(String pipeline, Multi<T> request) {
+        return Multi.createFrom().deferred(() -> {
+            Context context = Vertx.currentContext();
+            if (context == null) {
+                return request;
+            }
+            Map<String, AtomicInteger> tally = new ConcurrentHashMap<>();
+            context.putLocal(REQUEST_TALLY, tally);
+            return request.onTermination().invoke(() -> {
+                for (String backend : TRACKED_BACKENDS) {
+                    AtomicInteger calls = tally.get(backend);
+                    DistributionSummary.builder(REQUEST_BACKEND_CALLS)
+                            .description("Backend calls made per request")
+                            .tag("pipeline", pipeline)
+                            .tag("backend", backend)
+                            .register(registry)
+                            .record(calls == null ? 0 : calls.get());
+                }
+                context.removeLocal(REQUEST_TALLY);
+            });
+        });
+    }
+
+    private Map<String, AtomicInteger> currentTally() {
+        Context context = Vertx.currentContext();
+        return context == null ? null : context.getLocal(REQUEST_TALLY);
+    }
+}
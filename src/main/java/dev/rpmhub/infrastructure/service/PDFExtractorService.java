@@ -10,6 +10,8 @@ package dev.rpmhub.infrastructure.service;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.pdmodel.PDDocument;
@@ -47,6 +49,33 @@ public class PDFExtractorService {
         return text;
     }
 
+    /**
+     * Extracts the text of each page of a PDF file.
+     *
+     * @param path the path to the PDF file
+     * @return the text of each page, in order (page 1 first), or an empty list
+     *         if the file cannot be read
+     */
+    public List<String> extractPages(Path path) {
+        List<String> pages = new ArrayList<>();
+        try (PDDocument document = Loader.loadPDF(path.toFile())) {
+            // Verifica se o documento não está criptografado
+            if (!document.isEncrypted()) {
+                PDFTextStripper stripper = new PDFTextStripper();
+                for (int page = 1; page <= document.getNumberOfPages(); page++) {
+                    stripper.setStartPage(page);
+                    stripper.setEndPage(page);
+                    pages.add(stripper.getText(document));
+                }
+            } else {
+                Log.error("O documento está criptografado.");
+            }
+        } catch (IOException e) {
+            Log.error("Nao foi possível ler o arquivo.");
+        }
+        return pages;
+    }
+
     /**
      * Checks if the given file path points to a PDF file.
      *
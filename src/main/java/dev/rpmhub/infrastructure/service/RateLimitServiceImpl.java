@@ -0,0 +1,231 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import dev.rpmhub.domain.model.RateLimitExceededException;
+import dev.rpmhub.domain.port.MetricsService;
+import dev.rpmhub.domain.port.RateLimitService;
+import dev.rpmhub.infrastructure.util.Tracing;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Tracer;
+import io.quarkus.logging.Log;
+import io.quarkus.redis.datasource.ReactiveRedisDataSource;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.redis.client.Response;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Implementation of RateLimitService with one token bucket per client and
+ * endpoint, stored in Redis and updated atomically by a Lua script so the
+ * limit is shared by every node.
+ *
+ * When the bucket in Redis is far from empty, the script grants a small lease
+ * of tokens that this node spends locally, so most requests of a client well
+ * under its limit do not need a Redis round trip. Near the limit tokens are
+ * taken one by one. Leases expire quickly and unused leased tokens are lost,
+ * so the limit is never exceeded.
+ */
+@ApplicationScoped
+public class RateLimitServiceImpl implements RateLimitService {
+
+    private static final String KEY_PREFIX = "ratelimit:";
+    private static final String LEASE_CACHE = "rate_limit_lease";
+
+    /**
+     * Refills the bucket using the Redis clock and takes a lease of ARGV[3]
+     * tokens if at least twice that is available, otherwise a single token.
+     * Returns {granted tokens, milliseconds until the next token}.
+     */
+    private static final String SCRIPT = """
+            local capacity = tonumber(ARGV[1])
+            local rate = tonumber(ARGV[2])
+            local lease = tonumber(ARGV[3])
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local bucket = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+            local tokens = tonumber(bucket[1]) or capacity
+            local ts = tonumber(bucket[2]) or now
+            tokens = math.min(capacity, tokens + math.max(0, now - ts) * rate)
+            local granted = 0
+            local wait = 0
+            if tokens >= 2 * lease then
+              granted = lease
+            elseif tokens >= 1 then
+              granted = 1
+            else
+              wait = math.ceil((1 - tokens) / rate)
+            end
+            tokens = tokens - granted
+            redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', now)
+            redis.call('PEXPIRE', KEYS[1], math.ceil(capacity / rate))
+            return {granted, wait}
+            """;
+
+    private static final String SCRIPT_SHA = sha1(SCRIPT);
+
+    /**
+     * Number of local leases above which expired ones are swept.
+     */
+    private static final int MAX_LOCAL_LEASES = 10_000;
+
+    private final ReactiveRedisDataSource reactiveRedisDataSource;
+    private final MetricsService metricsService;
+    private final Tracer tracer;
+    private final boolean enabled;
+    private final int leaseSize;
+    private final long leaseMillis;
+    private final Map<String, Limit> limits;
+    private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+
+    @Inject
+    public RateLimitServiceImpl(ReactiveRedisDataSource reactiveRedisDataSource,
+            MetricsService metricsService,
+            Tracer tracer,
+            @ConfigProperty(name = "rag.rate-limit.enabled", defaultValue = "true") boolean enabled,
+            @ConfigProperty(name = "rag.rate-limit.lease-size", defaultValue = "4") int leaseSize,
+            @ConfigProperty(name = "rag.rate-limit.lease-millis", defaultValue = "1000") long leaseMillis,
+            @ConfigProperty(name = "rag.rate-limit.chatbot.capacity", defaultValue = "20") int chatbotCapacity,
+            @ConfigProperty(name = "rag.rate-limit.chatbot.refill-per-minute", defaultValue = "10") double chatbotRefill,
+            @ConfigProperty(name = "rag.rate-limit.ask.capacity", defaultValue = "20") int askCapacity,
+            @ConfigProperty(name = "rag.rate-limit.ask.refill-per-minute", defaultValue = "10") double askRefill,
+            @ConfigProperty(name = "rag.rate-limit.prefetch.capacity", defaultValue = "30") int prefetchCapacity,
+            @ConfigProperty(name = "rag.rate-limit.prefetch.refill-per-minute", defaultValue = "60") double prefetchRefill) {
+        this.reactiveRedisDataSource = reactiveRedisDataSource;
+        this.metricsService = metricsService;
+        this.tracer = tracer;
+        this.enabled = enabled;
+        this.leaseSize = Math.max(1, leaseSize);
+        this.leaseMillis = leaseMillis;
+        this.limits = Map.of(
+                "chatbot", new Limit(chatbotCapacity, chatbotRefill / 60_000),
+                "ask", new Limit(askCapacity, askRefill / 60_000),
+                "prefetch", new Limit(prefetchCapacity, prefetchRefill / 60_000));
+    }
+
+    @Override
+    public Uni<Void> acquire(String endpoint, String key) {
+        Limit limit = limits.get(endpoint);
+        if (!enabled || limit == null) {
+            return Uni.createFrom().voidItem();
+        }
+
+        String bucketKey = KEY_PREFIX + endpoint + ":" + key;
+        Lease lease = leases.get(bucketKey);
+        if (lease != null) {
+            if (lease.tryTake()) {
+                metricsService.recordCacheAccess(LEASE_CACHE, true);
+                return Uni.createFrom().voidItem();
+            }
+            leases.remove(bucketKey, lease);
+        }
+        metricsService.recordCacheAccess(LEASE_CACHE, false);
+
+        return Tracing.span(tracer, "redis rate_limit",
+                Attributes.of(AttributeKey.stringKey("db.system"), "redis"),
+                takeFromRedis(bucketKey, limit)
+                        .onSubscription().invoke(s -> metricsService.recordBackendCall("redis", "rate_limit")),
+                (span, response) -> span.setAttribute("rag.rate_limit.granted", response.get(0).toLong()))
+                .onItem().transformToUni(response -> {
+                    long granted = response.get(0).toLong();
+                    if (granted == 0) {
+                        long retryAfter = Math.max(1, (response.get(1).toLong() + 999) / 1000);
+                        Log.debug("Rate limit exceeded for " + bucketKey);
+                        return Uni.createFrom().failure(new RateLimitExceededException(
+                                "Limite de requisições excedido, tente novamente em instantes", retryAfter));
+                    }
+                    if (granted > 1) {
+                        storeLease(bucketKey, (int) granted - 1);
+                    }
+                    return Uni.createFrom().voidItem();
+                })
+                .onFailure(e -> !(e instanceof RateLimitExceededException)).recoverWithUni(e -> {
+                    // Sem Redis o limite não é aplicado, mas o chat continua disponível
+                    Log.warn("Rate limiter unavailable, allowing request: " + e.getMessage());
+                    return Uni.createFrom().voidItem();
+                });
+    }
+
+    /**
+     * Runs the token bucket script by its SHA1, loading it with EVAL the
+     * first time a Redis server sees it.
+     */
+    private Uni<Response> takeFromRedis(String bucketKey, Limit limit) {
+        String capacity = String.valueOf(limit.capacity());
+        String rate = String.valueOf(limit.tokensPerMillisecond());
+        String lease = String.valueOf(leaseSize);
+        return reactiveRedisDataSource.execute("EVALSHA", SCRIPT_SHA, "1", bucketKey, capacity, rate, lease)
+                .onFailure(e -> e.getMessage() != null && e.getMessage().startsWith("NOSCRIPT"))
+                .recoverWithUni(() -> reactiveRedisDataSource.execute("EVAL", SCRIPT, "1", bucketKey, capacity, rate, lease));
+    }
+
+    private void storeLease(String bucketKey, int tokens) {
+        if (leases.size() >= MAX_LOCAL_LEASES) {
+            leases.values().removeIf(Lease::isExpired);
+        }
+        leases.put(bucketKey, new Lease(tokens, System.currentTimeMillis() + leaseMillis));
+    }
+
+    private static String sha1(String script) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            return HexFormat.of().formatHex(digest.digest(script.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+    }
+
+    /**
+     * Bucket size and refill rate of an endpoint.
+     */
+    private record Limit(int capacity, double tokensPerMillisecond) {
+    }
+
+    /**
+     * Tokens granted by Redis to this node for one bucket.
+     */
+    private static final class Lease {
+
+        private final AtomicInteger remaining;
+        private final long expiresAt;
+
+        private Lease(int tokens, long expiresAt) {
+            this.remaining = new AtomicInteger(tokens);
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+
+        private boolean tryTake() {
+            if (isExpired()) {
+                return false;
+            }
+            int tokens;
+            do {
+                tokens = remaining.get();
+                if (tokens <= 0) {
+                    return false;
+                }
+            } while (!remaining.compareAndSet(tokens, tokens - 1));
+            return true;
+        }
+    }
+}
@@ -10,8 +10,14 @@ package dev.rpmhub.infrastructure.util;
 import io.smallrye.mutiny.Uni;
 import io.vertx.core.Context;
 import io.vertx.core.Vertx;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 import java.util.function.Supplier;
+import org.eclipse.microprofile.config.ConfigProvider;
 
 /**
  * Utility class to wrap blocking operations and make them non-blocking.
@@ -19,10 +25,27 @@ import java.util.function.Supplier;
  * Executes blocking operations on executor thread and ensures the result
  * is emitted back on the original Vert.x EventLoop thread, allowing
  * subsequent reactive operations to work correctly.
+ *
+ * Named operations run either on the worker pool or on a virtual thread per
+ * call, chosen by rag.blocking.&lt;operation&gt;.mode (worker or virtual).
+ * The calls to each backend made by the operation are limited by its
+ * {@link Bulkhead}, and run on the same thread.
+ *
+ * Cancelling the returned Uni interrupts a named operation that is still
+ * running, which stops a call waiting for its bulkhead.
  */
 public class BlockingToReactive {
     
     private static final Executor EXECUTOR = io.quarkus.runtime.ExecutorRecorder.getCurrent();
+
+    /**
+     * One virtual thread per call: a thread waiting for a bulkhead does not
+     * hold a worker pool thread.
+     */
+    private static final Executor VIRTUAL_EXECUTOR = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("blocking-virtual-", 0).factory());
+
+    private static final Map<String, Executor> OPERATION_EXECUTORS = new ConcurrentHashMap<>();
     
     /**
      * Wraps a blocking operation and returns a Uni that:
@@ -33,32 +56,64 @@ public class BlockingToReactive {
      * @return a Uni that emits the result on the EventLoop thread
      */
     public static <T> Uni<T> wrap(Supplier<T> blockingOperation) {
+        return wrap(EXECUTOR, blockingOperation);
+    }
+
+    /**
+     * Wraps a blocking operation like {@link #wrap(Supplier)}, running it on
+     * the executor configured for the operation.
+     *
+     * @param operation         the operation name, used to look up its mode
+     * @param blockingOperation the blocking operation to execute
+     * @return a Uni that emits the result on the EventLoop thread
+     */
+    public static <T> Uni<T> wrap(String operation, Supplier<T> blockingOperation) {
+        return wrap(executor(operation), blockingOperation);
+    }
+
+    private static Executor executor(String operation) {
+        return OPERATION_EXECUTORS.computeIfAbsent(operation, name -> {
+            String mode = ConfigProvider.getConfig()
+                    .getOptionalValue("rag.blocking." + name + ".mode", String.class)
+                    .orElse("worker");
+            return "virtual".equalsIgnoreCase(mode) ? VIRTUAL_EXECUTOR : EXECUTOR;
+        });
+    }
+
+    private static <T> Uni<T> wrap(Executor executor, Supplier<T> blockingOperation) {
         // Capture the current Vert.x context BEFORE executing blocking operations
         // This allows us to return to the EventLoop thread after blocking ops complete
         Context vertxContext = Vertx.currentContext();
-        
-        // Execute blocking operation on executor thread
-        return Uni.createFrom().item(() -> {
-                    // Execute the blocking operation
-                    return blockingOperation.get();
-                })
-                // Execute blocking operation on executor thread
-                .runSubscriptionOn(EXECUTOR)
-                // CRITICAL: Use transformToUni to switch back to EventLoop context
-                // This ensures subsequent reactive operations run on EventLoop thread
-                .onItem().transformToUni(result -> {
-                    if (vertxContext != null) {
-                        // Create a new Uni that will be executed on the EventLoop
-                        // by using runOnContext to schedule the emission
-                        return Uni.createFrom().emitter(emitter -> {
-                            vertxContext.runOnContext(v -> {
-                                emitter.complete(result);
-                            });
-                        });
+
+        return Uni.createFrom().<T>emitter(emitter -> {
+            // Execute blocking operation on executor thread, as a task that a
+            // cancellation can interrupt
+            FutureTask<T> task = new FutureTask<>(blockingOperation::get) {
+                @Override
+                protected void done() {
+                    if (isCancelled()) {
+                        return;
                     }
-                    // No context, return as is (will stay on executor thread)
-                    return Uni.createFrom().item(result);
-                });
+                    try {
+                        T result = get();
+                        // CRITICAL: switch back to the EventLoop context so
+                        // subsequent reactive operations run on it
+                        if (vertxContext != null) {
+                            vertxContext.runOnContext(v -> emitter.complete(result));
+                        } else {
+                            emitter.complete(result);
+                        }
+                    } catch (ExecutionException e) {
+                        emitter.fail(e.getCause());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        emitter.fail(e);
+                    }
+                }
+            };
+            emitter.onTermination(() -> task.cancel(true));
+            executor.execute(task);
+        });
     }
     
     /**
@@ -0,0 +1,233 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable in-memory inverted index scored with Okapi BM25.
+ *
+ * The term dictionary is a sorted String array searched by binary search, and
+ * the postings of all terms are stored back to back in two int arrays
+ * (document and term frequency), delimited by an offsets array. Tokens keep
+ * hyphens and underscores so identifiers such as {@code v-model} or
+ * {@code define_props} are matched as a whole.
+ */
+public final class Bm25Index {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    /**
+     * An index without documents.
+     */
+    public static final Bm25Index EMPTY = build(List.of());
+
+    private final String[] terms;
+    private final int[] offsets;
+    private final int[] postingDocs;
+    private final int[] postingFreqs;
+    private final int[] docLengths;
+    private final double averageDocLength;
+
+    private Bm25Index(String[] terms, int[] offsets, int[] postingDocs, int[] postingFreqs, int[] docLengths) {
+        this.terms = terms;
+        this.offsets = offsets;
+        this.postingDocs = postingDocs;
+        this.postingFreqs = postingFreqs;
+        this.docLengths = docLengths;
+        long total = 0;
+        for (int length : docLengths) {
+            total += length;
+        }
+        this.averageDocLength = docLengths.length == 0 ? 0 : (double) total / docLengths.length;
+    }
+
+    /**
+     * Builds the index. Documents are identified by their position in the list.
+     *
+     * @param documents the document texts
+     * @return the index
+     */
+    public static Bm25Index build(List<String> documents) {
+        int[] docLengths = new int[documents.size()];
+        List<Map<String, Integer>> docTerms = new ArrayList<>(documents.size());
+        Map<String, Integer> documentFrequency = new HashMap<>();
+
+        for (int doc = 0; doc < documents.size(); doc++) {
+            List<String> tokens = tokenize(documents.get(doc));
+            docLengths[doc] = tokens.size();
+            Map<String, Integer> frequencies = new HashMap<>();
+            for (String token : tokens) {
+                frequencies.merge(token, 1, Integer::sum);
+            }
+            for (String term : frequencies.keySet()) {
+                documentFrequency.merge(term, 1, Integer::sum);
+            }
+            docTerms.add(frequencies);
+        }
+
+        String[] terms = documentFrequency.keySet().toArray(new String[0]);
+        Arrays.sort(terms);
+        int[] offsets = new int[terms.length + 1];
+        for (int i = 0; i < terms.length; i++) {
+            offsets[i + 1] = offsets[i] + documentFrequency.get(terms[i]);
+        }
+
+        // Documents are visited in order, so each postings list is sorted
+        int[] postingDocs = new int[offsets[terms.length]];
+        int[] postingFreqs = new int[postingDocs.length];
+        int[] next = Arrays.copyOf(offsets, terms.length);
+        for (int doc = 0; doc < docTerms.size(); doc++) {
+            for (Map.Entry<String, Integer> entry : docTerms.get(doc).entrySet()) {
+                int term = Arrays.binarySearch(terms, entry.getKey());
+                int position = next[term]++;
+                postingDocs[position] = doc;
+                postingFreqs[position] = entry.getValue();
+            }
+        }
+
+        return new Bm25Index(terms, offsets, postingDocs, postingFreqs, docLengths);
+    }
+
+    /**
+     * Number of indexed documents.
+     *
+     * @return the document count
+     */
+    public int size() {
+        return docLengths.length;
+    }
+
+    /**
+     * Finds the k documents with the highest BM25 score for the query.
+     *
+     * @param query the query text
+     * @param k     the maximum number of documents to return
+     * @return the matching documents, best first
+     */
+    public Result search(String query, int k) {
+        return search(query, k, null);
+    }
+
+    /**
+     * Finds the k documents with the highest BM25 score for the query among
+     * the allowed documents. Postings of other documents are skipped.
+     *
+     * @param query   the query text
+     * @param k       the maximum number of documents to return
+     * @param allowed the documents that can be returned, or null for all
+     * @return the matching documents, best first
+     */
+    public Result search(String query, int k, BitSet allowed) {
+        Set<String> queryTerms = new LinkedHashSet<>(tokenize(query));
+        double[] scores = new double[docLengths.length];
+        int matchedTerms = 0;
+
+        for (String queryTerm : queryTerms) {
+            int term = Arrays.binarySearch(terms, queryTerm);
+            if (term < 0) {
+                continue;
+            }
+            matchedTerms++;
+            int df = offsets[term + 1] - offsets[term];
+            double idf = Math.log(1 + (docLengths.length - df + 0.5) / (df + 0.5));
+            for (int p = offsets[term]; p < offsets[term + 1]; p++) {
+                int doc = postingDocs[p];
+                if (allowed != null && !allowed.get(doc)) {
+                    continue;
+                }
+                int tf = postingFreqs[p];
+                double norm = K1 * (1 - B + B * docLengths[doc] / averageDocLength);
+                scores[doc] += idf * tf * (K1 + 1) / (tf + norm);
+            }
+        }
+
+        // Keep the top k in sorted arrays; k is small, so insertion is cheap
+        int[] topDocs = new int[Math.min(k, docLengths.length)];
+        double[] topScores = new double[topDocs.length];
+        int count = 0;
+        if (matchedTerms > 0 && topDocs.length > 0) {
+            for (int doc = 0; doc < scores.length; doc++) {
+                double score = scores[doc];
+                if (score <= 0 || (count == topDocs.length && score <= topScores[count - 1])) {
+                    continue;
+                }
+                int i = count < topDocs.length ? count++ : count - 1;
+                while (i > 0 && topScores[i - 1] < score) {
+                    topScores[i] = topScores[i - 1];
+                    topDocs[i] = topDocs[i - 1];
+                    i--;
+                }
+                topScores[i] = score;
+                topDocs[i] = doc;
+            }
+        }
+
+        return new Result(Arrays.copyOf(topDocs, count), Arrays.copyOf(topScores, count),
+                matchedTerms, queryTerms.size());
+    }
+
+    /**
+     * Splits a text into lowercase terms made of letters, digits, hyphens and
+     * underscores. Single characters are ignored.
+     *
+     * @param text the text to split
+     * @return the terms in order
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean tokenChar = i < text.length() && isTokenChar(text.charAt(i));
+            if (tokenChar && start < 0) {
+                start = i;
+            } else if (!tokenChar && start >= 0) {
+                addToken(tokens, text, start, i);
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isTokenChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '-' || c == '_';
+    }
+
+    private static void addToken(List<String> tokens, String text, int start, int end) {
+        // Hyphens are part of identifiers, not of the surrounding punctuation
+        while (start < end && text.charAt(start) == '-') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) == '-') {
+            end--;
+        }
+        if (end - start > 1) {
+            tokens.add(text.substring(start, end).toLowerCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Documents found by a search.
+     *
+     * @param docs         the document positions, best first
+     * @param scores       the BM25 scores of the documents
+     * @param matchedTerms the number of distinct query terms found in the index
+     * @param queryTerms   the number of distinct query terms
+     */
+    public record Result(int[] docs, double[] scores, int matchedTerms, int queryTerms) {
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.util;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Bounds the concurrent blocking calls to one backend, so a slow backend
+ * only holds its own permits and queue and cannot starve the calls to the
+ * others.
+ *
+ * Calls run on the calling thread, which is already off the event loop (see
+ * BlockingToReactive): the bulkhead only makes it wait for one of threads
+ * permits, with at most queue calls waiting. A full bulkhead fails the call
+ * with a RejectedExecutionException (rejection=abort) or runs it without a
+ * permit (caller-runs). Bulkheads are created by BulkheadService from
+ * rag.bulkhead.&lt;name&gt;.threads, .queue and .rejection.
+ *
+ * The running and waiting calls are published as rag.bulkhead.active and
+ * rag.bulkhead.waiting, and rejected calls as rag.bulkhead.rejected, all
+ * with the tag bulkhead=&lt;name&gt;.
+ */
+public final class Bulkhead {
+
+    public static final String EMBEDDING = "embedding";
+    public static final String VECTOR_SEARCH = "vector-search";
+    public static final String PDF_EXTRACTION = "pdf-extraction";
+    public static final String INGESTION = "ingestion";
+
+    private final String name;
+    private final Counter rejected;
+    private final boolean callerRuns;
+    private final int queue;
+
+    /**
+     * Calls running on this bulkhead.
+     */
+    private final Semaphore permits;
+
+    /**
+     * Calls waiting for a permit.
+     */
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    /**
+     * Creates a bulkhead.
+     *
+     * @param name       the bulkhead name, used in its meters
+     * @param threads    the maximum number of concurrent calls
+     * @param queue      the maximum number of waiting calls
+     * @param callerRuns whether a call rejected by a full bulkhead runs
+     *                   without a permit instead of failing
+     * @param registry   the registry of the bulkhead meters
+     */
+    public Bulkhead(String name, int threads, int queue, boolean callerRuns, MeterRegistry registry) {
+        this.name = name;
+        this.callerRuns = callerRuns;
+        this.queue = Math.max(1, queue);
+        this.permits = new Semaphore(threads);
+        this.rejected = Counter.builder("rag.bulkhead.rejected")
+                .description("Calls rejected because the bulkhead permits and queue were full")
+                .tag("bulkhead", name)
+                .register(registry);
+        Gauge.builder("rag.bulkhead.active", permits, semaphore -> threads - semaphore.availablePermits())
+                .description("Calls running on the bulkhead")
+                .tag("bulkhead", name)
+                .register(registry);
+        Gauge.builder("rag.bulkhead.waiting", waiting, AtomicInteger::get)
+                .description("Calls waiting for a permit of the bulkhead")
+                .tag("bulkhead", name)
+                .register(registry);
+    }
+
+    /**
+     * Runs a blocking call on the calling thread once it has a permit.
+     *
+     * @param call the blocking call
+     * @return the result of the call
+     * @throws RejectedExecutionException if the bulkhead is full and rejects
+     *                                    calls
+     * @throws CancellationException      if the thread is interrupted while
+     *                                    waiting for a permit
+     */
+    public <T> T call(Supplier<T> call) {
+        if (!permits.tryAcquire()) {
+            if (waiting.incrementAndGet() > queue) {
+                waiting.decrementAndGet();
+                rejected.increment();
+                if (callerRuns) {
+                    return call.get();
+                }
+                throw new RejectedExecutionException("Bulkhead " + name + " cheio");
+            }
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Chamada ao bulkhead " + name + " interrompida");
+            } finally {
+                waiting.decrementAndGet();
+            }
+        }
+        try {
+            return call.get();
+        } finally {
+            permits.release();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.util;
+
+/**
+ * Maximal Marginal Relevance (MMR) selection over embedding vectors.
+ *
+ * Each step picks the candidate maximizing
+ * {@code lambda * relevance - (1 - lambda) * max similarity to the selected},
+ * so near-duplicate chunks are not packed into the same context. Works on the
+ * vectors in place and allocates only a few arrays of the candidate count.
+ */
+public final class MaximalMarginalRelevance {
+
+    private MaximalMarginalRelevance() {
+    }
+
+    /**
+     * Selects up to k candidates in MMR order.
+     *
+     * @param vectors   the candidate embeddings
+     * @param relevance the cosine similarity of each candidate to the query
+     * @param k         the number of candidates to select
+     * @param lambda    the trade-off between relevance (1) and diversity (0)
+     * @return the indexes of the selected candidates, in selection order
+     */
+    public static int[] select(float[][] vectors, double[] relevance, int k, double lambda) {
+        int n = vectors.length;
+        int[] order = new int[Math.min(k, n)];
+        if (order.length == 0) {
+            return order;
+        }
+
+        double[] norms = new double[n];
+        for (int i = 0; i < n; i++) {
+            norms[i] = Math.sqrt(dot(vectors[i], vectors[i]));
+        }
+
+        // Similarity of each candidate to the closest one already selected
+        double[] redundancy = new double[n];
+        boolean[] selected = new boolean[n];
+
+        for (int step = 0; step < order.length; step++) {
+            int best = -1;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                if (selected[i]) {
+                    continue;
+                }
+                double score = lambda * relevance[i] - (step == 0 ? 0 : (1 - lambda) * redundancy[i]);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = i;
+                }
+            }
+
+            order[step] = best;
+            selected[best] = true;
+
+            for (int i = 0; i < n; i++) {
+                if (!selected[i]) {
+                    double norm = norms[best] * norms[i];
+                    double similarity = norm == 0 ? 0 : dot(vectors[best], vectors[i]) / norm;
+                    if (step == 0 || similarity > redundancy[i]) {
+                        redundancy[i] = similarity;
+                    }
+                }
+            }
+        }
+        return order;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,367 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Immutable in-memory vector index for brute-force cosine search.
+ *
+ * The scan runs over a compact copy of the vectors, stored contiguously:
+ * <ul>
+ * <li>FLOAT: the normalized vectors (exact, 4 bytes per dimension)</li>
+ * <li>INT8: scalar quantization to bytes with one global scale, scanned with
+ * an integer dot product (1 byte per dimension, 4x smaller)</li>
+ * <li>BINARY: one sign bit per dimension packed in longs, scanned by Hamming
+ * distance (1 bit per dimension, 32x smaller)</li>
+ * </ul>
+ * The best candidates of a quantized scan are re-scored with the
+ * full-precision vectors, so the returned scores are exact cosines. A
+ * quantized index keeps those vectors off the heap, in a direct buffer: the
+ * heap only holds the scanned copy, but the process still holds both, so
+ * {@link #totalBytes()} is larger than with FLOAT. The saving of INT8 and
+ * BINARY is in the memory traffic of the scan, not in the memory held.
+ */
+public final class QuantizedVectorIndex {
+
+    /**
+     * Representation used by the scan.
+     */
+    public enum Mode {
+        FLOAT, INT8, BINARY
+    }
+
+    private final Mode mode;
+    private final int size;
+    private final int dimension;
+    /**
+     * Normalized vectors on the heap, scanned by FLOAT (null otherwise).
+     */
+    private final float[] vectors;
+    /**
+     * Normalized vectors off the heap, used to re-score the candidates of a
+     * quantized scan (null with FLOAT).
+     */
+    private final FloatBuffer rescoreVectors;
+    private final byte[] int8Vectors;
+    private final long[] binaryVectors;
+    private final int words;
+    private final float int8Scale;
+
+    private QuantizedVectorIndex(Mode mode, int size, int dimension, float[] vectors, FloatBuffer rescoreVectors,
+            byte[] int8Vectors, long[] binaryVectors, float int8Scale) {
+        this.mode = mode;
+        this.size = size;
+        this.dimension = dimension;
+        this.vectors = vectors;
+        this.rescoreVectors = rescoreVectors;
+        this.int8Vectors = int8Vectors;
+        this.binaryVectors = binaryVectors;
+        this.words = (dimension + 63) / 64;
+        this.int8Scale = int8Scale;
+    }
+
+    /**
+     * Builds the index. Vectors are identified by their position in the array.
+     *
+     * @param source the vectors, all with the same dimension
+     * @param mode   the representation used by the scan
+     * @return the index
+     */
+    public static QuantizedVectorIndex build(float[][] source, Mode mode) {
+        int size = source.length;
+        int dimension = size == 0 ? 0 : source[0].length;
+        double[] norms = new double[size];
+        float maxAbs = 0;
+        for (int i = 0; i < size; i++) {
+            float[] vector = source[i];
+            norms[i] = Math.sqrt(dot(vector, 0, vector, 0, dimension));
+            for (int d = 0; d < dimension && norms[i] != 0; d++) {
+                maxAbs = Math.max(maxAbs, (float) Math.abs(vector[d] / norms[i]));
+            }
+        }
+
+        float[] vectors = null;
+        FloatBuffer rescoreVectors = null;
+        byte[] int8Vectors = null;
+        long[] binaryVectors = null;
+        float int8Scale = maxAbs == 0 ? 1 : 127 / maxAbs;
+        int words = (dimension + 63) / 64;
+        if (mode == Mode.FLOAT) {
+            vectors = new float[size * dimension];
+        } else {
+            rescoreVectors = ByteBuffer.allocateDirect(size * dimension * Float.BYTES)
+                    .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        }
+        if (mode == Mode.INT8) {
+            int8Vectors = new byte[size * dimension];
+        } else if (mode == Mode.BINARY) {
+            binaryVectors = new long[size * words];
+        }
+
+        float[] normalized = new float[dimension];
+        for (int i = 0; i < size; i++) {
+            for (int d = 0; d < dimension; d++) {
+                normalized[d] = norms[i] == 0 ? 0 : (float) (source[i][d] / norms[i]);
+            }
+            if (vectors != null) {
+                System.arraycopy(normalized, 0, vectors, i * dimension, dimension);
+            } else {
+                rescoreVectors.put(i * dimension, normalized);
+            }
+            if (int8Vectors != null) {
+                for (int d = 0; d < dimension; d++) {
+                    int8Vectors[i * dimension + d] = quantize(normalized[d], int8Scale);
+                }
+            } else if (binaryVectors != null) {
+                packSigns(normalized, 0, dimension, binaryVectors, i * words);
+            }
+        }
+
+        return new QuantizedVectorIndex(mode, size, dimension, vectors, rescoreVectors, int8Vectors, binaryVectors,
+                int8Scale);
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets a normalized full-precision vector.
+     *
+     * @param id the vector position
+     * @return a copy of the vector, with unit length
+     */
+    public float[] vector(int id) {
+        if (vectors != null) {
+            return Arrays.copyOfRange(vectors, id * dimension, (id + 1) * dimension);
+        }
+        float[] vector = new float[dimension];
+        rescoreVectors.get(id * dimension, vector);
+        return vector;
+    }
+
+    /**
+     * Bytes used by the scanned representation.
+     *
+     * @return the size of the scan arrays in bytes
+     */
+    public long scanBytes() {
+        return switch (mode) {
+            case FLOAT -> (long) vectors.length * Float.BYTES;
+            case INT8 -> int8Vectors.length;
+            case BINARY -> (long) binaryVectors.length * Long.BYTES;
+        };
+    }
+
+    /**
+     * Bytes held by the index: the scanned representation and, when it is
+     * quantized, the full-precision vectors kept off the heap to re-score.
+     *
+     * @return the size of the vectors held, on and off the heap, in bytes
+     */
+    public long totalBytes() {
+        return rescoreVectors == null ? scanBytes() : scanBytes() + (long) rescoreVectors.capacity() * Float.BYTES;
+    }
+
+    /**
+     * Finds the k vectors most similar to the query.
+     *
+     * @param query      the query vector
+     * @param k          the number of results
+     * @param candidates the number of candidates of a quantized scan that are
+     *                   re-scored with full precision (at least k)
+     * @return the results, best first, with exact cosine similarities
+     */
+    public Result search(float[] query, int k, int candidates) {
+        return search(query, k, candidates, null);
+    }
+
+    /**
+     * Finds the k vectors most similar to the query among the allowed ones.
+     * Only the allowed vectors are scanned.
+     *
+     * @param query      the query vector
+     * @param k          the number of results
+     * @param candidates the number of candidates of a quantized scan that are
+     *                   re-scored with full precision (at least k)
+     * @param allowed    the vector positions that can be returned, or null for
+     *                   all
+     * @return the results, best first, with exact cosine similarities
+     */
+    public Result search(float[] query, int k, int candidates, BitSet allowed) {
+        float[] normalized = new float[dimension];
+        double norm = Math.sqrt(dot(query, 0, query, 0, dimension));
+        for (int d = 0; d < dimension; d++) {
+            normalized[d] = norm == 0 ? 0 : (float) (query[d] / norm);
+        }
+
+        if (mode == Mode.FLOAT) {
+            TopK top = new TopK(Math.min(k, size));
+            for (int i = next(allowed, 0); i < size; i = next(allowed, i + 1)) {
+                top.offer(i, dot(vectors, i * dimension, normalized, 0, dimension));
+            }
+            return top.toResult();
+        }
+
+        TopK scan = new TopK(Math.min(Math.max(k, candidates), size));
+        if (mode == Mode.INT8) {
+            byte[] quantized = new byte[dimension];
+            for (int d = 0; d < dimension; d++) {
+                quantized[d] = quantize(normalized[d], int8Scale);
+            }
+            for (int i = next(allowed, 0); i < size; i = next(allowed, i + 1)) {
+                scan.offer(i, int8Dot(i * dimension, quantized));
+            }
+        } else {
+            long[] signs = new long[words];
+            packSigns(normalized, 0, dimension, signs, 0);
+            for (int i = next(allowed, 0); i < size; i = next(allowed, i + 1)) {
+                scan.offer(i, -hamming(i * words, signs));
+            }
+        }
+
+        // Exact re-scoring of the candidates
+        TopK top = new TopK(Math.min(k, size));
+        for (int c = 0; c < scan.count; c++) {
+            int i = scan.ids[c];
+            top.offer(i, dot(rescoreVectors, i * dimension, normalized, dimension));
+        }
+        return top.toResult();
+    }
+
+    /**
+     * Next position to scan from the given one, or size when there is none.
+     */
+    private int next(BitSet allowed, int from) {
+        if (allowed == null) {
+            return from;
+        }
+        int next = allowed.nextSetBit(from);
+        return next < 0 ? size : next;
+    }
+
+    private int int8Dot(int offset, byte[] query) {
+        // Single accumulator: integer reductions are vectorized by the JIT
+        int sum = 0;
+        for (int d = 0; d < dimension; d++) {
+            sum += int8Vectors[offset + d] * query[d];
+        }
+        return sum;
+    }
+
+    private int hamming(int offset, long[] query) {
+        int distance = 0;
+        for (int w = 0; w < words; w++) {
+            distance += Long.bitCount(binaryVectors[offset + w] ^ query[w]);
+        }
+        return distance;
+    }
+
+    private static byte quantize(float value, float scale) {
+        return (byte) Math.max(-127, Math.min(127, Math.round(value * scale)));
+    }
+
+    private static void packSigns(float[] source, int offset, int dimension, long[] target, int targetOffset) {
+        for (int d = 0; d < dimension; d++) {
+            if (source[offset + d] > 0) {
+                target[targetOffset + d / 64] |= 1L << (d % 64);
+            }
+        }
+    }
+
+    /**
+     * Dot product with independent accumulators, so the additions are not one
+     * serial dependency chain.
+     */
+    private static double dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float sum0 = 0;
+        float sum1 = 0;
+        float sum2 = 0;
+        float sum3 = 0;
+        int d = 0;
+        for (; d + 3 < length; d += 4) {
+            sum0 += a[aOffset + d] * b[bOffset + d];
+            sum1 += a[aOffset + d + 1] * b[bOffset + d + 1];
+            sum2 += a[aOffset + d + 2] * b[bOffset + d + 2];
+            sum3 += a[aOffset + d + 3] * b[bOffset + d + 3];
+        }
+        for (; d < length; d++) {
+            sum0 += a[aOffset + d] * b[bOffset + d];
+        }
+        return (double) sum0 + sum1 + sum2 + sum3;
+    }
+
+    private static double dot(FloatBuffer a, int aOffset, float[] b, int length) {
+        float sum0 = 0;
+        float sum1 = 0;
+        float sum2 = 0;
+        float sum3 = 0;
+        int d = 0;
+        for (; d + 3 < length; d += 4) {
+            sum0 += a.get(aOffset + d) * b[d];
+            sum1 += a.get(aOffset + d + 1) * b[d + 1];
+            sum2 += a.get(aOffset + d + 2) * b[d + 2];
+            sum3 += a.get(aOffset + d + 3) * b[d + 3];
+        }
+        for (; d < length; d++) {
+            sum0 += a.get(aOffset + d) * b[d];
+        }
+        return (double) sum0 + sum1 + sum2 + sum3;
+    }
+
+    /**
+     * Vectors found by a search.
+     *
+     * @param ids    the vector positions, best first
+     * @param scores the cosine similarity of each vector to the query
+     */
+    public record Result(int[] ids, double[] scores) {
+    }
+
+    /**
+     * Keeps the k best scores in sorted primitive arrays.
+     */
+    private static final class TopK {
+
+        private final int[] ids;
+        private final double[] scores;
+        private int count;
+
+        private TopK(int k) {
+            this.ids = new int[k];
+            this.scores = new double[k];
+        }
+
+        private void offer(int id, double score) {
+            if (ids.length == 0 || (count == ids.length && score <= scores[count - 1])) {
+                return;
+            }
+            int i = count < ids.length ? count++ : count - 1;
+            while (i > 0 && scores[i - 1] < score) {
+                scores[i] = scores[i - 1];
+                ids[i] = ids[i - 1];
+                i--;
+            }
+            scores[i] = score;
+            ids[i] = id;
+        }
+
+        private Result toResult() {
+            return new Result(Arrays.copyOf(ids, count), Arrays.copyOf(scores, count));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reciprocal Rank Fusion (RRF) of several rankings.
+ *
+ * Each item scores the sum of {@code 1 / (k + rank)} over the rankings it
+ * appears in, with ranks starting at 1, so items found by several rankings
+ * rise above items ranked well by only one of them. Only the ranks are used,
+ * which makes rankings with incomparable scores (BM25 and cosine) mergeable.
+ */
+public final class ReciprocalRankFusion {
+
+    /**
+     * Rank offset, as in the original paper.
+     */
+    public static final int K = 60;
+
+    private ReciprocalRankFusion() {
+    }
+
+    /**
+     * Fuses the rankings.
+     *
+     * @param rankings the rankings of item ids, best first
+     * @param limit    the maximum number of items to return
+     * @return the ids and fused scores, best first; ties keep the order in
+     *         which the items were first seen
+     */
+    public static Map<String, Double> fuse(List<List<String>> rankings, int limit) {
+        Map<String, Double> scores = new LinkedHashMap<>();
+        for (List<String> ranking : rankings) {
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                scores.merge(ranking.get(rank), score(rank), Double::sum);
+            }
+        }
+
+        List<Map.Entry<String, Double>> sorted = new ArrayList<>(scores.entrySet());
+        sorted.sort(Map.Entry.<String, Double>comparingByValue(Comparator.reverseOrder()));
+        Map<String, Double> fused = new LinkedHashMap<>();
+        for (Map.Entry<String, Double> entry : sorted.subList(0, Math.min(limit, sorted.size()))) {
+            fused.put(entry.getKey(), entry.getValue());
+        }
+        return fused;
+    }
+
+    /**
+     * Score of an item at a rank.
+     *
+     * @param rank the zero-based rank
+     * @return the RRF score
+     */
+    public static double score(int rank) {
+        return 1.0 / (K + rank + 1);
+    }
+}
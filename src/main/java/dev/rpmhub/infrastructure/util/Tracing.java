@@ -0,0 +1,80 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.util;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.smallrye.mutiny.Uni;
+
+/**
+ * Utility class to create OpenTelemetry spans around blocking and reactive
+ * operations.
+ *
+ * Spans are explicitly parented because reactive operations may complete on a
+ * different thread than the one that started them, so the current context
+ * cannot be relied upon when the span ends.
+ */
+public class Tracing {
+
+    /**
+     * Runs a blocking operation inside a span that is a child of the given
+     * context.
+     *
+     * @param tracer    the tracer used to create the span
+     * @param name      the span name
+     * @param parent    the parent context
+     * @param operation the operation, which receives the span to add attributes
+     * @return the operation result
+     */
+    public static <T> T inSpan(Tracer tracer, String name, Context parent, Function<Span, T> operation) {
+        Span span = tracer.spanBuilder(name).setParent(parent).startSpan();
+        try {
+            return operation.apply(span);
+        } catch (RuntimeException e) {
+            span.recordException(e);
+            span.setStatus(StatusCode.ERROR);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    /**
+     * Wraps a reactive operation in a span that starts on subscription and ends
+     * when the operation terminates (item, failure or cancellation).
+     *
+     * @param tracer     the tracer used to create the span
+     * @param name       the span name
+     * @param attributes the attributes known before the operation starts
+     * @param operation  the operation to trace
+     * @param onItem     callback to add attributes derived from the result
+     * @return a Uni emitting the same result as the operation
+     */
+    public static <T> Uni<T> span(Tracer tracer, String name, Attributes attributes, Uni<T> operation,
+            BiConsumer<Span, T> onItem) {
+        return Uni.createFrom().deferred(() -> {
+            Span span = tracer.spanBuilder(name)
+                    .setParent(Context.current())
+                    .setAllAttributes(attributes)
+                    .startSpan();
+            return operation
+                    .onItem().invoke(item -> onItem.accept(span, item))
+                    .onFailure().invoke(e -> {
+                        span.recordException(e);
+                        span.setStatus(StatusCode.ERROR);
+                    })
+                    .onTermination().invoke(span::end);
+        });
+    }
+}
@@ -0,0 +1,3 @@
+-- Add status column to chat_messages: assistant answers are created when
+-- their generation starts and filled in checkpoints while it streams
+ALTER TABLE chat_messages ADD COLUMN status VARCHAR(20) NOT NULL DEFAULT 'COMPLETE';
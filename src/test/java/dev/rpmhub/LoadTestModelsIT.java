@@ -0,0 +1,85 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+
+package dev.rpmhub;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.restassured.path.json.JsonPath;
+
+/**
+ * Drives the chatbot end to end against the fake models of the load tests,
+ * so it runs without Ollama and Chroma.
+ */
+@QuarkusTest
+@TestProfile(LoadTestModelsIT.FakeModels.class)
+class LoadTestModelsIT {
+
+    private static final int TOKENS = 20;
+
+    public static class FakeModels implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                    "rag.load-test.enabled", "true",
+                    "rag.load-test.llm.time-to-first-token", "10ms",
+                    "rag.load-test.llm.tokens-per-second", "500",
+                    "rag.load-test.llm.tokens", String.valueOf(TOKENS),
+                    "quarkus.langchain4j.chroma.devservices.enabled", "false",
+                    "rag.rate-limit.enabled", "false");
+        }
+    }
+
+    @Test
+    @DisplayName("Teste do endpoint /ai/chatbot com modelos falsos - resposta salva completa na memória")
+    void testChatbotAnswerIsPersisted() throws InterruptedException {
+        String session = "load-test-session-" + System.currentTimeMillis();
+
+        given()
+            .when()
+                .queryParam("session", session)
+                .queryParam("prompt", "Como usar props em um componente Vue?")
+                .get("/ai/chatbot")
+            .then()
+                .statusCode(200)
+                .contentType("text/event-stream");
+
+        // The last checkpoint is written just after the stream ends
+        Map<String, Object> answer = null;
+        for (int attempt = 0; attempt < 50 && answer == null; attempt++) {
+            JsonPath memory = given()
+                .when()
+                    .queryParam("session", session)
+                    .get("/ai/memory")
+                .then()
+                    .statusCode(200)
+                    .extract().jsonPath();
+            List<Map<String, Object>> messages = memory.getList("messages");
+            Map<String, Object> last = messages.get(messages.size() - 1);
+            if ("ASSISTANT".equals(last.get("type")) && "COMPLETE".equals(last.get("status"))) {
+                answer = last;
+            } else {
+                Thread.sleep(100);
+            }
+        }
+
+        assertTrue(answer != null, "A resposta deveria ser salva como COMPLETE");
+        assertEquals(TOKENS, ((String) answer.get("content")).trim().split("\\s+").length);
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.application.rest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.NullSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import jakarta.ws.rs.BadRequestException;
+
+class ResumePointTest {
+
+    @Test
+    @DisplayName("Last-Event-ID é lido como id da mensagem e offset")
+    void parsesMessageIdAndOffset() {
+        ResumePoint point = ResumePoint.parse("3f2a-9c:120");
+        assertEquals("3f2a-9c", point.messageId());
+        assertEquals(120, point.offset());
+    }
+
+    @Test
+    @DisplayName("O offset é o que vem depois do último separador")
+    void splitsAtLastSeparator() {
+        ResumePoint point = ResumePoint.parse("a:b:7");
+        assertEquals("a:b", point.messageId());
+        assertEquals(7, point.offset());
+    }
+
+    @Test
+    @DisplayName("O id do evento volta a ser lido como a mesma posição")
+    void roundTripsEventId() {
+        ResumePoint point = new ResumePoint("m1", 42);
+        assertEquals(point, ResumePoint.parse(point.eventId()));
+    }
+
+    @ParameterizedTest
+    @NullSource
+    @ValueSource(strings = { "", "m1", ":10", "m1:", "m1:abc", "m1:-1", "m1:99999999999" })
+    @DisplayName("Last-Event-ID ausente ou malformado é rejeitado com 400")
+    void rejectsMalformed(String lastEventId) {
+        assertThrows(BadRequestException.class, () -> ResumePoint.parse(lastEventId));
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+
+package dev.rpmhub.bench;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.ollama.OllamaEmbeddingModel;
+import dev.rpmhub.infrastructure.adapter.InProcessEmbeddingModel;
+
+/**
+ * Latency of one query embedding: Ollama over HTTP vs. the in-process ONNX
+ * model. The ollama case needs a running Ollama with all-minilm:33m pulled
+ * (-Dollama.url, default http://localhost:11434). Run with:
+ *
+ * <pre>
+ * mvn test-compile exec:exec -Pbench -Djmh.args="EmbeddingBenchmark"
+ * mvn test-compile exec:exec -Pbench -Djmh.args="EmbeddingBenchmark -p backend=in-process -p intraOpThreads=1,2,4"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.AverageTime, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EmbeddingBenchmark {
+
+    private static final String QUERY = "Como passar dados de um componente pai para um componente filho no Vue.js?";
+
+    @Param({ "in-process", "ollama" })
+    private String backend;
+
+    @Param({ "1" })
+    private int intraOpThreads;
+
+    private ExecutorService executor;
+    private EmbeddingModel model;
+
+    @Setup
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        model = switch (backend) {
+            case "in-process" -> new InProcessEmbeddingModel(executor, intraOpThreads);
+            case "ollama" -> OllamaEmbeddingModel.builder()
+                    .baseUrl(System.getProperty("ollama.url", "http://localhost:11434"))
+                    .modelName("all-minilm:33m")
+                    .timeout(Duration.ofSeconds(30))
+                    .build();
+            default -> throw new IllegalArgumentException("Unknown backend: " + backend);
+        };
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public Embedding embedQuery() {
+        return model.embed(QUERY).content();
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+
+package dev.rpmhub.bench;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.microprofile.config.ConfigProvider;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import dev.rpmhub.domain.port.MetricsService;
+import dev.rpmhub.infrastructure.adapter.HashEmbeddingModel;
+import dev.rpmhub.infrastructure.repository.EmbeddingRepositoryImpl;
+import dev.rpmhub.infrastructure.service.BulkheadService;
+import dev.rpmhub.infrastructure.service.CrossEncoderService;
+import dev.rpmhub.infrastructure.service.PDFExtractorService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+
+/**
+ * Throughput of a full ingestion (extract, split, embed, store, index) over
+ * a synthetic corpus, with a deterministic hash embedding model and an
+ * in-memory store so only the ingestion path is measured. Each combination
+ * of extraction threads and chunk size runs on the same corpus after a
+ * warm-up ingestion. Run with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=dev.rpmhub.bench.IngestionBenchmark \
+ *     -Dexec.args="20 10 20 1,2,4 250,500"
+ * </pre>
+ *
+ * Arguments: PDFs, pages per PDF, text files, extraction threads, chunk
+ * sizes (tokens).
+ */
+public final class IngestionBenchmark {
+
+    private static final int DIMENSION = 384;
+
+    private IngestionBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int pdfs = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int pages = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int texts = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        int[] threads = parse(args.length > 3 ? args[3] : "1,2,4");
+        int[] chunkSizes = parse(args.length > 4 ? args[4] : "500");
+        Logger.getLogger("").setLevel(Level.WARNING);
+        Arrays.stream(Logger.getLogger("").getHandlers()).forEach(handler -> handler.setLevel(Level.WARNING));
+        // Font substitution warnings of the generated PDFs
+        Logger.getLogger("org.apache.pdfbox").setLevel(Level.SEVERE);
+
+        Path corpus = Files.createTempDirectory("rag-corpus");
+        try {
+            long start = System.nanoTime();
+            SyntheticCorpus.write(corpus, pdfs, pages, texts, 42);
+            System.out.printf("corpus: %d PDFs x %d pages + %d text files, generated in %d ms%n", pdfs, pages,
+                    texts, (System.nanoTime() - start) / 1_000_000);
+            System.out.printf("%-8s %-6s %6s %8s %9s %8s %9s %10s %8s%n", "threads", "chunk", "docs", "chunks",
+                    "seconds", "docs/s", "chunks/s", "heap MB", "GC ms");
+
+            run(corpus, threads[0], chunkSizes[0], pdfs + texts, false);
+            for (int chunkSize : chunkSizes) {
+                for (int threadCount : threads) {
+                    run(corpus, threadCount, chunkSize, pdfs + texts, true);
+                }
+            }
+        } finally {
+            try (var files = Files.walk(corpus)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static void run(Path corpus, int threads, int chunkSize, int documents, boolean report) {
+        CountingStore store = new CountingStore();
+        MetricsService metrics = new NoopMetricsService();
+        EmbeddingRepositoryImpl repository = new EmbeddingRepositoryImpl(store, new HashEmbeddingModel(DIMENSION),
+                new PDFExtractorService(), metrics, OpenTelemetry.noop().getTracer("bench"),
+                new CrossEncoderService(metrics, false, Optional.empty(), Optional.empty(), 512, 8, 1, 200),
+                new BulkheadService(ConfigProvider.getConfig(), new SimpleMeterRegistry()),
+                20, 0.7, 0, "chroma", 4, chunkSize, 0, 1, 0.5, 8, 0.8, 0, threads);
+
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        long gcBefore = gcMillis();
+        long start = System.nanoTime();
+
+        repository.ingestDocuments(corpus.toString());
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long gc = gcMillis() - gcBefore;
+        long peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        if (report) {
+            System.out.printf("%-8d %-6d %6d %8d %9.2f %8.1f %9.1f %10.1f %8d%n", threads, chunkSize, documents,
+                    store.chunks.get(), seconds, documents / seconds, store.chunks.get() / seconds,
+                    peakHeap / 1024.0 / 1024.0, gc);
+        }
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime)
+                .sum();
+    }
+
+    private static int[] parse(String values) {
+        return Arrays.stream(values.split(",")).mapToInt(Integer::parseInt).toArray();
+    }
+
+    /**
+     * In-memory store that counts the chunks added.
+     */
+    private static final class CountingStore extends InMemoryEmbeddingStore<TextSegment> {
+
+        private final AtomicLong chunks = new AtomicLong();
+
+        @Override
+        public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> embedded) {
+            chunks.addAndGet(embeddings.size());
+            super.addAll(ids, embeddings, embedded);
+        }
+    }
+
+    /**
+     * MetricsService that records nothing.
+     */
+    private static final class NoopMetricsService implements MetricsService {
+
+        @Override
+        public void recordStage(String pipeline, String stage, long startNanos) {
+        }
+
+        @Override
+        public <T> Uni<T> timeStage(String pipeline, String stage, Uni<T> operation) {
+            return operation;
+        }
+
+        @Override
+        public Multi<String> timeGeneration(String pipeline, Multi<String> generation) {
+            return generation;
+        }
+
+        @Override
+        public void recordCacheAccess(String cache, boolean hit) {
+        }
+
+        @Override
+        public void recordBackendCall(String backend, String operation) {
+        }
+
+        @Override
+        public <T> Multi<T> trackRequest(String pipeline, Multi<T> request) {
+            return request;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+
+package dev.rpmhub.bench;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import dev.rpmhub.infrastructure.util.QuantizedVectorIndex;
+import dev.rpmhub.infrastructure.util.QuantizedVectorIndex.Mode;
+
+/**
+ * Recall@k and latency of the in-process vector search modes.
+ *
+ * Uses clustered random vectors with the MiniLM dimension (384); queries are
+ * noisy copies of indexed vectors. Recall is measured against the exact
+ * FLOAT scan. Run with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=dev.rpmhub.bench.QuantizedVectorSearchBenchmark \
+ *     -Dexec.args="20000 10"
+ * </pre>
+ */
+public final class QuantizedVectorSearchBenchmark {
+
+    private static final int DIMENSION = 384;
+    private static final int CLUSTERS = 64;
+    private static final int QUERIES = 500;
+    private static final int WARMUP_ROUNDS = 3;
+
+    private QuantizedVectorSearchBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int k = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        Random random = new Random(42);
+
+        float[][] centers = new float[CLUSTERS][];
+        for (int c = 0; c < CLUSTERS; c++) {
+            centers[c] = gaussian(random, 1.0f);
+        }
+        float[][] vectors = new float[size][];
+        for (int i = 0; i < size; i++) {
+            vectors[i] = add(centers[random.nextInt(CLUSTERS)], gaussian(random, 0.6f));
+        }
+        float[][] queries = new float[QUERIES][];
+        for (int q = 0; q < QUERIES; q++) {
+            queries[q] = add(vectors[random.nextInt(size)], gaussian(random, 0.3f));
+        }
+
+        QuantizedVectorIndex exact = QuantizedVectorIndex.build(vectors, Mode.FLOAT);
+        int[][] truth = new int[QUERIES][];
+        for (int q = 0; q < QUERIES; q++) {
+            truth[q] = exact.search(queries[q], k, k).ids();
+        }
+
+        System.out.printf("n=%d dim=%d k=%d queries=%d%n", size, DIMENSION, k, QUERIES);
+        System.out.printf("%-7s %-10s %12s %12s %10s %12s%n", "mode", "candidates", "scan bytes", "total bytes",
+                "recall@k", "us/query");
+        run(exact, queries, truth, k, k);
+        for (Mode mode : new Mode[] { Mode.INT8, Mode.BINARY }) {
+            QuantizedVectorIndex index = QuantizedVectorIndex.build(vectors, mode);
+            for (int factor : new int[] { 1, 4, 10, 30 }) {
+                run(index, queries, truth, k, k * factor);
+            }
+        }
+    }
+
+    private static void run(QuantizedVectorIndex index, float[][] queries, int[][] truth, int k, int candidates) {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            for (float[] query : queries) {
+                index.search(query, k, candidates);
+            }
+        }
+
+        int found = 0;
+        long start = System.nanoTime();
+        for (int q = 0; q < queries.length; q++) {
+            int[] ids = index.search(queries[q], k, candidates).ids();
+            int[] expected = truth[q].clone();
+            Arrays.sort(expected);
+            for (int id : ids) {
+                if (Arrays.binarySearch(expected, id) >= 0) {
+                    found++;
+                }
+            }
+        }
+        double micros = (System.nanoTime() - start) / 1_000.0 / queries.length;
+        double recall = (double) found / (queries.length * k);
+        System.out.printf("%-7s %-10d %12d %12d %10.3f %12.1f%n", index.mode(), candidates, index.scanBytes(),
+                index.totalBytes(), recall, micros);
+    }
+
+    private static float[] gaussian(Random random, float sigma) {
+        float[] vector = new float[DIMENSION];
+        for (int d = 0; d < DIMENSION; d++) {
+            vector[d] = (float) random.nextGaussian() * sigma;
+        }
+        return vector;
+    }
+
+    private static float[] add(float[] a, float[] b) {
+        float[] sum = new float[a.length];
+        for (int d = 0; d < a.length; d++) {
+            sum[d] = a[d] + b[d];
+        }
+        return sum;
+    }
+}
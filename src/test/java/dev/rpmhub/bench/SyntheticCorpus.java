@@ -0,0 +1,123 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+
+package dev.rpmhub.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+
+/**
+ * Writes a reproducible corpus of PDFs and text files shaped like the course
+ * material in rag.location: pages of prose with code-like terms, and text
+ * files with headed sections like eventos.txt. The same seed always produces
+ * the same files.
+ */
+public final class SyntheticCorpus {
+
+    private static final String[] WORDS = {
+            "componente", "props", "evento", "diretiva", "v-on", "v-model", "template", "estado", "reatividade",
+            "instancia", "metodo", "computed", "watch", "ciclo", "vida", "slot", "emit", "router", "rota", "store",
+            "pinia", "dados", "pai", "filho", "renderizacao", "lista", "chave", "v-for", "v-if", "classe", "estilo",
+            "formulario", "entrada", "valor", "usuario", "pagina", "aplicacao", "modulo", "importar", "exportar",
+            "o", "a", "de", "para", "com", "quando", "que", "um", "uma", "no", "na", "e", "se", "pode", "deve",
+            "usar", "criar", "atualizar", "mostrar", "receber", "enviar", "cada", "todo", "novo", "simples" };
+
+    private static final int LINES_PER_PAGE = 46;
+    private static final int CHARS_PER_LINE = 90;
+
+    private SyntheticCorpus() {
+    }
+
+    /**
+     * Writes the corpus.
+     *
+     * @param directory the target directory, created if needed
+     * @param pdfs      the number of PDF files
+     * @param pages     the number of pages of each PDF
+     * @param texts     the number of text files
+     * @param seed      the random seed
+     * @throws IOException if a file cannot be written
+     */
+    public static void write(Path directory, int pdfs, int pages, int texts, long seed) throws IOException {
+        Files.createDirectories(directory);
+        Random random = new Random(seed);
+        for (int i = 0; i < pdfs; i++) {
+            writePdf(directory.resolve(String.format("apostila-%03d.pdf", i)), pages, random);
+        }
+        for (int i = 0; i < texts; i++) {
+            writeText(directory.resolve(String.format("topico-%03d.txt", i)), random);
+        }
+    }
+
+    private static void writePdf(Path file, int pages, Random random) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+            for (int p = 0; p < pages; p++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.beginText();
+                    content.setFont(font, 10);
+                    content.setLeading(14);
+                    content.newLineAtOffset(50, 740);
+                    for (String line : lines(random, LINES_PER_PAGE)) {
+                        content.showText(line);
+                        content.newLine();
+                    }
+                    content.endText();
+                }
+            }
+            document.save(file.toFile());
+        }
+    }
+
+    private static void writeText(Path file, Random random) throws IOException {
+        StringBuilder text = new StringBuilder();
+        int sections = 3 + random.nextInt(4);
+        for (int s = 0; s < sections; s++) {
+            text.append("# ").append(sentence(random, 3)).append("\n\n");
+            for (String line : lines(random, 10 + random.nextInt(20))) {
+                text.append(line).append('\n');
+            }
+            text.append('\n');
+        }
+        Files.writeString(file, text);
+    }
+
+    private static List<String> lines(Random random, int count) {
+        List<String> lines = new ArrayList<>(count);
+        StringBuilder line = new StringBuilder();
+        while (lines.size() < count) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            if (line.length() + word.length() + 1 > CHARS_PER_LINE) {
+                lines.add(line.toString());
+                line.setLength(0);
+            }
+            line.append(line.length() == 0 ? "" : " ").append(word);
+        }
+        return lines;
+    }
+
+    private static String sentence(Random random, int words) {
+        StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            sentence.append(i == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sentence.toString();
+    }
+}
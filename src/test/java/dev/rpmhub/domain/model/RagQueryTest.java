@@ -0,0 +1,38 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.domain.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class RagQueryTest {
+
+    @Test
+    @DisplayName("Aceita filtros sobre os metadados suportados")
+    void supportedFilters() {
+        RagQuery query = new RagQuery("classe", 5, 0.7, 1000, Map.of("course", "vue", "page", "3"));
+
+        assertEquals(Map.of("course", "vue", "page", "3"), query.getFilters());
+        assertTrue(new RagQuery("classe", 5, 0.7, 1000, null).getFilters().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Rejeita filtros sobre metadados internos, como a geração do índice")
+    void rejectsOtherKeys() {
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> new RagQuery("classe", 5, 0.7, 1000, Map.of("course", "vue", "generation", "1")));
+
+        assertTrue(error.getMessage().contains("generation"), error.getMessage());
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.domain.usecase;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import dev.rpmhub.domain.model.AIRequest;
+import dev.rpmhub.domain.model.RagQuery;
+import dev.rpmhub.domain.model.RagResponse;
+import dev.rpmhub.domain.port.AIService;
+import dev.rpmhub.domain.port.EmbeddingRepository;
+import dev.rpmhub.infrastructure.service.MetricsServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.helpers.test.AssertSubscriber;
+
+class AskQuestionUseCaseTest {
+
+    private final TickingAIService aiService = new TickingAIService();
+    private final AskQuestionUseCase useCase = new AskQuestionUseCase(new FixedEmbeddingRepository(), aiService,
+            new MetricsServiceImpl(new SimpleMeterRegistry()), 4, 0.6, 1500);
+
+    private AssertSubscriber<String> ask(String prompt) {
+        return useCase.execute("s1", prompt).subscribe().withSubscriber(AssertSubscriber.create(Long.MAX_VALUE));
+    }
+
+    @Test
+    @DisplayName("Perguntas iguais e simultâneas compartilham uma geração")
+    void identicalQuestionsShareGeneration() {
+        AssertSubscriber<String> first = ask("O que é uma prop?");
+        AssertSubscriber<String> second = ask("  O que é   uma prop? ");
+
+        first.awaitCompletion(Duration.ofSeconds(5));
+        second.awaitCompletion(Duration.ofSeconds(5));
+        assertEquals(1, aiService.generations.get());
+        assertEquals(first.getItems(), second.getItems());
+    }
+
+    @Test
+    @DisplayName("A geração continua enquanto houver uma requisição esperando por ela")
+    void generationContinuesForRemainingRequest() {
+        AssertSubscriber<String> first = ask("O que é uma prop?");
+        AssertSubscriber<String> second = ask("O que é uma prop?");
+
+        first.cancel();
+        second.awaitCompletion(Duration.ofSeconds(5));
+        assertFalse(aiService.cancelled.get() > 0);
+        assertEquals(TickingAIService.TOKENS / 20, second.getItems().size());
+    }
+
+    @Test
+    @DisplayName("A geração é cancelada quando todas as requisições saem e a próxima começa outra")
+    void generationCancelledWhenEveryRequestLeaves() throws InterruptedException {
+        AssertSubscriber<String> first = ask("O que é uma prop?");
+        AssertSubscriber<String> second = ask("O que é uma prop?");
+
+        first.cancel();
+        second.cancel();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (aiService.cancelled.get() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, aiService.cancelled.get());
+
+        AssertSubscriber<String> third = ask("O que é uma prop?");
+        third.awaitCompletion(Duration.ofSeconds(5));
+        assertEquals(2, aiService.generations.get());
+        assertEquals(TickingAIService.TOKENS / 20, third.getItems().size());
+    }
+
+    /**
+     * Emits a token every few milliseconds and counts the generations and
+     * their cancellations.
+     */
+    private static class TickingAIService implements AIService {
+
+        static final int TOKENS = 60;
+
+        final AtomicInteger generations = new AtomicInteger();
+        final AtomicInteger cancelled = new AtomicInteger();
+
+        @Override
+        public Multi<String> generateResponse(AIRequest request) {
+            return Multi.createFrom().ticks().every(Duration.ofMillis(5))
+                    .onSubscription().invoke(generations::incrementAndGet)
+                    .select().first(TOKENS)
+                    .onItem().transform(tick -> "t" + tick + " ")
+                    .onCancellation().invoke(cancelled::incrementAndGet);
+        }
+
+        @Override
+        public Multi<String> generateContextualResponse(AIRequest request) {
+            return generateResponse(request);
+        }
+    }
+
+    private static class FixedEmbeddingRepository implements EmbeddingRepository {
+
+        @Override
+        public Multi<RagResponse> searchChunks(RagQuery query) {
+            return Multi.createFrom().item(new RagResponse(query.getQuery(), List.of("Props passam dados ao filho."),
+                    0.9));
+        }
+
+        @Override
+        public void ingestDocuments(String directoryPath) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void ingestFiles(String directoryPath, Collection<Path> changed) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,373 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.domain.usecase;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.rpmhub.domain.model.AIRequest;
+import dev.rpmhub.domain.model.ChatMessage;
+import dev.rpmhub.domain.model.ConversationMemory;
+import dev.rpmhub.domain.model.RagQuery;
+import dev.rpmhub.domain.model.RagResponse;
+import dev.rpmhub.domain.port.AIService;
+import dev.rpmhub.domain.port.EmbeddingRepository;
+import dev.rpmhub.domain.port.MemoryService;
+import dev.rpmhub.infrastructure.adapter.FakeChatEndpoint;
+import dev.rpmhub.infrastructure.adapter.LlmBackendPool;
+import dev.rpmhub.infrastructure.service.MetricsServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.common.vertx.VertxContext;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.helpers.test.AssertSubscriber;
+import io.smallrye.mutiny.subscription.Cancellable;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+
+class ChatbotUseCaseTest {
+
+    private static Vertx vertx;
+
+    @BeforeAll
+    static void startVertx() {
+        vertx = Vertx.vertx();
+    }
+
+    @AfterAll
+    static void stopVertx() {
+        vertx.close().toCompletionStage().toCompletableFuture().join();
+    }
+
+    /**
+     * An update of a saved message, with the Vert.x context it ran on.
+     */
+    private record Append(String content, ChatMessage.MessageStatus status, Context context) {
+    }
+
+    @Test
+    @DisplayName("Resposta abandonada cancela a geração no backend e é salva como ABORTED no contexto da requisição")
+    void abandonedAnswerIsAborted() throws Exception {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        // 500 tokens at 100 tokens/s: the answer is still streaming when abandoned
+        LlmBackendPool pool = pool(new FakeChatEndpoint(Duration.ofMillis(10), 100, 500), cancelled);
+        RecordingMemoryService memory = new RecordingMemoryService();
+        ChatbotUseCase useCase = useCase(pool, memory, Duration.ofMillis(200));
+
+        Context requestContext = VertxContext.createNewDuplicatedContext(vertx.getOrCreateContext());
+        AtomicReference<AssertSubscriber<String>> client = new AtomicReference<>();
+        requestContext.runOnContext(ignored -> client.set(useCase
+                .execute("u1", "c1", "Como usar props no Vue?", Map.of(), true, position -> {
+                }, messageId -> {
+                })
+                .subscribe().withSubscriber(AssertSubscriber.create(Long.MAX_VALUE))));
+
+        waitUntil(() -> client.get() != null && client.get().getItems().size() >= 3);
+        client.get().cancel();
+
+        Append last = memory.finished.get(5, TimeUnit.SECONDS);
+        assertEquals(ChatMessage.MessageStatus.ABORTED, last.status());
+        assertTrue(cancelled.get(), "a geração deveria ser cancelada no backend");
+        assertTrue(memory.appends.stream().allMatch(append -> append.context() == requestContext),
+                "todas as escritas deveriam ocorrer no contexto da requisição");
+        String saved = memory.content();
+        assertFalse(saved.isEmpty());
+        assertTrue(String.join("", client.get().getItems()).length() <= saved.length());
+    }
+
+    @Test
+    @DisplayName("Sem resumable, a geração é cancelada assim que o cliente sai, sem esperar o prazo")
+    void answerOfNonResumableClientIsAbortedAtOnce() throws Exception {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        LlmBackendPool pool = pool(new FakeChatEndpoint(Duration.ofMillis(10), 100, 500), cancelled);
+        RecordingMemoryService memory = new RecordingMemoryService();
+        ChatbotUseCase useCase = useCase(pool, memory, Duration.ofMinutes(1));
+
+        Context requestContext = VertxContext.createNewDuplicatedContext(vertx.getOrCreateContext());
+        AtomicReference<AssertSubscriber<String>> client = new AtomicReference<>();
+        requestContext.runOnContext(ignored -> client.set(useCase
+                .execute("u1", "c1", "Como usar props no Vue?", Map.of(), false, position -> {
+                }, messageId -> {
+                })
+                .subscribe().withSubscriber(AssertSubscriber.create(Long.MAX_VALUE))));
+
+        waitUntil(() -> client.get() != null && client.get().getItems().size() >= 3);
+        client.get().cancel();
+
+        Append last = memory.finished.get(5, TimeUnit.SECONDS);
+        assertEquals(ChatMessage.MessageStatus.ABORTED, last.status());
+        assertTrue(cancelled.get(), "a geração deveria ser cancelada no backend");
+    }
+
+    @Test
+    @DisplayName("Cliente que volta dentro do prazo recebe o resto e a resposta é concluída")
+    void resumedAnswerCompletes() throws Exception {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        LlmBackendPool pool = pool(new FakeChatEndpoint(Duration.ofMillis(10), 100, 30), cancelled);
+        RecordingMemoryService memory = new RecordingMemoryService();
+        ChatbotUseCase useCase = useCase(pool, memory, Duration.ofSeconds(10));
+
+        Context requestContext = VertxContext.createNewDuplicatedContext(vertx.getOrCreateContext());
+        AtomicReference<AssertSubscriber<String>> client = new AtomicReference<>();
+        AtomicReference<String> started = new AtomicReference<>();
+        requestContext.runOnContext(ignored -> client.set(useCase
+                .execute("u1", "c1", "O que é um slot?", Map.of(), true, position -> {
+                }, started::set)
+                .subscribe().withSubscriber(AssertSubscriber.create(Long.MAX_VALUE))));
+
+        waitUntil(() -> client.get() != null && client.get().getItems().size() >= 2);
+        client.get().cancel();
+        String received = String.join("", client.get().getItems());
+
+        ChatMessage message = memory.messages.get(started.get());
+        AssertSubscriber<String> resumed = useCase.resume(message, received.length()).subscribe()
+                .withSubscriber(AssertSubscriber.create(Long.MAX_VALUE))
+                .awaitCompletion(Duration.ofSeconds(5));
+
+        Append last = memory.finished.get(5, TimeUnit.SECONDS);
+        assertEquals(ChatMessage.MessageStatus.COMPLETE, last.status());
+        assertFalse(cancelled.get());
+        assertEquals(memory.content(), received + String.join("", resumed.getItems()));
+        assertSame(requestContext, last.context());
+    }
+
+    @Test
+    @DisplayName("Pré-buscas repetidas da mesma conversa são ignoradas")
+    void repeatedPrefetchIsSkipped() {
+        FixedEmbeddingRepository repository = new FixedEmbeddingRepository();
+        ChatbotUseCase useCase = new ChatbotUseCase(repository, new PoolAIService(null), new RecordingMemoryService(),
+                new MetricsServiceImpl(new SimpleMeterRegistry()), 4, 0.6, 1500, 4, Duration.ofMillis(200),
+                Duration.ofSeconds(10), Duration.ofSeconds(30), 0.8, Duration.ofMinutes(1));
+
+        assertTrue(useCase.prefetch("c1", "Como usar", Map.of()));
+        // Within the debounce window, even with other words
+        assertFalse(useCase.prefetch("c1", "Como usar props no Vue", Map.of()));
+        // Other conversations and other filters are prefetched
+        assertTrue(useCase.prefetch("c2", "Como usar", Map.of()));
+        assertTrue(useCase.prefetch("c1", "Como usar", Map.of("course", "vue")));
+        assertEquals(3, repository.searches.get());
+    }
+
+    private static LlmBackendPool pool(FakeChatEndpoint endpoint, AtomicBoolean cancelled) {
+        LlmBackendPool.Endpoint recording = (request, handler) -> {
+            Cancellable generation = endpoint.chat(request, handler);
+            return () -> {
+                cancelled.set(true);
+                generation.cancel();
+            };
+        };
+        return new LlmBackendPool(Map.of("fake", recording), new SimpleMeterRegistry(), 2, 0.5,
+                Duration.ofSeconds(15), 30);
+    }
+
+    private static ChatbotUseCase useCase(LlmBackendPool pool, MemoryService memory, Duration resumeGrace) {
+        return new ChatbotUseCase(new FixedEmbeddingRepository(), new PoolAIService(pool), memory,
+                new MetricsServiceImpl(new SimpleMeterRegistry()), 4, 0.6, 1500, 4, Duration.ofMillis(200),
+                resumeGrace, Duration.ofSeconds(30), 0.8, Duration.ofMillis(500));
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "tempo esgotado");
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Streams the prompt through the backend pool, cancelling the generation
+     * when the returned Multi is cancelled, like AIServiceAdapter.
+     */
+    private static class PoolAIService implements AIService {
+
+        private final LlmBackendPool pool;
+
+        PoolAIService(LlmBackendPool pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public Multi<String> generateResponse(AIRequest request) {
+            return generateContextualResponse(request);
+        }
+
+        @Override
+        public Multi<String> generateContextualResponse(AIRequest request) {
+            return Multi.createFrom().emitter(emitter -> {
+                ChatRequest chatRequest = ChatRequest.builder()
+                        .messages(UserMessage.from(request.getPrompt()))
+                        .build();
+                Cancellable generation = pool.chat(request.getSession(), chatRequest,
+                        new StreamingChatResponseHandler() {
+                            @Override
+                            public void onPartialResponse(String token) {
+                                emitter.emit(token);
+                            }
+
+                            @Override
+                            public void onCompleteResponse(ChatResponse response) {
+                                emitter.complete();
+                            }
+
+                            @Override
+                            public void onError(Throwable error) {
+                                emitter.fail(error);
+                            }
+                        });
+                emitter.onTermination(generation::cancel);
+            });
+        }
+    }
+
+    private static class FixedEmbeddingRepository implements EmbeddingRepository {
+
+        final AtomicInteger searches = new AtomicInteger();
+
+        @Override
+        public Multi<RagResponse> searchChunks(RagQuery query) {
+            searches.incrementAndGet();
+            return Multi.createFrom().item(new RagResponse(query.getQuery(), List.of("Props passam dados ao filho."),
+                    0.9));
+        }
+
+        @Override
+        public void ingestDocuments(String directoryPath) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void ingestFiles(String directoryPath, Collection<Path> changed) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Keeps the saved messages in memory and records every append, with the
+     * Vert.x context it ran on.
+     */
+    private static class RecordingMemoryService implements MemoryService {
+
+        final Map<String, ChatMessage> messages = new ConcurrentHashMap<>();
+        final List<Append> appends = new CopyOnWriteArrayList<>();
+        final CompletableFuture<Append> finished = new CompletableFuture<>();
+
+        String content() {
+            return appends.stream().map(Append::content).reduce("", String::concat);
+        }
+
+        @Override
+        public Uni<Void> saveMessage(ChatMessage message) {
+            if (message.getId() == null) {
+                message.setId(UUID.randomUUID().toString());
+            }
+            messages.put(message.getId(), message);
+            return Uni.createFrom().voidItem();
+        }
+
+        @Override
+        public Uni<Void> appendMessage(ChatMessage message, String content, ChatMessage.MessageStatus status) {
+            Append append = new Append(content, status, Vertx.currentContext());
+            appends.add(append);
+            if (status != null) {
+                finished.complete(append);
+            }
+            return Uni.createFrom().voidItem();
+        }
+
+        @Override
+        public Uni<ChatMessage> getMessage(String messageId) {
+            return Uni.createFrom().item(messages.get(messageId));
+        }
+
+        @Override
+        public Uni<ConversationMemory> getConversationMemory(String sessionId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Uni<ConversationMemory> getConversationMemory(String userId, String conversationId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Uni<List<ChatMessage>> getLastMessages(String sessionId, int count) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Uni<List<ChatMessage>> getLastMessages(String userId, String conversationId, int count) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Uni<String> getHistory(String sessionId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Uni<String> getHistory(String userId, String conversationId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Uni<Void> clearConversation(String sessionId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Uni<Void> clearConversation(String userId, String conversationId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Uni<Boolean> hasConversation(String sessionId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Uni<Boolean> hasConversation(String userId, String conversationId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Uni<Void> setMaxMessages(String sessionId, int maxMessages) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Uni<Integer> getMessageCount(String sessionId) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.domain.usecase;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import dev.rpmhub.domain.model.ChatMessage;
+import io.smallrye.common.vertx.VertxContext;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.helpers.test.AssertSubscriber;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+
+class ResponseStreamTest {
+
+    private static Vertx vertx;
+
+    @BeforeAll
+    static void startVertx() {
+        vertx = Vertx.vertx();
+    }
+
+    @AfterAll
+    static void stopVertx() {
+        vertx.close().toCompletionStage().toCompletableFuture().join();
+    }
+
+    private static ResponseStream stream() {
+        ChatMessage message = new ChatMessage("session", "", ChatMessage.MessageType.ASSISTANT);
+        message.setId("m1");
+        return new ResponseStream(message, Duration.ofMinutes(1), abandoned -> {
+        });
+    }
+
+    @Test
+    @DisplayName("Seguidores recebem o texto a partir do seu offset e depois os novos tokens")
+    void followsFromOffset() {
+        ResponseStream stream = stream();
+        AssertSubscriber<String> first = stream.follow(0).subscribe().withSubscriber(AssertSubscriber.create(10));
+        stream.append("Olá", 32, Long.MAX_VALUE);
+        stream.append(", mundo", 32, Long.MAX_VALUE);
+
+        AssertSubscriber<String> second = stream.follow(2).subscribe().withSubscriber(AssertSubscriber.create(10));
+        stream.append("!", 32, Long.MAX_VALUE);
+        stream.complete();
+
+        first.assertCompleted().assertItems("Olá", ", mundo", "!");
+        second.assertCompleted().assertItems("á, mundo", "!");
+    }
+
+    @Test
+    @DisplayName("Resposta concluída é reenviada a partir do offset")
+    void replaysAfterCompletion() {
+        ResponseStream stream = stream();
+        stream.append("abc", 32, Long.MAX_VALUE);
+        stream.append("def", 32, Long.MAX_VALUE);
+        stream.complete();
+
+        stream.follow(4).subscribe().withSubscriber(AssertSubscriber.create(10))
+                .assertCompleted().assertItems("ef");
+        stream.follow(6).subscribe().withSubscriber(AssertSubscriber.create(10))
+                .assertCompleted().assertHasNotReceivedAnyItem();
+    }
+
+    @Test
+    @DisplayName("Resposta que falhou reenvia o texto gerado e a falha")
+    void replaysAfterFailure() {
+        ResponseStream stream = stream();
+        AssertSubscriber<String> live = stream.follow(0).subscribe().withSubscriber(AssertSubscriber.create(10));
+        stream.append("parcial", 32, Long.MAX_VALUE);
+        stream.fail(new IllegalStateException("modelo caiu"));
+
+        live.assertFailedWith(IllegalStateException.class, "modelo caiu");
+        stream.follow(3).subscribe().withSubscriber(AssertSubscriber.create(10))
+                .assertFailedWith(IllegalStateException.class, "modelo caiu")
+                .assertItems("cial");
+    }
+
+    @Test
+    @DisplayName("Checkpoint é devido após checkpoint.tokens tokens e leva só o texto novo")
+    void checkpointsAfterTokens() {
+        ResponseStream stream = stream();
+        assertFalse(stream.append("a", 3, Long.MAX_VALUE));
+        assertFalse(stream.append("b", 3, Long.MAX_VALUE));
+        assertTrue(stream.append("c", 3, Long.MAX_VALUE));
+        assertEquals("abc", stream.unsaved());
+        assertFalse(stream.append("d", 3, Long.MAX_VALUE));
+        assertEquals("d", stream.unsaved());
+        assertEquals("", stream.unsaved());
+    }
+
+    @Test
+    @DisplayName("Sem tolerância, a geração é cancelada assim que o último cliente sai")
+    void abandonsAtOnceWithoutGrace() {
+        ChatMessage message = new ChatMessage("session", "", ChatMessage.MessageType.ASSISTANT);
+        message.setId("m1");
+        List<ResponseStream> abandoned = new CopyOnWriteArrayList<>();
+        List<String> cancelled = new CopyOnWriteArrayList<>();
+        ResponseStream stream = new ResponseStream(message, Duration.ZERO, abandoned::add);
+        stream.generating(() -> cancelled.add("m1"));
+
+        AssertSubscriber<String> client = stream.follow(0).subscribe().withSubscriber(AssertSubscriber.create(10));
+        stream.append("parcial", 32, Long.MAX_VALUE);
+        client.cancel();
+
+        assertEquals(List.of("m1"), cancelled);
+        assertEquals(List.of(stream), abandoned);
+    }
+
+    @Test
+    @DisplayName("Checkpoints são escritos em ordem, mesmo após uma falha")
+    void serializesWrites() {
+        ResponseStream stream = stream();
+        List<String> written = new CopyOnWriteArrayList<>();
+        stream.write(() -> Uni.createFrom().voidItem().onItem().delayIt().by(Duration.ofMillis(100))
+                .invoke(() -> written.add("1")));
+        stream.write(() -> Uni.createFrom().failure(new IllegalStateException("falha")));
+        Uni<Void> last = stream.write(() -> Uni.createFrom().voidItem().invoke(() -> written.add("3")));
+
+        last.await().atMost(Duration.ofSeconds(5));
+        assertEquals(List.of("1", "3"), written);
+    }
+
+    @Test
+    @DisplayName("Checkpoints são escritos no contexto Vert.x da requisição")
+    void writesOnRequestContext() throws Exception {
+        Context requestContext = VertxContext.createNewDuplicatedContext(vertx.getOrCreateContext());
+        CompletableFuture<ResponseStream> created = new CompletableFuture<>();
+        requestContext.runOnContext(ignored -> created.complete(stream()));
+        ResponseStream stream = created.get(5, TimeUnit.SECONDS);
+
+        // Written from a thread outside Vert.x, like the model client's
+        CompletableFuture<Context> writtenOn = new CompletableFuture<>();
+        CompletableFuture.runAsync(() -> stream.write(() -> {
+            writtenOn.complete(Vertx.currentContext());
+            return Uni.createFrom().voidItem();
+        }));
+
+        assertSame(requestContext, writtenOn.get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,243 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.adapter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.subscription.Cancellable;
+
+class LlmBackendPoolTest {
+
+    private static final ChatRequest REQUEST = ChatRequest.builder()
+            .messages(UserMessage.from("O que é uma prop?"))
+            .build();
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    /**
+     * How a scripted endpoint answers a generation.
+     */
+    private enum Behaviour {
+        /** Fails before its first token. */
+        FAIL,
+        /** Streams two tokens and completes. */
+        ANSWER,
+        /** Streams one token and fails. */
+        FAIL_AFTER_TOKEN,
+        /** Never answers until cancelled. */
+        HOLD
+    }
+
+    /**
+     * Answers every generation with its current behaviour and counts the
+     * calls and cancellations.
+     */
+    private static final class ScriptedEndpoint implements LlmBackendPool.Endpoint {
+
+        private final String name;
+        private volatile Behaviour behaviour;
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicInteger cancellations = new AtomicInteger();
+
+        ScriptedEndpoint(String name, Behaviour behaviour) {
+            this.name = name;
+            this.behaviour = behaviour;
+        }
+
+        @Override
+        public Cancellable chat(ChatRequest request, StreamingChatResponseHandler handler) {
+            calls.incrementAndGet();
+            switch (behaviour) {
+                case FAIL -> handler.onError(new IllegalStateException(name + " fora do ar"));
+                case ANSWER -> {
+                    handler.onPartialResponse(name + ":1 ");
+                    handler.onPartialResponse(name + ":2");
+                    handler.onCompleteResponse(ChatResponse.builder()
+                            .aiMessage(AiMessage.from(name + ":1 " + name + ":2"))
+                            .build());
+                }
+                case FAIL_AFTER_TOKEN -> {
+                    handler.onPartialResponse(name + ":1");
+                    handler.onError(new IllegalStateException(name + " caiu"));
+                }
+                case HOLD -> {
+                }
+            }
+            return cancellations::incrementAndGet;
+        }
+    }
+
+    /**
+     * Records what a generation delivered.
+     */
+    private static final class RecordingHandler implements StreamingChatResponseHandler {
+
+        final List<String> tokens = new CopyOnWriteArrayList<>();
+        volatile ChatResponse response;
+        volatile Throwable error;
+
+        @Override
+        public void onPartialResponse(String token) {
+            tokens.add(token);
+        }
+
+        @Override
+        public void onCompleteResponse(ChatResponse completeResponse) {
+            response = completeResponse;
+        }
+
+        @Override
+        public void onError(Throwable failure) {
+            error = failure;
+        }
+    }
+
+    private LlmBackendPool pool(ScriptedEndpoint a, ScriptedEndpoint b, int ejectSeconds) {
+        return new LlmBackendPool(Map.of("a", a, "b", b), registry, 2, 0.5, Duration.ofSeconds(15), ejectSeconds);
+    }
+
+    private double gauge(String name, String backend) {
+        return registry.get(name).tag("backend", backend).gauge().value();
+    }
+
+    @Test
+    @DisplayName("Backends começam saudáveis, independente do valor de System.nanoTime()")
+    void backendsStartHealthy() {
+        pool(new ScriptedEndpoint("a", Behaviour.ANSWER), new ScriptedEndpoint("b", Behaviour.ANSWER), 30);
+
+        assertEquals(1.0, gauge("rag.llm.backend.healthy", "a"));
+        assertEquals(1.0, gauge("rag.llm.backend.healthy", "b"));
+    }
+
+    @Test
+    @DisplayName("Falha antes do primeiro token é repetida em outro backend")
+    void failsOverBeforeFirstToken() {
+        ScriptedEndpoint a = new ScriptedEndpoint("a", Behaviour.FAIL);
+        ScriptedEndpoint b = new ScriptedEndpoint("b", Behaviour.ANSWER);
+        RecordingHandler handler = new RecordingHandler();
+
+        pool(a, b, 30).chat(null, REQUEST, handler);
+
+        assertNull(handler.error);
+        assertEquals(List.of("b:1 ", "b:2"), handler.tokens);
+        assertEquals(1, a.calls.get());
+        assertEquals(1, b.calls.get());
+        assertEquals(0.0, gauge("rag.llm.backend.outstanding", "a"));
+        assertEquals(0.0, gauge("rag.llm.backend.outstanding", "b"));
+    }
+
+    @Test
+    @DisplayName("Falha depois do primeiro token chega ao cliente sem nova tentativa")
+    void doesNotFailOverAfterFirstToken() {
+        ScriptedEndpoint a = new ScriptedEndpoint("a", Behaviour.FAIL_AFTER_TOKEN);
+        ScriptedEndpoint b = new ScriptedEndpoint("b", Behaviour.ANSWER);
+        RecordingHandler handler = new RecordingHandler();
+
+        pool(a, b, 30).chat(null, REQUEST, handler);
+
+        assertEquals(List.of("a:1"), handler.tokens);
+        assertTrue(handler.error instanceof IllegalStateException);
+        assertEquals(0, b.calls.get());
+    }
+
+    @Test
+    @DisplayName("A conversa fica no seu backend até ele ficar mais ocupado que a folga de afinidade")
+    void keepsConversationAffinity() {
+        ScriptedEndpoint a = new ScriptedEndpoint("a", Behaviour.HOLD);
+        ScriptedEndpoint b = new ScriptedEndpoint("b", Behaviour.HOLD);
+        LlmBackendPool pool = pool(a, b, 30);
+
+        // c1 starts on a, the least busy (by name on a tie)
+        pool.chat("c1", REQUEST, new RecordingHandler());
+        assertEquals(1, a.calls.get());
+        // a has 1 in flight, b 0: within the slack of 2, c1 stays on a
+        pool.chat("c1", REQUEST, new RecordingHandler());
+        pool.chat("c1", REQUEST, new RecordingHandler());
+        assertEquals(3, a.calls.get());
+        // A new conversation goes to the least busy backend
+        pool.chat("c2", REQUEST, new RecordingHandler());
+        assertEquals(1, b.calls.get());
+        // a has 3 in flight, b 1: still within the slack
+        pool.chat("c1", REQUEST, new RecordingHandler());
+        assertEquals(4, a.calls.get());
+        // a has 4 in flight, b 1: beyond the slack, c1 moves to b
+        pool.chat("c1", REQUEST, new RecordingHandler());
+        assertEquals(2, b.calls.get());
+        // and stays there
+        pool.chat("c1", REQUEST, new RecordingHandler());
+        assertEquals(3, b.calls.get());
+    }
+
+    @Test
+    @DisplayName("Backend com muitas falhas sai do pool e volta depois de eject-seconds")
+    void ejectsAndRecovers() throws InterruptedException {
+        ScriptedEndpoint a = new ScriptedEndpoint("a", Behaviour.FAIL);
+        ScriptedEndpoint b = new ScriptedEndpoint("b", Behaviour.ANSWER);
+        LlmBackendPool pool = pool(a, b, 1);
+
+        // Error rate after n failures: 1 - 0.8^n, above 0.5 from the 4th
+        for (int i = 0; i < 4; i++) {
+            RecordingHandler handler = new RecordingHandler();
+            pool.chat(null, REQUEST, handler);
+            assertNull(handler.error);
+        }
+        assertEquals(4, a.calls.get());
+        assertEquals(0.0, gauge("rag.llm.backend.healthy", "a"));
+
+        // Ejected: generations go straight to b
+        pool.chat(null, REQUEST, new RecordingHandler());
+        assertEquals(4, a.calls.get());
+        assertEquals(5, b.calls.get());
+
+        Thread.sleep(1100);
+        assertEquals(1.0, gauge("rag.llm.backend.healthy", "a"));
+        a.behaviour = Behaviour.ANSWER;
+        RecordingHandler handler = new RecordingHandler();
+        pool.chat(null, REQUEST, handler);
+        assertEquals(5, a.calls.get());
+        assertEquals(List.of("a:1 ", "a:2"), handler.tokens);
+    }
+
+    @Test
+    @DisplayName("Cancelar a geração para o endpoint e libera o slot do backend")
+    void cancelReachesEndpoint() {
+        ScriptedEndpoint a = new ScriptedEndpoint("a", Behaviour.HOLD);
+        ScriptedEndpoint b = new ScriptedEndpoint("b", Behaviour.HOLD);
+        LlmBackendPool pool = pool(a, b, 30);
+        RecordingHandler handler = new RecordingHandler();
+
+        Cancellable generation = pool.chat("c1", REQUEST, handler);
+        assertEquals(1.0, gauge("rag.llm.backend.outstanding", "a"));
+        generation.cancel();
+        generation.cancel();
+
+        assertEquals(1, a.cancellations.get());
+        assertEquals(0.0, gauge("rag.llm.backend.outstanding", "a"));
+        assertEquals(1.0, registry.get("rag.llm.backend.generations").tag("backend", "a")
+                .tag("outcome", "cancelled").counter().count());
+        assertNull(handler.error);
+        assertNull(handler.response);
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.adapter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import dev.rpmhub.domain.model.AIRequest;
+
+class ModelRouterTest {
+
+    private final ModelRouter router = new ModelRouter("base", Optional.of("small"), Optional.of("large"),
+            8, 0.75, 6, Optional.of(List.of("Explique", "compare", "código")));
+
+    private static AIRequest request(String prompt, double score) {
+        return new AIRequest("c1", "u1", prompt, "", position -> {
+        }, score);
+    }
+
+    @ParameterizedTest(name = "{0} | score {1} | histórico {2} -> {3} {4}")
+    @DisplayName("Perguntas são roteadas pelos limites de prompt, score, histórico e palavras-chave")
+    @CsvSource(delimiter = '|', textBlock = """
+            O que é uma prop?                              | 0.9  | 0 | simple  |
+            O que é uma prop?                              | NaN  | 0 | simple  |
+            O que é uma prop?                              | 0.75 | 6 | simple  |
+            O que é uma prop?                              | 0.74 | 0 | complex | score
+            O que é uma prop?                              | 0.9  | 7 | complex | history
+            um dois três quatro cinco seis sete oito       | 0.9  | 0 | simple  |
+            um dois três quatro cinco seis sete oito nove  | 0.9  | 0 | complex | prompt
+            um dois três quatro cinco seis sete oito nove  | 0.1  | 9 | complex | prompt
+            explique o v-model                             | 0.9  | 0 | complex | keyword
+            Mostre um CODIGO com slots                     | 0.9  | 0 | complex | keyword
+            Compare ref e reactive                         | NaN  | 0 | complex | keyword
+            """)
+    void routesByThresholds(String prompt, double score, int history, String tier, String reason) {
+        ModelRouter.Route route = router.route(request(prompt, score), history);
+
+        assertEquals(tier, route.tier());
+        assertEquals(reason, route.reason());
+        assertEquals(ModelRouter.SIMPLE.equals(tier) ? "small" : "large", route.model());
+    }
+
+    @Test
+    @DisplayName("Sem modelos configurados, os dois níveis usam o modelo de chat")
+    void defaultsToChatModel() {
+        ModelRouter defaults = new ModelRouter("base", Optional.empty(), Optional.empty(), 8, 0.75, 6,
+                Optional.empty());
+
+        assertEquals("base", defaults.route(request("O que é uma prop?", 0.9), 0).model());
+        assertEquals("base", defaults.route(request("O que é uma prop?", 0.1), 0).model());
+    }
+}
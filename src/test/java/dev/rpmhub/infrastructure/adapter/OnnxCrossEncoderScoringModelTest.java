@@ -0,0 +1,214 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.adapter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import dev.langchain4j.data.segment.TextSegment;
+
+/**
+ * Runs the scoring model on a tiny ONNX graph written by the test: each word
+ * of the pair adds its weight to the logit, so the expected score of a pair
+ * is known exactly.
+ */
+class OnnxCrossEncoderScoringModelTest {
+
+    private static final String[] VOCABULARY = { "[PAD]", "[UNK]", "props", "componente", "vue", "css" };
+    private static final float[] WEIGHTS = { 0f, 0f, 2f, 1f, 0.5f, -1f };
+    private static final int MAX_LENGTH = 8;
+
+    @TempDir
+    static Path directory;
+
+    private static OnnxCrossEncoderScoringModel model;
+
+    @BeforeAll
+    static void load() throws IOException {
+        Path modelPath = Files.write(directory.resolve("model.onnx"), OnnxGraph.weightedBagOfWords(WEIGHTS));
+        StringBuilder vocabulary = new StringBuilder();
+        for (int i = 0; i < VOCABULARY.length; i++) {
+            vocabulary.append(i == 0 ? "" : ",").append('"').append(VOCABULARY[i]).append("\":").append(i);
+        }
+        Path tokenizerPath = Files.writeString(directory.resolve("tokenizer.json"), """
+                {"version": "1.0", "truncation": null, "padding": null, "added_tokens": [],
+                 "normalizer": {"type": "Lowercase"}, "pre_tokenizer": {"type": "Whitespace"},
+                 "post_processor": null, "decoder": null,
+                 "model": {"type": "WordLevel", "vocab": {%s}, "unk_token": "[UNK]"}}
+                """.formatted(vocabulary));
+        model = new OnnxCrossEncoderScoringModel(modelPath, tokenizerPath, MAX_LENGTH);
+    }
+
+    @AfterAll
+    static void close() throws Exception {
+        model.close();
+    }
+
+    private static double sigmoid(double logit) {
+        return 1 / (1 + Math.exp(-logit));
+    }
+
+    private static List<Double> score(String query, String... segments) {
+        return model.scoreAll(List.of(segments).stream().map(TextSegment::from).toList(), query).content();
+    }
+
+    @Test
+    @DisplayName("O score i é o do trecho i, com o logit do modelo passado pela sigmoide")
+    void scoresFollowSegmentOrder() {
+        List<Double> scores = score("Vue", "CSS do CSS", "Props do componente", "props");
+
+        // "vue" adds 0.5 to every pair; "do" is unknown
+        assertEquals(sigmoid(0.5 - 2), scores.get(0), 1e-6);
+        assertEquals(sigmoid(0.5 + 3), scores.get(1), 1e-6);
+        assertEquals(sigmoid(0.5 + 2), scores.get(2), 1e-6);
+        assertTrue(scores.get(1) > scores.get(2) && scores.get(2) > scores.get(0));
+        scores.forEach(score -> assertTrue(score > 0 && score < 1));
+    }
+
+    @Test
+    @DisplayName("O padding do lote não muda o score de um par")
+    void batchMatchesSingleScores() {
+        String[] segments = { "props", "componente vue css props componente", "css" };
+        List<Double> batch = score("props", segments);
+
+        for (int i = 0; i < segments.length; i++) {
+            assertEquals(score("props", segments[i]).get(0), batch.get(i), 1e-6);
+        }
+    }
+
+    @Test
+    @DisplayName("Pares longos cortam o trecho, nunca a pergunta")
+    void truncatesSegmentOnly() {
+        // Query (3 tokens) + segment cut to 5 of its 10 tokens
+        List<Double> scores = score("componente componente vue", "props ".repeat(10));
+
+        assertEquals(sigmoid(2.5 + 5 * 2), scores.get(0), 1e-6);
+    }
+
+    @Test
+    @DisplayName("Lista vazia de trechos não chama o modelo")
+    void emptySegments() {
+        assertEquals(List.of(), score("props"));
+    }
+
+    /**
+     * Writes the ONNX protobuf of a cross-encoder stand-in: the logit of a
+     * pair is the sum of the weights of its unmasked tokens.
+     */
+    private static final class OnnxGraph {
+
+        private static final int FLOAT = 1;
+        private static final int INT64 = 7;
+
+        static byte[] weightedBagOfWords(float[] weights) {
+            byte[] graph = concat(
+                    node("Gather", List.of("weights", "input_ids"), "gathered"),
+                    node("Cast", List.of("attention_mask"), "mask", field(5, concat(
+                            field(1, "to"), varint(3, FLOAT), varint(20, 2)))),
+                    node("Mul", List.of("gathered", "mask"), "masked"),
+                    node("ReduceSum", List.of("masked", "axes"), "logits"),
+                    field(2, "bag-of-words"),
+                    field(5, concat(varint(1, weights.length), varint(2, FLOAT), field(4, floats(weights)),
+                            field(8, "weights"))),
+                    field(5, concat(varint(1, 1), varint(2, INT64), field(7, varints(1)), field(8, "axes"))),
+                    field(11, valueInfo("input_ids", INT64, "batch", "length")),
+                    field(11, valueInfo("attention_mask", INT64, "batch", "length")),
+                    field(12, valueInfo("logits", FLOAT, "batch", null)));
+            return concat(varint(1, 8), field(8, concat(field(1, ""), varint(2, 13))), field(7, graph));
+        }
+
+        private static byte[] node(String op, List<String> inputs, String output, byte[]... attributes) {
+            ByteArrayOutputStream node = new ByteArrayOutputStream();
+            inputs.forEach(input -> node.writeBytes(field(1, input)));
+            node.writeBytes(field(2, output));
+            node.writeBytes(field(4, op));
+            for (byte[] attribute : attributes) {
+                node.writeBytes(attribute);
+            }
+            return field(1, node.toByteArray());
+        }
+
+        /**
+         * Tensor type with named dimensions; a null name is a dimension of 1.
+         */
+        private static byte[] valueInfo(String name, int type, String... dims) {
+            ByteArrayOutputStream shape = new ByteArrayOutputStream();
+            for (String dim : dims) {
+                shape.writeBytes(field(1, dim == null ? varint(1, 1) : field(2, dim)));
+            }
+            return concat(field(1, name), field(2, field(1, concat(varint(1, type), field(2, shape.toByteArray())))));
+        }
+
+        private static byte[] floats(float[] values) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for (float value : values) {
+                int bits = Float.floatToIntBits(value);
+                for (int i = 0; i < 4; i++) {
+                    out.write(bits >>> (8 * i));
+                }
+            }
+            return out.toByteArray();
+        }
+
+        private static byte[] varints(long... values) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for (long value : values) {
+                writeVarint(out, value);
+            }
+            return out.toByteArray();
+        }
+
+        private static byte[] varint(int field, long value) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writeVarint(out, (long) field << 3);
+            writeVarint(out, value);
+            return out.toByteArray();
+        }
+
+        private static byte[] field(int field, String value) {
+            return field(field, value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private static byte[] field(int field, byte[] value) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writeVarint(out, ((long) field << 3) | 2);
+            writeVarint(out, value.length);
+            out.writeBytes(value);
+            return out.toByteArray();
+        }
+
+        private static byte[] concat(byte[]... parts) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for (byte[] part : parts) {
+                out.writeBytes(part);
+            }
+            return out.toByteArray();
+        }
+
+        private static void writeVarint(ByteArrayOutputStream out, long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.eclipse.microprofile.config.ConfigProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import dev.rpmhub.infrastructure.service.BulkheadService;
+import dev.rpmhub.infrastructure.service.CrossEncoderService;
+import dev.rpmhub.infrastructure.service.MetricsServiceImpl;
+import dev.rpmhub.infrastructure.service.PDFExtractorService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+
+/**
+ * Checks how full ingestions build, validate and swap index generations,
+ * with an in-memory store and a bag-of-words embedding model.
+ */
+class EmbeddingRepositoryImplTest {
+
+    private static final int DIMENSION = 64;
+
+    private static final List<String> TOPICS = List.of(
+            "Props passam dados do componente pai para o componente filho",
+            "Eventos sobem do filho para o pai com emit",
+            "O v-model cria um binding bidirecional em formulários",
+            "Slots permitem que o pai injete conteúdo no template do filho",
+            "Computed guarda em cache valores derivados do estado",
+            "Watch executa efeitos quando uma fonte reativa muda",
+            "O router associa rotas a componentes de página",
+            "Pinia centraliza o estado compartilhado da aplicação",
+            "Diretivas como v-if e v-for controlam a renderização",
+            "O ciclo de vida tem hooks como onMounted e onUnmounted");
+
+    @TempDir
+    Path location;
+
+    private final InMemoryEmbeddingStore<TextSegment> store = new InMemoryEmbeddingStore<>();
+    private EmbeddingRepositoryImpl repository;
+
+    /**
+     * Each word adds one to a hashed dimension; the last dimension is a bias,
+     * so no vector is zero and every stored chunk matches a bias-only query.
+     */
+    private static Embedding bagOfWords(String text) {
+        float[] vector = new float[DIMENSION + 1];
+        for (String word : text.toLowerCase().split("\\W+")) {
+            vector[Math.floorMod(word.hashCode(), DIMENSION)]++;
+        }
+        vector[DIMENSION] = 1;
+        return Embedding.from(vector);
+    }
+
+    private EmbeddingRepositoryImpl repository(Function<String, Embedding> embed) {
+        EmbeddingModel model = segments -> Response.from(segments.stream()
+                .map(segment -> embed.apply(segment.text())).toList());
+        MetricsServiceImpl metrics = new MetricsServiceImpl(new SimpleMeterRegistry());
+        repository = new EmbeddingRepositoryImpl(store, model, new PDFExtractorService(), metrics,
+                OpenTelemetry.noop().getTracer("test"),
+                new CrossEncoderService(metrics, false, Optional.empty(), Optional.empty(), 512, 8, 2, 200),
+                new BulkheadService(ConfigProvider.getConfig(), new SimpleMeterRegistry()),
+                20, 0.7, 0, "chroma", 4, 100, 0, 0, 0.5, 8, 0.8, 0, 1);
+        return repository;
+    }
+
+    @AfterEach
+    void close() {
+        if (repository != null) {
+            repository.close();
+        }
+    }
+
+    private void write(int files) throws IOException {
+        for (int i = 0; i < files; i++) {
+            Files.writeString(location.resolve("topico-" + i + ".txt"), TOPICS.get(i));
+        }
+    }
+
+    /**
+     * The text and generation of every chunk in the store.
+     */
+    private List<TextSegment> stored() {
+        float[] bias = new float[DIMENSION + 1];
+        bias[DIMENSION] = 1;
+        return store.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(Embedding.from(bias))
+                .maxResults(1_000)
+                .minScore(0.0)
+                .build()).matches().stream().map(EmbeddingMatch::embedded).toList();
+    }
+
+    private Set<String> generations() {
+        return stored().stream().map(segment -> segment.metadata().getString("generation"))
+                .collect(Collectors.toSet());
+    }
+
+    private Set<String> texts() {
+        return stored().stream().map(segment -> segment.text().trim()).collect(Collectors.toSet());
+    }
+
+    @Test
+    @DisplayName("Nova geração validada substitui a ativa e a anterior é removida do repositório")
+    void swapsGenerationAndCollectsOld() throws Exception {
+        write(4);
+        EmbeddingRepositoryImpl repository = repository(EmbeddingRepositoryImplTest::bagOfWords);
+        repository.ingestDocuments(location.toString());
+        Set<String> first = generations();
+        assertEquals(1, first.size());
+        assertEquals(4, stored().size());
+
+        Files.writeString(location.resolve("topico-0.txt"), TOPICS.get(9));
+        // Generations are named by their start time in milliseconds
+        Thread.sleep(5);
+        repository.ingestDocuments(location.toString());
+
+        // Replaced generations are removed by the GC thread
+        for (int attempt = 0; attempt < 100 && generations().size() > 1; attempt++) {
+            Thread.sleep(20);
+        }
+        Set<String> second = generations();
+        assertEquals(1, second.size());
+        assertNotEquals(first, second);
+        assertEquals(4, stored().size());
+        assertTrue(texts().contains(TOPICS.get(9)));
+        assertFalse(texts().contains(TOPICS.get(0)));
+    }
+
+    @Test
+    @DisplayName("Geração muito menor que a ativa é descartada e a ativa continua no repositório")
+    void rejectsMuchSmallerGeneration() throws Exception {
+        write(4);
+        EmbeddingRepositoryImpl repository = repository(EmbeddingRepositoryImplTest::bagOfWords);
+        repository.ingestDocuments(location.toString());
+        Set<String> active = generations();
+
+        for (int i = 1; i < 4; i++) {
+            Files.delete(location.resolve("topico-" + i + ".txt"));
+        }
+        Thread.sleep(5);
+        repository.ingestDocuments(location.toString());
+
+        assertEquals(active, generations());
+        assertEquals(Set.copyOf(TOPICS.subList(0, 4)), texts());
+    }
+
+    @Test
+    @DisplayName("Geração cujos trechos não são encontrados pela busca vetorial é descartada")
+    void rejectsGenerationWithLowRecall() throws Exception {
+        write(TOPICS.size());
+        // Every chunk has the same embedding, so a search cannot tell them apart
+        Embedding constant = bagOfWords("vue");
+        EmbeddingRepositoryImpl repository = repository(text -> constant);
+
+        repository.ingestDocuments(location.toString());
+
+        assertEquals(List.of(), stored());
+    }
+}
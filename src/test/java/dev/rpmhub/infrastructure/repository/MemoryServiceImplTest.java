@@ -0,0 +1,74 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.rpmhub.domain.model.ChatMessage;
+import dev.rpmhub.domain.model.ChatMessage.MessageStatus;
+import dev.rpmhub.domain.model.ChatMessage.MessageType;
+
+class MemoryServiceImplTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    private final List<ChatMessage> stored = new ArrayList<>();
+
+    private void add(MessageType type, String content, MessageStatus status) {
+        ChatMessage message = new ChatMessage("session", content, type);
+        message.setStatus(status);
+        message.setTimestamp(START.plusSeconds(stored.size()));
+        stored.add(message);
+    }
+
+    @Test
+    @DisplayName("No primeiro turno a memória começa vazia, sem a resposta em andamento")
+    void firstTurn() {
+        add(MessageType.USER, "O que é uma classe?", MessageStatus.COMPLETE);
+        add(MessageType.ASSISTANT, "", MessageStatus.STREAMING);
+
+        assertTrue(MemoryServiceImpl.toChatMessages(stored).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Mantém os turnos respondidos e deixa de fora o turno em andamento")
+    void turnInProgress() {
+        add(MessageType.USER, "O que é uma classe?", MessageStatus.COMPLETE);
+        add(MessageType.ASSISTANT, "Uma classe ", MessageStatus.COMPLETE);
+        add(MessageType.ASSISTANT, "é um molde.", MessageStatus.COMPLETE);
+        add(MessageType.USER, "E um objeto?", MessageStatus.COMPLETE);
+        add(MessageType.ASSISTANT, "Um obj", MessageStatus.STREAMING);
+
+        assertEquals(List.of(UserMessage.from("O que é uma classe?"), AiMessage.from("Uma classe é um molde.")),
+                MemoryServiceImpl.toChatMessages(stored));
+    }
+
+    @Test
+    @DisplayName("Perguntas com resposta interrompida ou vazia ficam de fora")
+    void unansweredQuestions() {
+        add(MessageType.USER, "Primeira", MessageStatus.COMPLETE);
+        add(MessageType.ASSISTANT, "Resposta parc", MessageStatus.ABORTED);
+        add(MessageType.USER, "Segunda", MessageStatus.COMPLETE);
+        add(MessageType.ASSISTANT, " ", MessageStatus.COMPLETE);
+        add(MessageType.USER, "Terceira", MessageStatus.COMPLETE);
+        add(MessageType.ASSISTANT, "Resposta", MessageStatus.COMPLETE);
+
+        assertEquals(List.of(UserMessage.from("Terceira"), AiMessage.from("Resposta")),
+                MemoryServiceImpl.toChatMessages(stored));
+    }
+}
@@ -0,0 +1,138 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import dev.rpmhub.domain.model.OverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.helpers.test.AssertSubscriber;
+import io.smallrye.mutiny.subscription.MultiEmitter;
+
+class AdmissionServiceImplTest {
+
+    /**
+     * Generations started, in order, by request name.
+     */
+    private final List<String> started = new CopyOnWriteArrayList<>();
+    private final Map<String, MultiEmitter<? super String>> running = new ConcurrentHashMap<>();
+    private final Map<String, List<Integer>> positions = new ConcurrentHashMap<>();
+
+    private static AdmissionServiceImpl admission(int maxConcurrency, int maxQueue, int maxQueuePerKey) {
+        return new AdmissionServiceImpl(new MetricsServiceImpl(new SimpleMeterRegistry()), maxConcurrency, maxQueue,
+                maxQueuePerKey, 10);
+    }
+
+    /**
+     * Asks for a slot for a generation that runs until finish() is called.
+     */
+    private AssertSubscriber<String> request(AdmissionServiceImpl admission, String key, String name) {
+        List<Integer> seen = positions.computeIfAbsent(name, k -> new CopyOnWriteArrayList<>());
+        return admission.admit(key, seen::add, () -> Multi.createFrom().emitter(emitter -> {
+            started.add(name);
+            running.put(name, emitter);
+        })).subscribe().withSubscriber(AssertSubscriber.create(Long.MAX_VALUE));
+    }
+
+    private void finish(String name) {
+        running.remove(name).complete();
+    }
+
+    @Test
+    @DisplayName("Requisições até max-concurrency são admitidas e as demais esperam na fila")
+    void admitsUpToConcurrency() {
+        AdmissionServiceImpl admission = admission(2, 8, 4);
+
+        request(admission, "u1", "a");
+        request(admission, "u2", "b");
+        request(admission, "u3", "c");
+
+        assertEquals(List.of("a", "b"), started);
+        assertEquals(List.of(1), positions.get("c"));
+
+        finish("a");
+        assertEquals(List.of("a", "b", "c"), started);
+    }
+
+    @Test
+    @DisplayName("A fila é servida em rodízio entre usuários")
+    void servesQueuesRoundRobin() {
+        AdmissionServiceImpl admission = admission(1, 8, 4);
+        request(admission, "other", "x");
+        request(admission, "a", "a1");
+        request(admission, "a", "a2");
+        request(admission, "a", "a3");
+        request(admission, "b", "b1");
+
+        // Positions follow the admission order: a1, b1, a2, a3
+        assertEquals(2, positions.get("b1").get(positions.get("b1").size() - 1));
+        assertEquals(4, positions.get("a3").get(positions.get("a3").size() - 1));
+
+        for (String name : List.of("x", "a1", "b1", "a2")) {
+            finish(name);
+        }
+        assertEquals(List.of("x", "a1", "b1", "a2", "a3"), started);
+    }
+
+    @Test
+    @DisplayName("Requisições além da fila do usuário ou da fila total são rejeitadas")
+    void rejectsWhenQueuesAreFull() {
+        AdmissionServiceImpl admission = admission(1, 3, 2);
+        request(admission, "a", "running");
+        request(admission, "a", "a1");
+        request(admission, "a", "a2");
+
+        request(admission, "a", "a3").assertFailedWith(OverloadedException.class);
+        assertFalse(admission.isSaturated());
+
+        request(admission, "b", "b1");
+        assertTrue(admission.isSaturated());
+        AssertSubscriber<String> rejected = request(admission, "c", "c1");
+        rejected.assertFailedWith(OverloadedException.class);
+        assertTrue(((OverloadedException) rejected.getFailure()).getRetryAfterSeconds() >= 1);
+        assertFalse(started.contains("a3") || started.contains("c1"));
+    }
+
+    @Test
+    @DisplayName("Requisição cancelada na fila sai dela sem ocupar um slot")
+    void cancelledWaiterLeavesQueue() {
+        AdmissionServiceImpl admission = admission(1, 8, 4);
+        request(admission, "u1", "running");
+        AssertSubscriber<String> gone = request(admission, "u2", "gone");
+        request(admission, "u3", "next");
+        assertEquals(List.of(2), positions.get("next"));
+
+        gone.cancel();
+        assertEquals(List.of(2, 1), positions.get("next"));
+
+        finish("running");
+        assertEquals(List.of("running", "next"), started);
+    }
+
+    @Test
+    @DisplayName("O slot é liberado quando a geração admitida é cancelada")
+    void cancelledGenerationReleasesSlot() {
+        AdmissionServiceImpl admission = admission(1, 8, 4);
+        AssertSubscriber<String> first = request(admission, "u1", "first");
+        request(admission, "u2", "second");
+
+        first.cancel();
+        assertEquals(List.of("first", "second"), started);
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import dev.rpmhub.domain.model.RagQuery;
+import dev.rpmhub.domain.model.RagResponse;
+import dev.rpmhub.domain.port.EmbeddingRepository;
+import io.smallrye.mutiny.Multi;
+
+class DocumentWatcherServiceTest {
+
+    private static final long DEBOUNCE_MILLIS = 300;
+
+    @TempDir
+    Path location;
+
+    @TempDir
+    Path outside;
+
+    /**
+     * Paths of each ingestFiles call, in order.
+     */
+    private final List<Set<Path>> updates = new CopyOnWriteArrayList<>();
+
+    private DocumentWatcherService watcher;
+
+    private final EmbeddingRepository repository = new EmbeddingRepository() {
+        @Override
+        public Multi<RagResponse> searchChunks(RagQuery query) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void ingestDocuments(String directoryPath) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void ingestFiles(String directoryPath, Collection<Path> changed) {
+            updates.add(Set.copyOf(changed));
+        }
+    };
+
+    private void start() {
+        watcher = new DocumentWatcherService(repository, location, true, DEBOUNCE_MILLIS);
+        watcher.start(null);
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        watcher.close();
+    }
+
+    /**
+     * Waits for the first update and for the debounce delay after it, so a
+     * second update would have arrived too.
+     */
+    private void awaitUpdate() throws InterruptedException {
+        for (int attempt = 0; attempt < 100 && updates.isEmpty(); attempt++) {
+            Thread.sleep(50);
+        }
+        Thread.sleep(DEBOUNCE_MILLIS * 2);
+    }
+
+    @Test
+    @DisplayName("Alterações seguidas são reprocessadas juntas depois do debounce")
+    void debouncesChanges() throws Exception {
+        start();
+        Path props = location.resolve("props.txt");
+        Path eventos = location.resolve("eventos.txt");
+
+        Files.writeString(props, "Props passam dados do pai para o filho");
+        Files.writeString(eventos, "Eventos sobem do filho para o pai");
+        Files.writeString(props, "Props são somente leitura no filho");
+        awaitUpdate();
+
+        assertEquals(List.of(Set.of(props, eventos)), updates);
+    }
+
+    @Test
+    @DisplayName("Arquivo apagado é informado para ter seus segmentos removidos")
+    void reportsDeletedFiles() throws Exception {
+        Path props = Files.writeString(location.resolve("props.txt"), "Props passam dados do pai para o filho");
+        start();
+
+        Files.delete(props);
+        awaitUpdate();
+
+        assertEquals(List.of(Set.of(props)), updates);
+    }
+
+    @Test
+    @DisplayName("Arquivos de um diretório novo são reprocessados e o diretório passa a ser observado")
+    void watchesNewDirectories() throws Exception {
+        Path copied = Files.createDirectories(outside.resolve("vue"));
+        Files.writeString(copied.resolve("props.txt"), "Props passam dados do pai para o filho");
+        start();
+
+        Path course = Files.move(copied, location.resolve("vue"));
+        awaitUpdate();
+        assertEquals(List.of(Set.of(course.resolve("props.txt"))), updates);
+
+        Path eventos = Files.writeString(course.resolve("eventos.txt"), "Eventos sobem do filho para o pai");
+        updates.clear();
+        awaitUpdate();
+        assertTrue(updates.size() == 1 && updates.get(0).contains(eventos), updates.toString());
+    }
+}
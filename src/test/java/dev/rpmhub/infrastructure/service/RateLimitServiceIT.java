@@ -0,0 +1,59 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.service;
+
+import java.time.Duration;
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import dev.rpmhub.domain.model.RateLimitExceededException;
+import dev.rpmhub.domain.port.RateLimitService;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.smallrye.mutiny.helpers.test.UniAssertSubscriber;
+import jakarta.inject.Inject;
+
+/**
+ * Runs the token bucket Lua script against the Redis of the dev services.
+ */
+@QuarkusTest
+@TestProfile(RateLimitServiceIT.SmallBucket.class)
+class RateLimitServiceIT {
+
+    public static class SmallBucket implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                    "rag.rate-limit.enabled", "true",
+                    "rag.rate-limit.lease-size", "4",
+                    "rag.rate-limit.chatbot.capacity", "3",
+                    "rag.rate-limit.chatbot.refill-per-minute", "1");
+        }
+    }
+
+    @Inject
+    RateLimitService rateLimitService;
+
+    @Test
+    @DisplayName("O script permite até a capacidade do bucket e rejeita o excesso")
+    void rejectsAboveCapacity() {
+        String key = "rate-limit-it-" + System.nanoTime();
+
+        for (int i = 0; i < 3; i++) {
+            rateLimitService.acquire("chatbot", key).await().atMost(Duration.ofSeconds(5));
+        }
+
+        rateLimitService.acquire("chatbot", key).subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .awaitFailure(Duration.ofSeconds(5))
+                .assertFailedWith(RateLimitExceededException.class);
+    }
+}
@@ -0,0 +1,189 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import dev.rpmhub.domain.model.RateLimitExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import io.quarkus.redis.datasource.ReactiveRedisDataSource;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.helpers.test.UniAssertSubscriber;
+import io.vertx.mutiny.redis.client.Response;
+import io.vertx.redis.client.impl.types.MultiType;
+import io.vertx.redis.client.impl.types.NumberType;
+
+/**
+ * Checks the local leases and the handling of the Redis replies. Redis is
+ * replaced by a fake that runs the token bucket of the Lua script in Java;
+ * the script itself is covered by RateLimitServiceIT.
+ */
+class RateLimitServiceImplTest {
+
+    /**
+     * Runs EVAL and EVALSHA like the token bucket script, loading the script
+     * on the first EVAL, and records the commands it receives.
+     */
+    private static final class FakeRedis {
+
+        final List<String> commands = new CopyOnWriteArrayList<>();
+        final Map<String, double[]> buckets = new HashMap<>();
+        long now = 1_000_000;
+        boolean scriptLoaded;
+        boolean down;
+
+        ReactiveRedisDataSource dataSource() {
+            return (ReactiveRedisDataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { ReactiveRedisDataSource.class }, (proxy, method, args) -> {
+                        if (!method.getName().equals("execute") || !(args[0] instanceof String command)) {
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                        return execute(command, (String[]) args[1]);
+                    });
+        }
+
+        private synchronized Uni<Response> execute(String command, String[] args) {
+            commands.add(command);
+            if (down) {
+                return Uni.createFrom().failure(new IllegalStateException("Connection refused"));
+            }
+            if (command.equals("EVALSHA") && !scriptLoaded) {
+                return Uni.createFrom().failure(new IllegalStateException("NOSCRIPT No matching script"));
+            }
+            scriptLoaded = true;
+            return Uni.createFrom().item(bucket(args[2], Double.parseDouble(args[3]), Double.parseDouble(args[4]),
+                    Integer.parseInt(args[5])));
+        }
+
+        private Response bucket(String key, double capacity, double rate, int lease) {
+            double[] bucket = buckets.computeIfAbsent(key, k -> new double[] { capacity, now });
+            double tokens = Math.min(capacity, bucket[0] + Math.max(0, now - bucket[1]) * rate);
+            long granted = 0;
+            long wait = 0;
+            if (tokens >= 2 * lease) {
+                granted = lease;
+            } else if (tokens >= 1) {
+                granted = 1;
+            } else {
+                wait = (long) Math.ceil((1 - tokens) / rate);
+            }
+            bucket[0] = tokens - granted;
+            bucket[1] = now;
+            MultiType reply = MultiType.create(2, false);
+            reply.add(NumberType.create(granted));
+            reply.add(NumberType.create(wait));
+            return Response.newInstance(reply);
+        }
+    }
+
+    private final FakeRedis redis = new FakeRedis();
+
+    private RateLimitServiceImpl rateLimit(boolean enabled, int leaseSize, long leaseMillis, int capacity,
+            double refillPerMinute) {
+        return new RateLimitServiceImpl(redis.dataSource(), new MetricsServiceImpl(new SimpleMeterRegistry()),
+                OpenTelemetry.noop().getTracer("test"), enabled, leaseSize, leaseMillis, capacity, refillPerMinute,
+                capacity, refillPerMinute, capacity, refillPerMinute);
+    }
+
+    private static void acquire(RateLimitServiceImpl rateLimit, String endpoint, String key) {
+        rateLimit.acquire(endpoint, key).await().atMost(Duration.ofSeconds(5));
+    }
+
+    @Test
+    @DisplayName("Um lease do Redis é gasto localmente antes de uma nova ida ao Redis")
+    void spendsLeaseLocally() {
+        RateLimitServiceImpl rateLimit = rateLimit(true, 4, 60_000, 20, 10);
+
+        acquire(rateLimit, "chatbot", "u1");
+        // The script is loaded with EVAL after a NOSCRIPT
+        assertEquals(List.of("EVALSHA", "EVAL"), redis.commands);
+
+        for (int i = 0; i < 3; i++) {
+            acquire(rateLimit, "chatbot", "u1");
+        }
+        assertEquals(2, redis.commands.size());
+
+        acquire(rateLimit, "chatbot", "u1");
+        assertEquals(List.of("EVALSHA", "EVAL", "EVALSHA"), redis.commands);
+    }
+
+    @Test
+    @DisplayName("Leases são separados por usuário e por endpoint")
+    void leasesPerBucket() {
+        RateLimitServiceImpl rateLimit = rateLimit(true, 4, 60_000, 20, 10);
+
+        acquire(rateLimit, "chatbot", "u1");
+        acquire(rateLimit, "chatbot", "u2");
+        acquire(rateLimit, "ask", "u1");
+        acquire(rateLimit, "prefetch", "u1");
+
+        assertEquals(4, redis.buckets.size());
+        assertEquals(16.0, redis.buckets.get("ratelimit:chatbot:u1")[0]);
+    }
+
+    @Test
+    @DisplayName("Perto do limite os tokens são tirados um a um e o excesso é rejeitado com Retry-After")
+    void rejectsAboveLimit() {
+        RateLimitServiceImpl rateLimit = rateLimit(true, 4, 60_000, 3, 1);
+
+        for (int i = 0; i < 3; i++) {
+            acquire(rateLimit, "chatbot", "u1");
+        }
+        // Fewer than 2 leases available: each request went to Redis
+        assertEquals(4, redis.commands.size());
+
+        Throwable failure = rateLimit.acquire("chatbot", "u1").subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertFailedWith(RateLimitExceededException.class).getFailure();
+        // One token per minute
+        long retryAfter = ((RateLimitExceededException) failure).getRetryAfterSeconds();
+        assertTrue(retryAfter >= 60 && retryAfter <= 61, "Retry-After: " + retryAfter);
+
+        redis.now += 61_000;
+        acquire(rateLimit, "chatbot", "u1");
+    }
+
+    @Test
+    @DisplayName("Leases expirados não são usados")
+    void expiredLeaseIsNotUsed() {
+        RateLimitServiceImpl rateLimit = rateLimit(true, 4, -1, 20, 10);
+
+        acquire(rateLimit, "chatbot", "u1");
+        acquire(rateLimit, "chatbot", "u1");
+
+        assertEquals(List.of("EVALSHA", "EVAL", "EVALSHA"), redis.commands);
+        // The unused tokens of the expired lease are lost
+        assertEquals(12.0, redis.buckets.get("ratelimit:chatbot:u1")[0]);
+    }
+
+    @Test
+    @DisplayName("Sem Redis, ou desabilitado, o limite não é aplicado")
+    void allowsWithoutRedis() {
+        redis.down = true;
+        acquire(rateLimit(true, 4, 60_000, 20, 10), "chatbot", "u1");
+        assertEquals(List.of("EVALSHA"), redis.commands);
+
+        redis.commands.clear();
+        RateLimitServiceImpl disabled = rateLimit(false, 4, 60_000, 20, 10);
+        acquire(disabled, "chatbot", "u1");
+        acquire(rateLimit(true, 4, 60_000, 20, 10), "unknown", "u1");
+        assertTrue(redis.commands.isEmpty());
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class Bm25IndexTest {
+
+    private static final Bm25Index INDEX = Bm25Index.build(List.of(
+            "Props passam dados do componente pai para o componente filho",
+            "O v-model cria um binding bidirecional entre o input e o estado",
+            "Props props e mais props: defineProps declara as props do componente",
+            "Eventos sobem do filho para o pai com emit",
+            "Props"));
+
+    @Test
+    @DisplayName("Identificadores com hífen e sublinhado são termos inteiros, sem caracteres isolados")
+    void tokenizesIdentifiers() {
+        assertEquals(List.of("v-model", "define_props", "um", "hook"),
+                Bm25Index.tokenize("--v-model, define_props: é um hook (a)"));
+    }
+
+    @Test
+    @DisplayName("Documentos são ordenados pelo score BM25, do maior para o menor")
+    void ranksByScore() {
+        Bm25Index.Result result = INDEX.search("props", 10);
+
+        // Four occurrences beat the one-word document, which beats a
+        // single occurrence in a longer one
+        assertArrayEquals(new int[] { 2, 4, 0 }, result.docs());
+        for (int i = 1; i < result.scores().length; i++) {
+            assertTrue(result.scores()[i - 1] > result.scores()[i]);
+        }
+    }
+
+    @Test
+    @DisplayName("Termos raros pesam mais que termos comuns")
+    void rareTermsWeighMore() {
+        // "componente" is in two documents, "emit" in one
+        Bm25Index.Result result = INDEX.search("componente emit", 10);
+
+        assertEquals(3, result.docs()[0]);
+        assertEquals(2, result.matchedTerms());
+        assertEquals(2, result.queryTerms());
+    }
+
+    @Test
+    @DisplayName("Identificadores são encontrados inteiros e o resultado é limitado a k")
+    void matchesIdentifiersAndLimits() {
+        assertArrayEquals(new int[] { 1 }, INDEX.search("Como usar v-model?", 10).docs());
+        assertArrayEquals(new int[] { 2 }, INDEX.search("props", 1).docs());
+    }
+
+    @Test
+    @DisplayName("Só documentos permitidos pelo filtro são retornados")
+    void filtersDocuments() {
+        BitSet allowed = new BitSet();
+        allowed.set(0);
+        allowed.set(3);
+
+        assertArrayEquals(new int[] { 0 }, INDEX.search("props", 10, allowed).docs());
+    }
+
+    @Test
+    @DisplayName("Consulta sem termos indexados não encontra nada e informa os termos encontrados")
+    void unknownTerms() {
+        Bm25Index.Result result = INDEX.search("slots teleport", 10);
+
+        assertEquals(0, result.docs().length);
+        assertEquals(0, result.matchedTerms());
+        assertEquals(2, result.queryTerms());
+        assertEquals(0, Bm25Index.EMPTY.search("props", 10).docs().length);
+    }
+}
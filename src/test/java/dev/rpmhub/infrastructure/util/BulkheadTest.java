@@ -0,0 +1,120 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class BulkheadTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private static <T> CompletableFuture<T> onVirtualThread(Supplier<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Thread.ofVirtual().start(() -> {
+            try {
+                result.complete(task.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    @Test
+    @DisplayName("Chamadas rodam na própria thread, virtual ou de plataforma")
+    void callsRunInPlace() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("test", 1, 1, false, registry);
+
+        CompletableFuture<Thread[]> virtual = onVirtualThread(
+                () -> new Thread[] { Thread.currentThread(), bulkhead.call(Thread::currentThread) });
+        CompletableFuture<Thread[]> platform = CompletableFuture.supplyAsync(
+                () -> new Thread[] { Thread.currentThread(), bulkhead.call(Thread::currentThread) });
+
+        Thread[] caller = virtual.get(5, TimeUnit.SECONDS);
+        assertSame(caller[0], caller[1]);
+        caller = platform.get(5, TimeUnit.SECONDS);
+        assertSame(caller[0], caller[1]);
+    }
+
+    @Test
+    @DisplayName("Threads virtuais esperam por uma permissão até o limite da fila e depois são rejeitadas")
+    void virtualThreadsQueueThenReject() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("test", 1, 1, false, registry);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> first = onVirtualThread(() -> bulkhead.call(() -> {
+            running.countDown();
+            await(release);
+            return "primeira";
+        }));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = onVirtualThread(() -> bulkhead.call(() -> "na fila"));
+        // Let the second call take the only place of the queue
+        Thread.sleep(100);
+        CompletableFuture<String> rejected = onVirtualThread(() -> bulkhead.call(() -> "rejeitada"));
+
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> rejected.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, failure.getCause());
+
+        release.countDown();
+        assertEquals("primeira", first.get(5, TimeUnit.SECONDS));
+        assertEquals("na fila", queued.get(5, TimeUnit.SECONDS));
+        assertEquals(1, registry.get("rag.bulkhead.rejected").tag("bulkhead", "test").counter().count());
+    }
+
+    @Test
+    @DisplayName("Chamadas de threads virtuais e de plataforma dividem as mesmas permissões")
+    void virtualAndPlatformThreadsSharePermits() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("test", 1, 4, false, registry);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> virtual = onVirtualThread(() -> bulkhead.call(() -> {
+            running.countDown();
+            await(release);
+            return "virtual";
+        }));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> platform = CompletableFuture.supplyAsync(() -> bulkhead.call(() -> "plataforma"));
+
+        Thread.sleep(100);
+        assertFalse(platform.isDone(), "a chamada deveria esperar a permissão da thread virtual");
+        assertEquals(1, registry.get("rag.bulkhead.waiting").tag("bulkhead", "test").gauge().value());
+        release.countDown();
+        assertEquals("virtual", virtual.get(5, TimeUnit.SECONDS));
+        assertEquals("plataforma", platform.get(5, TimeUnit.SECONDS));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class MaximalMarginalRelevanceTest {
+
+    /**
+     * Two near-duplicates and a chunk on another topic.
+     */
+    private static final float[][] VECTORS = {
+            { 1f, 0f },
+            { 0.99f, 0.1f },
+            { 0f, 1f } };
+
+    private static final double[] RELEVANCE = { 1.0, 0.95, 0.6 };
+
+    @Test
+    @DisplayName("Com lambda 1 a ordem é a da relevância")
+    void relevanceOnly() {
+        assertArrayEquals(new int[] { 0, 1, 2 }, MaximalMarginalRelevance.select(VECTORS, RELEVANCE, 3, 1.0));
+    }
+
+    @Test
+    @DisplayName("Quase duplicatas do trecho já escolhido perdem posição para trechos diferentes")
+    void demotesNearDuplicates() {
+        assertArrayEquals(new int[] { 0, 2, 1 }, MaximalMarginalRelevance.select(VECTORS, RELEVANCE, 3, 0.5));
+        assertArrayEquals(new int[] { 0, 2 }, MaximalMarginalRelevance.select(VECTORS, RELEVANCE, 2, 0.5));
+    }
+
+    @Test
+    @DisplayName("Seleciona no máximo os candidatos disponíveis")
+    void limitsToCandidates() {
+        assertArrayEquals(new int[] { 0, 2, 1 }, MaximalMarginalRelevance.select(VECTORS, RELEVANCE, 10, 0.5));
+        assertArrayEquals(new int[0], MaximalMarginalRelevance.select(new float[0][], new double[0], 5, 0.5));
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import dev.rpmhub.infrastructure.util.QuantizedVectorIndex.Mode;
+
+/**
+ * Compares the quantized scans with the exact FLOAT scan on clustered random
+ * vectors, like QuantizedVectorSearchBenchmark on a smaller corpus.
+ */
+class QuantizedVectorIndexTest {
+
+    private static final int DIMENSION = 384;
+    private static final int SIZE = 2_000;
+    private static final int QUERIES = 100;
+    private static final int K = 10;
+
+    private static float[][] vectors;
+    private static float[][] queries;
+    private static QuantizedVectorIndex exact;
+
+    @BeforeAll
+    static void corpus() {
+        Random random = new Random(42);
+        float[][] centers = new float[32][];
+        for (int c = 0; c < centers.length; c++) {
+            centers[c] = gaussian(random, 1.0f, null);
+        }
+        vectors = new float[SIZE][];
+        for (int i = 0; i < SIZE; i++) {
+            vectors[i] = gaussian(random, 0.6f, centers[random.nextInt(centers.length)]);
+        }
+        queries = new float[QUERIES][];
+        for (int q = 0; q < QUERIES; q++) {
+            queries[q] = gaussian(random, 0.3f, vectors[random.nextInt(SIZE)]);
+        }
+        exact = QuantizedVectorIndex.build(vectors, Mode.FLOAT);
+    }
+
+    private static float[] gaussian(Random random, float sigma, float[] center) {
+        float[] vector = new float[DIMENSION];
+        for (int d = 0; d < DIMENSION; d++) {
+            vector[d] = (center == null ? 0 : center[d]) + (float) random.nextGaussian() * sigma;
+        }
+        return vector;
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int d = 0; d < a.length; d++) {
+            dot += a[d] * b[d];
+            normA += a[d] * a[d];
+            normB += b[d] * b[d];
+        }
+        return dot / Math.sqrt(normA * normB);
+    }
+
+    @Test
+    @DisplayName("A busca FLOAT retorna os vizinhos exatos por cosseno, do mais similar ao menos")
+    void floatIsExact() {
+        for (int q = 0; q < 10; q++) {
+            float[] query = queries[q];
+            Integer[] byCosine = new Integer[SIZE];
+            Arrays.setAll(byCosine, i -> i);
+            Arrays.sort(byCosine, (a, b) -> Double.compare(cosine(vectors[b], query), cosine(vectors[a], query)));
+
+            QuantizedVectorIndex.Result result = exact.search(query, K, K);
+            for (int i = 0; i < K; i++) {
+                assertEquals(byCosine[i], result.ids()[i]);
+                assertEquals(cosine(vectors[byCosine[i]], query), result.scores()[i], 1e-5);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({ "INT8, 4, 0.95", "BINARY, 30, 0.90" })
+    @DisplayName("Buscas quantizadas com re-score encontram quase os mesmos vizinhos da busca FLOAT")
+    void quantizedRecall(Mode mode, int rescoreFactor, double minRecall) {
+        QuantizedVectorIndex index = QuantizedVectorIndex.build(vectors, mode);
+
+        int found = 0;
+        for (float[] query : queries) {
+            QuantizedVectorIndex.Result truth = exact.search(query, K, K);
+            QuantizedVectorIndex.Result result = index.search(query, K, K * rescoreFactor);
+            int[] expected = truth.ids().clone();
+            Arrays.sort(expected);
+            for (int i = 0; i < result.ids().length; i++) {
+                if (Arrays.binarySearch(expected, result.ids()[i]) >= 0) {
+                    found++;
+                }
+                // Candidates are re-scored with the full-precision vectors
+                assertEquals(cosine(vectors[result.ids()[i]], query), result.scores()[i], 1e-5);
+            }
+        }
+        double recall = (double) found / (QUERIES * K);
+        assertTrue(recall >= minRecall, mode + " recall@" + K + ": " + recall);
+    }
+
+    @Test
+    @DisplayName("Mais candidatos no re-score não diminuem o recall da busca binária")
+    void moreCandidatesImproveRecall() {
+        QuantizedVectorIndex index = QuantizedVectorIndex.build(vectors, Mode.BINARY);
+
+        int withFew = 0;
+        int withMany = 0;
+        for (float[] query : queries) {
+            int[] expected = exact.search(query, K, K).ids().clone();
+            Arrays.sort(expected);
+            for (int id : index.search(query, K, K).ids()) {
+                withFew += Arrays.binarySearch(expected, id) >= 0 ? 1 : 0;
+            }
+            for (int id : index.search(query, K, K * 30).ids()) {
+                withMany += Arrays.binarySearch(expected, id) >= 0 ? 1 : 0;
+            }
+        }
+        assertTrue(withMany >= withFew, withMany + " < " + withFew);
+    }
+
+    @Test
+    @DisplayName("INT8 ocupa 4x e BINARY 32x menos que FLOAT na varredura")
+    void scanBytes() {
+        assertEquals((long) SIZE * DIMENSION * Float.BYTES, exact.scanBytes());
+        assertEquals((long) SIZE * DIMENSION, QuantizedVectorIndex.build(vectors, Mode.INT8).scanBytes());
+        assertEquals((long) SIZE * DIMENSION / 8, QuantizedVectorIndex.build(vectors, Mode.BINARY).scanBytes());
+    }
+
+    @Test
+    @DisplayName("O total inclui os vetores completos guardados fora do heap para reordenar")
+    void totalBytes() {
+        long full = (long) SIZE * DIMENSION * Float.BYTES;
+        QuantizedVectorIndex int8 = QuantizedVectorIndex.build(vectors, Mode.INT8);
+        assertEquals(full, exact.totalBytes());
+        assertEquals(full + SIZE * DIMENSION, int8.totalBytes());
+        assertEquals(full + SIZE * DIMENSION / 8, QuantizedVectorIndex.build(vectors, Mode.BINARY).totalBytes());
+        assertArrayEquals(exact.vector(7), int8.vector(7));
+    }
+
+    @ParameterizedTest
+    @CsvSource({ "FLOAT", "INT8", "BINARY" })
+    @DisplayName("Só vetores permitidos pelo filtro são retornados")
+    void filtersVectors(Mode mode) {
+        QuantizedVectorIndex index = QuantizedVectorIndex.build(vectors, mode);
+        BitSet allowed = new BitSet();
+        allowed.set(7);
+        allowed.set(1_500);
+
+        QuantizedVectorIndex.Result result = index.search(vectors[1_500], K, K * 4, allowed);
+
+        assertArrayEquals(new int[] { 1_500, 7 }, result.ids());
+        assertEquals(1.0, result.scores()[0], 1e-5);
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * This file contains confidential and proprietary information.
+ * Unauthorized copying, distribution, or use of this file or its contents is
+ * strictly prohibited.
+ *
+ * 2025 Rodrigo Prestes Machado. All rights reserved.
+ */
+package dev.rpmhub.infrastructure.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ReciprocalRankFusionTest {
+
+    @Test
+    @DisplayName("Item presente nos dois rankings passa à frente do primeiro de um só ranking")
+    void sumsRanks() {
+        Map<String, Double> fused = ReciprocalRankFusion.fuse(List.of(
+                List.of("a", "b", "c"),
+                List.of("d", "b")), 10);
+
+        assertEquals(List.of("b", "a", "d", "c"), List.copyOf(fused.keySet()));
+        assertEquals(1.0 / 62 + 1.0 / 62, fused.get("b"));
+        assertEquals(1.0 / 61, fused.get("a"));
+        assertEquals(1.0 / 63, fused.get("c"));
+    }
+
+    @Test
+    @DisplayName("Empates mantêm a ordem em que os itens apareceram e o resultado é limitado")
+    void keepsFirstSeenOrderOnTies() {
+        Map<String, Double> fused = ReciprocalRankFusion.fuse(List.of(
+                List.of("a", "b"),
+                List.of("c", "d")), 3);
+
+        assertEquals(List.of("a", "c", "b"), List.copyOf(fused.keySet()));
+    }
+
+    @Test
+    @DisplayName("Rankings vazios não produzem itens")
+    void emptyRankings() {
+        assertEquals(Map.of(), ReciprocalRankFusion.fuse(List.of(List.of(), List.of()), 10));
+    }
+}